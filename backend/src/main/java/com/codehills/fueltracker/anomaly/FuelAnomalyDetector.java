@@ -0,0 +1,211 @@
+package com.codehills.fueltracker.anomaly;
+
+import com.codehills.fueltracker.dto.FuelAnomalyResponse;
+import com.codehills.fueltracker.exception.BadRequestException;
+import com.codehills.fueltracker.exception.ResourceNotFoundException;
+import com.codehills.fueltracker.model.FuelAggregate;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryListener;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flags fill-ups whose consumption or price per liter is far off the car's recent history, as they are appended.
+ * <p>
+ * Each car keeps an exponentially weighted mean and variance of both figures, weighting the newest fill-up by
+ * {@code fueltracker.anomaly.alpha}; a fill-up is checked against them and then folded in, which costs one
+ * O(log n) lookup and allocates nothing unless it is flagged. It is flagged when it lies more than
+ * {@code fueltracker.anomaly.threshold} standard deviations from the mean, once the car has
+ * {@code fueltracker.anomaly.warmup} earlier values. The deviation is never taken below
+ * {@value #MIN_RELATIVE_SPREAD} of the mean, so a car with very regular fill-ups is not flagged for small changes.
+ * A flagged value is folded in as if it lay on the threshold, so a single typo neither drags the mean nor hides
+ * the next outlier.
+ * <p>
+ * Consumption is the fill-up's interval consumption as stored by the repository and served with the car's
+ * intervals, read back once the fill-up is stored; fill-ups without one, the first and those at which the
+ * odometer did not advance, are checked for their price only. The last
+ * {@code fueltracker.anomaly.max-flagged} flagged fill-ups are kept in memory across all cars. Statistics start
+ * empty at every startup and restored history is not replayed through them, so each car warms up again; a
+ * follower, which applies the leader's changes as restored history, flags nothing.
+ */
+@Component
+public class FuelAnomalyDetector implements FuelEntryListener {
+    public static final String CONSUMPTION = "consumption";
+    public static final String PRICE_PER_LITER = "price_per_liter";
+    public static final int MAX_LIMIT = 1000;
+
+    static final double MIN_RELATIVE_SPREAD = 0.05;
+
+    private final CarRepository carRepository;
+    private final FuelEntryRepository fuelEntryRepository;
+    private final double alpha;
+    private final double threshold;
+    private final int warmup;
+    private final Map<Long, CarStats> stats = new ConcurrentHashMap<>();
+    private final Flagged[] flagged;
+    private long flaggedCount;
+    private final Counter consumptionAnomalies;
+    private final Counter priceAnomalies;
+
+    public FuelAnomalyDetector(CarRepository carRepository, FuelEntryRepository fuelEntryRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${fueltracker.anomaly.enabled:true}") boolean enabled,
+                               @Value("${fueltracker.anomaly.alpha:0.1}") double alpha,
+                               @Value("${fueltracker.anomaly.threshold:4.0}") double threshold,
+                               @Value("${fueltracker.anomaly.warmup:5}") int warmup,
+                               @Value("${fueltracker.anomaly.max-flagged:10000}") int maxFlagged) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("fueltracker.anomaly.alpha must be in (0, 1]");
+        }
+        this.carRepository = carRepository;
+        this.fuelEntryRepository = fuelEntryRepository;
+        this.alpha = alpha;
+        this.threshold = threshold;
+        this.warmup = Math.max(1, warmup);
+        this.flagged = new Flagged[Math.max(1, maxFlagged)];
+        this.consumptionAnomalies = counter(meterRegistry, CONSUMPTION);
+        this.priceAnomalies = counter(meterRegistry, PRICE_PER_LITER);
+        if (enabled) {
+            fuelEntryRepository.addListener(this);
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String metric) {
+        return Counter.builder("fueltracker.fuel.anomalies")
+                .description("Fill-ups flagged as anomalous")
+                .tag("metric", metric)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onEntriesAdded(long carId, List<FuelEntry> entries, FuelAggregate before, FuelAggregate after) {
+        CarStats car = stats.get(carId);
+        if (car == null) {
+            car = stats.computeIfAbsent(carId, id -> new CarStats());
+        }
+        List<Flagged> found = null;
+        synchronized (car) {
+            for (int i = 0; i < entries.size(); i++) {
+                FuelEntry entry = entries.get(i);
+                double consumption = fuelEntryRepository.getIntervalConsumption(carId, entry);
+                if (!Double.isNaN(consumption)) {
+                    found = check(carId, entry, CONSUMPTION, car.consumption, consumption, found);
+                }
+                found = check(carId, entry, PRICE_PER_LITER, car.pricePerLiter,
+                        entry.getPrice() / entry.getLiters(), found);
+            }
+        }
+        if (found != null) {
+            record(found);
+        }
+    }
+
+    /**
+     * Returns the most recently flagged fill-ups of all cars, newest first.
+     */
+    public List<FuelAnomalyResponse> getRecentAnomalies(int limit) {
+        return recent(null, limit);
+    }
+
+    /**
+     * Returns the car's most recently flagged fill-ups still held in memory, newest first.
+     */
+    public List<FuelAnomalyResponse> getRecentAnomalies(long carId, int limit) {
+        carRepository.findById(carId).orElseThrow(() -> new ResourceNotFoundException("Car not found: " + carId));
+        return recent(carId, limit);
+    }
+
+    private List<FuelAnomalyResponse> recent(Long carId, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        List<Flagged> matches = new ArrayList<>();
+        synchronized (flagged) {
+            long oldest = Math.max(0, flaggedCount - flagged.length);
+            for (long i = flaggedCount - 1; i >= oldest && matches.size() < limit; i--) {
+                Flagged anomaly = flagged[(int) (i % flagged.length)];
+                if (carId == null || anomaly.carId() == carId) {
+                    matches.add(anomaly);
+                }
+            }
+        }
+        List<FuelAnomalyResponse> responses = new ArrayList<>(matches.size());
+        for (Flagged anomaly : matches) {
+            FuelEntry entry = anomaly.entry();
+            responses.add(new FuelAnomalyResponse(anomaly.carId(), entry.getTimestamp(), entry.getLiters(),
+                    entry.getPrice(), entry.getOdometer(), anomaly.metric(), anomaly.value(), anomaly.expected(),
+                    anomaly.deviation()));
+        }
+        return responses;
+    }
+
+    /**
+     * Scores the value against the statistics, then folds it in. Called with the car's statistics locked.
+     */
+    private List<Flagged> check(long carId, FuelEntry entry, String metric, Ewma ewma, double value,
+                                List<Flagged> found) {
+        double expected = ewma.mean;
+        double spread = Math.max(Math.sqrt(ewma.variance), MIN_RELATIVE_SPREAD * Math.abs(expected));
+        double distance = Math.abs(value - expected);
+        double deviation = spread > 0 ? distance / spread : (distance > 0 ? Double.POSITIVE_INFINITY : 0);
+        if (ewma.samples < warmup || deviation <= threshold) {
+            ewma.add(value, alpha);
+            return found;
+        }
+        ewma.add(expected + Math.copySign(threshold * spread, value - expected), alpha);
+        if (found == null) {
+            found = new ArrayList<>(2);
+        }
+        found.add(new Flagged(carId, entry, metric, value, expected, deviation));
+        return found;
+    }
+
+    private void record(List<Flagged> found) {
+        synchronized (flagged) {
+            for (Flagged anomaly : found) {
+                flagged[(int) (flaggedCount++ % flagged.length)] = anomaly;
+            }
+        }
+        for (Flagged anomaly : found) {
+            (CONSUMPTION.equals(anomaly.metric()) ? consumptionAnomalies : priceAnomalies).increment();
+        }
+    }
+
+    private static final class CarStats {
+        final Ewma consumption = new Ewma();
+        final Ewma pricePerLiter = new Ewma();
+    }
+
+    /**
+     * Exponentially weighted mean and variance; the first value sets the mean.
+     */
+    private static final class Ewma {
+        double mean;
+        double variance;
+        long samples;
+
+        void add(double value, double alpha) {
+            if (samples++ == 0) {
+                mean = value;
+                return;
+            }
+            double diff = value - mean;
+            double increment = alpha * diff;
+            mean += increment;
+            variance = (1 - alpha) * (variance + diff * increment);
+        }
+    }
+
+    private record Flagged(long carId, FuelEntry entry, String metric, double value, double expected,
+                           double deviation) {
+    }
+}
@@ -0,0 +1,285 @@
+package com.codehills.fueltracker.cache;
+
+import com.codehills.fueltracker.format.PayloadFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Serialized response bodies per resource, id and format, each kept with the version it was built from and the
+ * strong ETag derived from that version. Only the newest version of a body is kept; a request for another version
+ * rebuilds and replaces it.
+ * <p>
+ * Nothing is locked: every resource and format has its own concurrent map keyed by id, and bodies are replaced with
+ * compare-and-set. A hit allocates nothing. The ETag is formatted once per version, into a per-thread buffer, and kept
+ * with the body; {@code If-None-Match} is compared against the version in place, without building the tag. Bodies are
+ * evicted with the CLOCK approximation of LRU: once they exceed {@code fueltracker.cache.max-bytes}, the write that
+ * crossed the bound moves a clock hand over all bodies, removing the ones not read since the hand last passed them and
+ * clearing the read mark of the others, until the bodies fit in seven eighths of the bound. The hand resumes where it
+ * stopped, so every body gets its second chance, and the slack means the next eviction waits for another eighth of the
+ * bound to be written. Bodies larger than an eighth of the bound are not cached at all.
+ * <p>
+ * ETags start with an epoch chosen at startup, so a tag issued by an earlier process never matches, even when
+ * an in-memory fleet has been rebuilt with the same ids and versions.
+ */
+@Component
+public class ResponseCache {
+
+    /**
+     * The cached resources. The car list has a single id, {@code 0}, which does not appear in its tags.
+     */
+    public enum Resource {
+        STATS("stats", true),
+        CARS("cars", false);
+
+        private final String tag;
+        private final boolean perId;
+
+        Resource(String tag, boolean perId) {
+            this.tag = tag;
+            this.perId = perId;
+        }
+    }
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(64));
+
+    private final long maxBytes;
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final ConcurrentHashMap<Long, Body>[][] bodies;
+    private final ConcurrentHashMap<Long, Body>[] clock;
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    // The clock hand: the map it is in and its position there. Only used by the thread that set evicting.
+    private int handMap;
+    private Iterator<Map.Entry<Long, Body>> hand = Collections.emptyIterator();
+
+    @SuppressWarnings("unchecked")
+    public ResponseCache(@Value("${fueltracker.cache.max-bytes:33554432}") long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.bodies = new ConcurrentHashMap[Resource.values().length][PayloadFormat.values().length];
+        this.clock = new ConcurrentHashMap[Resource.values().length * PayloadFormat.values().length];
+        for (int i = 0; i < clock.length; i++) {
+            clock[i] = new ConcurrentHashMap<>();
+            bodies[i / PayloadFormat.values().length][i % PayloadFormat.values().length] = clock[i];
+        }
+    }
+
+    /**
+     * Returns the cached body of the resource if it was built for {@code version}, otherwise builds it and stores
+     * it. Callers read the version before the data, so a body is never older than the version it is stored under.
+     */
+    public Body get(Resource resource, long id, PayloadFormat format, long version, Supplier<byte[]> loader) {
+        ConcurrentHashMap<Long, Body> map = bodies[resource.ordinal()][format.ordinal()];
+        Body body = map.get(id);
+        if (body != null && body.version == version) {
+            body.touch();
+            return body;
+        }
+        body = new Body(version, loader.get(), format(resource, id, format, version));
+        if (body.body.length <= maxBytes / 8) {
+            store(map, id, body);
+        }
+        return body;
+    }
+
+    /**
+     * Returns the quoted strong ETag for a version of a resource, the cached one when that version is cached.
+     */
+    public String etag(Resource resource, long id, PayloadFormat format, long version) {
+        Body body = bodies[resource.ordinal()][format.ordinal()].get(id);
+        return body != null && body.version == version ? body.etag : format(resource, id, format, version);
+    }
+
+    /**
+     * Returns whether a body of the resource is cached, without counting as a read.
+     */
+    boolean contains(Resource resource, long id, PayloadFormat format) {
+        return bodies[resource.ordinal()][format.ordinal()].containsKey(id);
+    }
+
+    long cachedBytes() {
+        return cachedBytes.get();
+    }
+
+    /**
+     * Returns whether an {@code If-None-Match} header value matches the ETag of a version of a resource, using
+     * the weak comparison the header calls for.
+     */
+    public boolean matches(String ifNoneMatch, Resource resource, long id, PayloadFormat format, long version) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        int length = ifNoneMatch.length();
+        int position = 0;
+        while (position < length) {
+            int start = skipSpaces(ifNoneMatch, position);
+            if (ifNoneMatch.startsWith("W/", start)) {
+                start += 2;
+            }
+            int end = ifNoneMatch.startsWith("*", start)
+                    ? start + 1
+                    : matchTag(ifNoneMatch, start, resource, id, format, version);
+            if (end >= 0) {
+                end = skipSpaces(ifNoneMatch, end);
+                if (end == length || ifNoneMatch.charAt(end) == ',') {
+                    return true;
+                }
+            }
+            int comma = ifNoneMatch.indexOf(',', start);
+            if (comma < 0) {
+                return false;
+            }
+            position = comma + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the end of the resource's quoted tag at {@code position}, or {@code -1} when another tag is there.
+     */
+    private int matchTag(String value, int position, Resource resource, long id, PayloadFormat format,
+                         long version) {
+        int at = expect(value, position, "\"");
+        at = expect(value, at, epoch);
+        at = expect(value, at, "-");
+        at = expect(value, at, resource.tag);
+        at = expect(value, at, "-");
+        if (resource.perId) {
+            at = expectNumber(value, at, id);
+            at = expect(value, at, "-");
+        }
+        at = expect(value, at, format.name());
+        at = expect(value, at, "-");
+        at = expectNumber(value, at, version);
+        return expect(value, at, "\"");
+    }
+
+    private static int expect(String value, int position, String token) {
+        return position >= 0 && value.startsWith(token, position) ? position + token.length() : -1;
+    }
+
+    // Tags are written without leading zeros, so a number only matches in its shortest form.
+    private static int expectNumber(String value, int position, long expected) {
+        if (position < 0) {
+            return -1;
+        }
+        int end = position;
+        long parsed = 0;
+        while (end < value.length() && end - position < 19 && value.charAt(end) >= '0' && value.charAt(end) <= '9') {
+            parsed = parsed * 10 + (value.charAt(end) - '0');
+            end++;
+        }
+        boolean shortest = end - position == 1 || (end > position && value.charAt(position) != '0');
+        return shortest && parsed == expected ? end : -1;
+    }
+
+    private static int skipSpaces(String value, int position) {
+        while (position < value.length() && Character.isWhitespace(value.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private String format(Resource resource, long id, PayloadFormat format, long version) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.append('"').append(epoch).append('-').append(resource.tag).append('-');
+        if (resource.perId) {
+            buffer.append(id).append('-');
+        }
+        return buffer.append(format.name()).append('-').append(version).append('"').toString();
+    }
+
+    /**
+     * Stores the body unless a newer version already is, then evicts if the bound is exceeded.
+     */
+    private void store(ConcurrentHashMap<Long, Body> map, long id, Body body) {
+        Body previous = map.get(id);
+        while (previous == null || previous.version <= body.version) {
+            boolean stored = previous == null ? map.putIfAbsent(id, body) == null : map.replace(id, previous, body);
+            if (stored) {
+                cachedBytes.addAndGet(body.body.length - (previous != null ? previous.body.length : 0));
+                if (cachedBytes.get() > maxBytes && evicting.compareAndSet(false, true)) {
+                    try {
+                        evict();
+                    } finally {
+                        evicting.set(false);
+                    }
+                }
+                return;
+            }
+            previous = map.get(id);
+        }
+    }
+
+    /**
+     * Advances the clock hand until the bodies fit in seven eighths of the bound. A body read since the hand last
+     * passed it is spared once, so two turns of the clock always free enough; the hand stops after three in case
+     * writers keep adding bodies behind it.
+     */
+    private void evict() {
+        long target = maxBytes - maxBytes / 8;
+        int turns = 0;
+        while (cachedBytes.get() > target) {
+            if (!hand.hasNext()) {
+                handMap = (handMap + 1) % clock.length;
+                hand = clock[handMap].entrySet().iterator();
+                if (handMap == 0 && ++turns > 3) {
+                    return;
+                }
+                continue;
+            }
+            Map.Entry<Long, Body> entry = hand.next();
+            Body body = entry.getValue();
+            if (!body.spare() && clock[handMap].remove(entry.getKey(), body)) {
+                cachedBytes.addAndGet(-body.body.length);
+            }
+        }
+    }
+
+    /**
+     * A serialized body with the version it was built from and its ETag.
+     */
+    public static final class Body {
+        private final long version;
+        private final byte[] body;
+        private final String etag;
+        private volatile boolean read;
+
+        Body(long version, byte[] body, String etag) {
+            this.version = version;
+            this.body = body;
+            this.etag = etag;
+        }
+
+        public byte[] body() {
+            return body;
+        }
+
+        public String etag() {
+            return etag;
+        }
+
+        // Only written when it changes, so hits on a popular body do not keep invalidating its cache line.
+        private void touch() {
+            if (!read) {
+                read = true;
+            }
+        }
+
+        private boolean spare() {
+            if (read) {
+                read = false;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.codehills.fueltracker.config;
+
+import com.codehills.fueltracker.format.PayloadFormat;
+import com.codehills.fueltracker.format.PayloadMappers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Lets every controller route read and write Smile and CBOR next to JSON, chosen by {@code Content-Type} and
+ * {@code Accept}, using the mappers in {@link PayloadMappers}.
+ */
+@Configuration
+public class PayloadFormatConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(PayloadMappers payloadMappers) {
+        return new MappingJackson2SmileHttpMessageConverter(payloadMappers.forFormat(PayloadFormat.SMILE));
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(PayloadMappers payloadMappers) {
+        return new MappingJackson2CborHttpMessageConverter(payloadMappers.forFormat(PayloadFormat.CBOR));
+    }
+}
@@ -0,0 +1,42 @@
+package com.codehills.fueltracker.config;
+
+import com.codehills.fueltracker.exception.ReadOnlyException;
+import com.codehills.fueltracker.replication.FeedFollower;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Makes a follower read-only: every API request other than a read is rejected with {@code 405}, since writes
+ * must go to the leader and reach the follower through the change feed.
+ */
+@Configuration
+public class ReplicationConfig implements WebMvcConfigurer {
+    private final FeedFollower feedFollower;
+
+    public ReplicationConfig(FeedFollower feedFollower) {
+        this.feedFollower = feedFollower;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!feedFollower.isEnabled()) {
+            return;
+        }
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                HttpMethod method = HttpMethod.valueOf(request.getMethod());
+                if (method != HttpMethod.GET && method != HttpMethod.HEAD && method != HttpMethod.OPTIONS) {
+                    throw new ReadOnlyException("This instance is a read-only follower of "
+                            + feedFollower.getLeaderUrl() + "; send writes to the leader");
+                }
+                return true;
+            }
+        }).addPathPatterns("/api/**");
+    }
+}
@@ -1,8 +1,11 @@
 package com.codehills.fueltracker.config;
 
+import com.codehills.fueltracker.cache.ResponseCache;
+import com.codehills.fueltracker.format.PayloadMappers;
+import com.codehills.fueltracker.metrics.ErrorMetrics;
 import com.codehills.fueltracker.service.CarService;
 import com.codehills.fueltracker.servlet.FuelStatsServlet;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,8 +14,10 @@ import org.springframework.context.annotation.Configuration;
 public class ServletConfig {
 
     @Bean
-    public FuelStatsServlet fuelStatsServlet(CarService carService, ObjectMapper objectMapper) {
-        return new FuelStatsServlet(carService, objectMapper);
+    public FuelStatsServlet fuelStatsServlet(CarService carService, ResponseCache responseCache,
+                                             PayloadMappers payloadMappers, MeterRegistry meterRegistry,
+                                             ErrorMetrics errorMetrics) {
+        return new FuelStatsServlet(carService, responseCache, payloadMappers, meterRegistry, errorMetrics);
     }
 
     @Bean
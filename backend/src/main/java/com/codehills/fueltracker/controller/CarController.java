@@ -1,22 +1,46 @@
 package com.codehills.fueltracker.controller;
 
+import com.codehills.fueltracker.anomaly.FuelAnomalyDetector;
+import com.codehills.fueltracker.cache.ResponseCache;
+import com.codehills.fueltracker.dto.BulkFuelEntryResponse;
+import com.codehills.fueltracker.dto.CarPageResponse;
 import com.codehills.fueltracker.dto.CarRequest;
 import com.codehills.fueltracker.dto.CarResponse;
+import com.codehills.fueltracker.dto.ConsumptionPointResponse;
+import com.codehills.fueltracker.dto.FuelAnomalyResponse;
 import com.codehills.fueltracker.dto.FuelEntryRequest;
 import com.codehills.fueltracker.dto.FuelEntryResponse;
-import com.codehills.fueltracker.dto.FuelStatsResponse;
+import com.codehills.fueltracker.dto.FuelIntervalsResponse;
+import com.codehills.fueltracker.dto.FuelWindowStatsResponse;
+import com.codehills.fueltracker.format.PayloadFormat;
+import com.codehills.fueltracker.format.PayloadMappers;
+import com.codehills.fueltracker.repository.CarFilter;
 import com.codehills.fueltracker.service.CarService;
+import com.codehills.fueltracker.service.FuelIngestService;
+import com.codehills.fueltracker.stream.FuelStatsStream;
+import com.fasterxml.jackson.core.JsonGenerator;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -24,9 +48,21 @@ import java.util.List;
 public class CarController {
 
     private final CarService carService;
+    private final FuelIngestService fuelIngestService;
+    private final PayloadMappers payloadMappers;
+    private final ResponseCache responseCache;
+    private final FuelStatsStream fuelStatsStream;
+    private final FuelAnomalyDetector fuelAnomalyDetector;
 
-    public CarController(CarService carService) {
+    public CarController(CarService carService, FuelIngestService fuelIngestService, PayloadMappers payloadMappers,
+                         ResponseCache responseCache, FuelStatsStream fuelStatsStream,
+                         FuelAnomalyDetector fuelAnomalyDetector) {
         this.carService = carService;
+        this.fuelIngestService = fuelIngestService;
+        this.payloadMappers = payloadMappers;
+        this.responseCache = responseCache;
+        this.fuelStatsStream = fuelStatsStream;
+        this.fuelAnomalyDetector = fuelAnomalyDetector;
     }
 
     @PostMapping
@@ -39,9 +75,58 @@ public class CarController {
         return ResponseEntity.created(location).body(response);
     }
 
+    /**
+     * Returns all cars. Answers {@code 304} from the fleet version alone when the client's ETag is current.
+     */
     @GetMapping
-    public List<CarResponse> getCars() {
-        return carService.getAllCars();
+    public ResponseEntity<byte[]> getCars(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                          String ifNoneMatch) {
+        PayloadFormat format = PayloadFormat.negotiate(accept);
+        long version = carService.getCarsVersion();
+        if (responseCache.matches(ifNoneMatch, ResponseCache.Resource.CARS, 0, format, version)) {
+            return notModified(responseCache.etag(ResponseCache.Resource.CARS, 0, format, version));
+        }
+        ResponseCache.Body cached = responseCache.get(ResponseCache.Resource.CARS, 0, format, version,
+                () -> payloadMappers.write(format, carService.getAllCars()));
+        return ResponseEntity.ok().eTag(cached.etag()).varyBy(HttpHeaders.ACCEPT).contentType(format.mediaType())
+                .body(cached.body());
+    }
+
+    @GetMapping("/page")
+    public CarPageResponse getCarPage(@RequestParam(value = "after", defaultValue = "0") long after,
+                                      @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                      @RequestParam(value = "brand", required = false) String brand,
+                                      @RequestParam(value = "model", required = false) String model,
+                                      @RequestParam(value = "yearFrom", required = false) Integer yearFrom,
+                                      @RequestParam(value = "yearTo", required = false) Integer yearTo) {
+        return carService.getCarPage(toFilter(brand, model, yearFrom, yearTo), after, limit);
+    }
+
+    /**
+     * Streams cars as NDJSON, or as a sequence of Smile or CBOR values when the client accepts one of those.
+     */
+    @GetMapping(value = "/stream",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, PayloadFormat.SMILE_VALUE, PayloadFormat.CBOR_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamCars(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "brand", required = false) String brand,
+            @RequestParam(value = "model", required = false) String model,
+            @RequestParam(value = "yearFrom", required = false) Integer yearFrom,
+            @RequestParam(value = "yearTo", required = false) Integer yearTo) {
+        CarFilter filter = toFilter(brand, model, yearFrom, yearTo);
+        carService.validateCarFilter(filter);
+        PayloadFormat format = PayloadFormat.negotiate(accept);
+        boolean lines = format == PayloadFormat.JSON;
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = payloadMappers.forFormat(format).getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                carService.forEachCar(filter, after, car -> writeCar(generator, car, lines));
+            }
+        };
+        MediaType contentType = lines ? MediaType.APPLICATION_NDJSON : format.mediaType();
+        return ResponseEntity.ok().contentType(contentType).body(body);
     }
 
     @PostMapping("/{id}/fuel")
@@ -51,8 +136,103 @@ public class CarController {
         return ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentRequest().build().toUri()).body(response);
     }
 
+    @GetMapping("/{id}/fuel")
+    public List<FuelEntryResponse> getFuel(@PathVariable("id") long carId,
+                                           @RequestParam(value = "from", required = false) Instant from,
+                                           @RequestParam(value = "to", required = false) Instant to) {
+        return carService.getFuelEntries(carId, from, to);
+    }
+
+    @PostMapping(path = "/fuel/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            PayloadFormat.SMILE_VALUE, PayloadFormat.CBOR_VALUE})
+    public BulkFuelEntryResponse addFuelBulk(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                             InputStream body) {
+        return fuelIngestService.ingest(body, PayloadFormat.forContentType(contentType));
+    }
+
+    /**
+     * Returns a car's fuel stats. Answers {@code 304} from the car's version alone when the client's ETag is
+     * current; the body is shared with the servlet endpoint.
+     */
     @GetMapping("/{id}/fuel/stats")
-    public FuelStatsResponse getFuelStats(@PathVariable("id") long carId) {
-        return carService.getFuelStats(carId);
+    public ResponseEntity<byte[]> getFuelStats(@PathVariable("id") long carId,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                               String ifNoneMatch) {
+        PayloadFormat format = PayloadFormat.negotiate(accept);
+        long version = carService.getFuelStatsVersion(carId);
+        if (responseCache.matches(ifNoneMatch, ResponseCache.Resource.STATS, carId, format, version)) {
+            return notModified(responseCache.etag(ResponseCache.Resource.STATS, carId, format, version));
+        }
+        ResponseCache.Body cached = responseCache.get(ResponseCache.Resource.STATS, carId, format, version,
+                () -> payloadMappers.write(format, carService.getFuelStats(carId)));
+        return ResponseEntity.ok().eTag(cached.etag()).varyBy(HttpHeaders.ACCEPT).contentType(format.mediaType())
+                .body(cached.body());
+    }
+
+    /**
+     * Streams the fuel stats of one or more cars as Server-Sent Events: the current stats of each car, then a
+     * {@code stats} event whenever they change. Give the cars as repeated or comma-separated {@code carId}s.
+     */
+    @GetMapping(value = "/fuel/stats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFuelStats(@RequestParam("carId") List<Long> carIds) {
+        return fuelStatsStream.subscribe(carIds);
+    }
+
+    @GetMapping("/{id}/fuel/stats/window")
+    public FuelWindowStatsResponse getWindowStats(@PathVariable("id") long carId,
+                                                  @RequestParam(value = "days", required = false) Integer days,
+                                                  @RequestParam(value = "from", required = false) Instant from,
+                                                  @RequestParam(value = "to", required = false) Instant to) {
+        return carService.getWindowStats(carId, days, from, to);
+    }
+
+    @GetMapping("/{id}/fuel/consumption")
+    public List<ConsumptionPointResponse> getConsumption(@PathVariable("id") long carId,
+                                                         @RequestParam(value = "window", defaultValue = "1") int window,
+                                                         @RequestParam(value = "from", required = false) Instant from,
+                                                         @RequestParam(value = "to", required = false) Instant to) {
+        return carService.getConsumptionSeries(carId, window, from, to);
+    }
+
+    @GetMapping("/{id}/fuel/intervals")
+    public FuelIntervalsResponse getIntervals(@PathVariable("id") long carId,
+                                              @RequestParam(value = "from", required = false) Instant from,
+                                              @RequestParam(value = "to", required = false) Instant to) {
+        return carService.getFuelIntervals(carId, from, to);
+    }
+
+    @GetMapping("/{id}/fuel/anomalies")
+    public List<FuelAnomalyResponse> getAnomalies(@PathVariable("id") long carId,
+                                                  @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return fuelAnomalyDetector.getRecentAnomalies(carId, limit);
+    }
+
+    private static ResponseEntity<byte[]> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+    }
+
+    private static CarFilter toFilter(String brand, String model, Integer yearFrom, Integer yearTo) {
+        return new CarFilter(blankToNull(brand), blankToNull(model), yearFrom, yearTo);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static void writeCar(JsonGenerator generator, CarResponse car, boolean lines) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("id", car.getId());
+            generator.writeStringField("brand", car.getBrand());
+            generator.writeStringField("model", car.getModel());
+            generator.writeNumberField("year", car.getYear());
+            generator.writeEndObject();
+            if (lines) {
+                generator.writeRaw('\n');
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
     }
 }
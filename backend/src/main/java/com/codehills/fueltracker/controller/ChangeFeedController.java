@@ -0,0 +1,67 @@
+package com.codehills.fueltracker.controller;
+
+import com.codehills.fueltracker.dto.ChangeBatchResponse;
+import com.codehills.fueltracker.format.PayloadFormat;
+import com.codehills.fueltracker.replication.ChangeFeed;
+import com.codehills.fueltracker.service.ChangeFeedService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeFeedController {
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeedController.class);
+
+    private final ChangeFeedService changeFeedService;
+
+    public ChangeFeedController(ChangeFeedService changeFeedService) {
+        this.changeFeedService = changeFeedService;
+    }
+
+    /**
+     * Returns the changes starting at {@code from}. When there are none yet, the request is held open for up to
+     * {@code waitMillis} and answered as soon as the next change is published.
+     */
+    @GetMapping
+    public DeferredResult<ChangeBatchResponse> getChanges(
+            @RequestParam(value = "from", defaultValue = "0") long from,
+            @RequestParam(value = "limit", defaultValue = "1000") int limit,
+            @RequestParam(value = "waitMillis", defaultValue = "0") long waitMillis,
+            @RequestParam(value = "epoch", required = false) String epoch) {
+        return changeFeedService.poll(epoch, from, limit, waitMillis);
+    }
+
+    /**
+     * Streams a copy of all cars and fuel entries as changes, NDJSON or a sequence of Smile or CBOR values. The
+     * feed epoch and the position to tail the feed from afterwards are sent as headers. Like the export, the copy
+     * is written on the request thread so it is not cut off by the timeout of asynchronous requests.
+     */
+    @GetMapping("/bootstrap")
+    public void getBootstrap(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                             HttpServletResponse response) {
+        PayloadFormat format = PayloadFormat.negotiate(accept);
+        long position = changeFeedService.bootstrapPosition();
+        response.setContentType(format == PayloadFormat.JSON
+                ? MediaType.APPLICATION_NDJSON_VALUE
+                : format.mediaType().toString());
+        response.setHeader(ChangeFeed.EPOCH_HEADER, changeFeedService.epoch());
+        response.setHeader(ChangeFeed.POSITION_HEADER, Long.toString(position));
+        try {
+            changeFeedService.writeBootstrap(response.getOutputStream(), format, position);
+        } catch (IOException | UncheckedIOException ex) {
+            log.debug("Bootstrap copy ended early: {}", ex.toString());
+        }
+    }
+}
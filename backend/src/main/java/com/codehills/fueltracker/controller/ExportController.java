@@ -0,0 +1,106 @@
+package com.codehills.fueltracker.controller;
+
+import com.codehills.fueltracker.format.ExportFormat;
+import com.codehills.fueltracker.service.FuelExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+    private static final Logger log = LoggerFactory.getLogger(ExportController.class);
+
+    private final FuelExportService fuelExportService;
+
+    public ExportController(FuelExportService fuelExportService) {
+        this.fuelExportService = fuelExportService;
+    }
+
+    /**
+     * Streams all cars and their fill-ups as CSV or NDJSON, gzip-compressed when the client accepts it with a
+     * non-zero quality. The export is written on the request thread straight to the response, so it is not cut off
+     * by the timeout of asynchronous requests however long it runs. A client that disconnects ends the export quietly, since the
+     * response is committed and it can resume from the last complete car.
+     */
+    @GetMapping("/fuel")
+    public void exportFuel(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                           @RequestParam(value = "format", defaultValue = "csv") String format,
+                           @RequestParam(value = "after", defaultValue = "0") long after,
+                           @RequestParam(value = "from", required = false) Instant from,
+                           @RequestParam(value = "to", required = false) Instant to,
+                           HttpServletResponse response) {
+        ExportFormat exportFormat = ExportFormat.forName(format);
+        fuelExportService.validate(after, from, to);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        response.setContentType(exportFormat.mediaType().toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("fuel-export." + exportFormat.extension())
+                .build()
+                .toString());
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        try {
+            fuelExportService.export(response.getOutputStream(), exportFormat, gzip, after, from, to);
+        } catch (IOException | UncheckedIOException ex) {
+            log.debug("Fuel export ended early: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Tells whether an {@code Accept-Encoding} header allows gzip: {@code gzip} or {@code x-gzip} listed with a
+     * quality above zero, or else a {@code *} with one. A quality that does not parse counts as zero, so a
+     * malformed header gets the uncompressed export, which is always acceptable.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzip = -1;
+        double wildcard = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("x-gzip") && !coding.equals("*")) {
+                continue;
+            }
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.length() > 1 && Character.toLowerCase(parameter.charAt(0)) == 'q'
+                        && parameter.charAt(1) == '=') {
+                    quality = quality(parameter.substring(2).trim());
+                }
+            }
+            if (coding.equals("*")) {
+                wildcard = Math.max(wildcard, quality);
+            } else {
+                gzip = Math.max(gzip, quality);
+            }
+        }
+        return (gzip >= 0 ? gzip : wildcard) > 0;
+    }
+
+    private static double quality(String value) {
+        try {
+            double quality = Double.parseDouble(value);
+            return quality >= 0 && quality <= 1 ? quality : 0;
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.codehills.fueltracker.controller;
+
+import com.codehills.fueltracker.anomaly.FuelAnomalyDetector;
+import com.codehills.fueltracker.dto.FleetStatsResponse;
+import com.codehills.fueltracker.dto.FuelAnomalyResponse;
+import com.codehills.fueltracker.service.FleetStatsService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/fleet")
+public class FleetController {
+
+    private final FleetStatsService fleetStatsService;
+    private final FuelAnomalyDetector fuelAnomalyDetector;
+
+    public FleetController(FleetStatsService fleetStatsService, FuelAnomalyDetector fuelAnomalyDetector) {
+        this.fleetStatsService = fleetStatsService;
+        this.fuelAnomalyDetector = fuelAnomalyDetector;
+    }
+
+    @GetMapping("/stats")
+    public FleetStatsResponse getFleetStats(
+            @RequestParam(value = "rollup", defaultValue = "false") boolean rollup) {
+        return fleetStatsService.getFleetStats(rollup);
+    }
+
+    @GetMapping("/anomalies")
+    public List<FuelAnomalyResponse> getAnomalies(
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return fuelAnomalyDetector.getRecentAnomalies(limit);
+    }
+}
@@ -0,0 +1,68 @@
+package com.codehills.fueltracker.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkFuelEntryResponse {
+    private long accepted;
+    private long rejected;
+    private List<Rejection> rejections = new ArrayList<>();
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(long accepted) {
+        this.accepted = accepted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<Rejection> getRejections() {
+        return rejections;
+    }
+
+    public void setRejections(List<Rejection> rejections) {
+        this.rejections = rejections;
+    }
+
+    public void addRejection(long index, String message) {
+        rejections.add(new Rejection(index, message));
+        rejected++;
+    }
+
+    public static class Rejection {
+        private long index;
+        private String message;
+
+        public Rejection() {
+        }
+
+        public Rejection(long index, String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        public long getIndex() {
+            return index;
+        }
+
+        public void setIndex(long index) {
+            this.index = index;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
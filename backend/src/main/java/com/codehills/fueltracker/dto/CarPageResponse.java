@@ -0,0 +1,32 @@
+package com.codehills.fueltracker.dto;
+
+import java.util.List;
+
+public class CarPageResponse {
+    private List<CarResponse> items;
+    private Long nextCursor;
+
+    public CarPageResponse() {
+    }
+
+    public CarPageResponse(List<CarResponse> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<CarResponse> getItems() {
+        return items;
+    }
+
+    public void setItems(List<CarResponse> items) {
+        this.items = items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,66 @@
+package com.codehills.fueltracker.dto;
+
+import java.util.List;
+
+/**
+ * Changes read from the feed starting at {@code from}. Ask for {@code next} to continue; {@code head} is the
+ * sequence number the leader's next change will get, so {@code head - next} changes were left unread.
+ */
+public class ChangeBatchResponse {
+    private String epoch;
+    private long from;
+    private long next;
+    private long head;
+    private List<ChangeResponse> changes;
+
+    public ChangeBatchResponse() {
+    }
+
+    public ChangeBatchResponse(String epoch, long from, long next, long head, List<ChangeResponse> changes) {
+        this.epoch = epoch;
+        this.from = from;
+        this.next = next;
+        this.head = head;
+        this.changes = changes;
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(String epoch) {
+        this.epoch = epoch;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public void setFrom(long from) {
+        this.from = from;
+    }
+
+    public long getNext() {
+        return next;
+    }
+
+    public void setNext(long next) {
+        this.next = next;
+    }
+
+    public long getHead() {
+        return head;
+    }
+
+    public void setHead(long head) {
+        this.head = head;
+    }
+
+    public List<ChangeResponse> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<ChangeResponse> changes) {
+        this.changes = changes;
+    }
+}
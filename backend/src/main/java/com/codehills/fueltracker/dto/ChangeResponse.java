@@ -0,0 +1,75 @@
+package com.codehills.fueltracker.dto;
+
+/**
+ * One change of the feed: {@code car} is set for a new car, {@code entry} and {@code entrySequence}, the entry's
+ * position in the car's append order, for a new fuel entry.
+ */
+public class ChangeResponse {
+    private long sequence;
+    private long publishedAt;
+    private long carId;
+    private CarResponse car;
+    private Long entrySequence;
+    private FuelEntryResponse entry;
+
+    public ChangeResponse() {
+    }
+
+    public ChangeResponse(long sequence, long publishedAt, long carId, CarResponse car, Long entrySequence,
+                          FuelEntryResponse entry) {
+        this.sequence = sequence;
+        this.publishedAt = publishedAt;
+        this.carId = carId;
+        this.car = car;
+        this.entrySequence = entrySequence;
+        this.entry = entry;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public long getPublishedAt() {
+        return publishedAt;
+    }
+
+    public void setPublishedAt(long publishedAt) {
+        this.publishedAt = publishedAt;
+    }
+
+    public long getCarId() {
+        return carId;
+    }
+
+    public void setCarId(long carId) {
+        this.carId = carId;
+    }
+
+    public CarResponse getCar() {
+        return car;
+    }
+
+    public void setCar(CarResponse car) {
+        this.car = car;
+    }
+
+    public Long getEntrySequence() {
+        return entrySequence;
+    }
+
+    public void setEntrySequence(Long entrySequence) {
+        this.entrySequence = entrySequence;
+    }
+
+    public FuelEntryResponse getEntry() {
+        return entry;
+    }
+
+    public void setEntry(FuelEntryResponse entry) {
+        this.entry = entry;
+    }
+}
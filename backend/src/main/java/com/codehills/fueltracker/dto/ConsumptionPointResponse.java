@@ -0,0 +1,63 @@
+package com.codehills.fueltracker.dto;
+
+import java.time.Instant;
+
+public class ConsumptionPointResponse {
+    private Instant timestamp;
+    private double odometer;
+    private double distanceKm;
+    private double consumptionPer100Km;
+    private double costPerKm;
+
+    public ConsumptionPointResponse() {
+    }
+
+    public ConsumptionPointResponse(Instant timestamp, double odometer, double distanceKm,
+                                    double consumptionPer100Km, double costPerKm) {
+        this.timestamp = timestamp;
+        this.odometer = odometer;
+        this.distanceKm = distanceKm;
+        this.consumptionPer100Km = consumptionPer100Km;
+        this.costPerKm = costPerKm;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public double getOdometer() {
+        return odometer;
+    }
+
+    public void setOdometer(double odometer) {
+        this.odometer = odometer;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+
+    public double getConsumptionPer100Km() {
+        return consumptionPer100Km;
+    }
+
+    public void setConsumptionPer100Km(double consumptionPer100Km) {
+        this.consumptionPer100Km = consumptionPer100Km;
+    }
+
+    public double getCostPerKm() {
+        return costPerKm;
+    }
+
+    public void setCostPerKm(double costPerKm) {
+        this.costPerKm = costPerKm;
+    }
+}
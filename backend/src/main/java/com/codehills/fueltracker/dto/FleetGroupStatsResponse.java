@@ -0,0 +1,81 @@
+package com.codehills.fueltracker.dto;
+
+public class FleetGroupStatsResponse {
+    private String key;
+    private long cars;
+    private long fillUps;
+    private double totalFuelLiters;
+    private double totalCost;
+    private double distanceKm;
+    private double averageConsumptionPer100Km;
+
+    public FleetGroupStatsResponse() {
+    }
+
+    public FleetGroupStatsResponse(String key, long cars, long fillUps, double totalFuelLiters, double totalCost,
+                                   double distanceKm, double averageConsumptionPer100Km) {
+        this.key = key;
+        this.cars = cars;
+        this.fillUps = fillUps;
+        this.totalFuelLiters = totalFuelLiters;
+        this.totalCost = totalCost;
+        this.distanceKm = distanceKm;
+        this.averageConsumptionPer100Km = averageConsumptionPer100Km;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getCars() {
+        return cars;
+    }
+
+    public void setCars(long cars) {
+        this.cars = cars;
+    }
+
+    public long getFillUps() {
+        return fillUps;
+    }
+
+    public void setFillUps(long fillUps) {
+        this.fillUps = fillUps;
+    }
+
+    public double getTotalFuelLiters() {
+        return totalFuelLiters;
+    }
+
+    public void setTotalFuelLiters(double totalFuelLiters) {
+        this.totalFuelLiters = totalFuelLiters;
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(double totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+
+    public double getAverageConsumptionPer100Km() {
+        return averageConsumptionPer100Km;
+    }
+
+    public void setAverageConsumptionPer100Km(double averageConsumptionPer100Km) {
+        this.averageConsumptionPer100Km = averageConsumptionPer100Km;
+    }
+}
@@ -0,0 +1,104 @@
+package com.codehills.fueltracker.dto;
+
+import java.util.List;
+
+public class FleetStatsResponse {
+    private long cars;
+    private long fillUps;
+    private double totalFuelLiters;
+    private double totalCost;
+    private double distanceKm;
+    private double averageConsumptionPer100Km;
+    private List<FleetGroupStatsResponse> byBrand;
+    private List<FleetGroupStatsResponse> byModel;
+    private List<FleetGroupStatsResponse> byYear;
+
+    public FleetStatsResponse() {
+    }
+
+    public FleetStatsResponse(long cars, long fillUps, double totalFuelLiters, double totalCost, double distanceKm,
+                              double averageConsumptionPer100Km, List<FleetGroupStatsResponse> byBrand,
+                              List<FleetGroupStatsResponse> byModel, List<FleetGroupStatsResponse> byYear) {
+        this.cars = cars;
+        this.fillUps = fillUps;
+        this.totalFuelLiters = totalFuelLiters;
+        this.totalCost = totalCost;
+        this.distanceKm = distanceKm;
+        this.averageConsumptionPer100Km = averageConsumptionPer100Km;
+        this.byBrand = byBrand;
+        this.byModel = byModel;
+        this.byYear = byYear;
+    }
+
+    public long getCars() {
+        return cars;
+    }
+
+    public void setCars(long cars) {
+        this.cars = cars;
+    }
+
+    public long getFillUps() {
+        return fillUps;
+    }
+
+    public void setFillUps(long fillUps) {
+        this.fillUps = fillUps;
+    }
+
+    public double getTotalFuelLiters() {
+        return totalFuelLiters;
+    }
+
+    public void setTotalFuelLiters(double totalFuelLiters) {
+        this.totalFuelLiters = totalFuelLiters;
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(double totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+
+    public double getAverageConsumptionPer100Km() {
+        return averageConsumptionPer100Km;
+    }
+
+    public void setAverageConsumptionPer100Km(double averageConsumptionPer100Km) {
+        this.averageConsumptionPer100Km = averageConsumptionPer100Km;
+    }
+
+    public List<FleetGroupStatsResponse> getByBrand() {
+        return byBrand;
+    }
+
+    public void setByBrand(List<FleetGroupStatsResponse> byBrand) {
+        this.byBrand = byBrand;
+    }
+
+    public List<FleetGroupStatsResponse> getByModel() {
+        return byModel;
+    }
+
+    public void setByModel(List<FleetGroupStatsResponse> byModel) {
+        this.byModel = byModel;
+    }
+
+    public List<FleetGroupStatsResponse> getByYear() {
+        return byYear;
+    }
+
+    public void setByYear(List<FleetGroupStatsResponse> byYear) {
+        this.byYear = byYear;
+    }
+}
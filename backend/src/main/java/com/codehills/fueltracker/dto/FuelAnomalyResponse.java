@@ -0,0 +1,103 @@
+package com.codehills.fueltracker.dto;
+
+import java.time.Instant;
+
+public class FuelAnomalyResponse {
+    private long carId;
+    private Instant timestamp;
+    private double liters;
+    private double price;
+    private double odometer;
+    private String metric;
+    private double value;
+    private double expected;
+    private double deviation;
+
+    public FuelAnomalyResponse() {
+    }
+
+    public FuelAnomalyResponse(long carId, Instant timestamp, double liters, double price, double odometer,
+                               String metric, double value, double expected, double deviation) {
+        this.carId = carId;
+        this.timestamp = timestamp;
+        this.liters = liters;
+        this.price = price;
+        this.odometer = odometer;
+        this.metric = metric;
+        this.value = value;
+        this.expected = expected;
+        this.deviation = deviation;
+    }
+
+    public long getCarId() {
+        return carId;
+    }
+
+    public void setCarId(long carId) {
+        this.carId = carId;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public double getLiters() {
+        return liters;
+    }
+
+    public void setLiters(double liters) {
+        this.liters = liters;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public double getOdometer() {
+        return odometer;
+    }
+
+    public void setOdometer(double odometer) {
+        this.odometer = odometer;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    public void setMetric(String metric) {
+        this.metric = metric;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public void setValue(double value) {
+        this.value = value;
+    }
+
+    public double getExpected() {
+        return expected;
+    }
+
+    public void setExpected(double expected) {
+        this.expected = expected;
+    }
+
+    public double getDeviation() {
+        return deviation;
+    }
+
+    public void setDeviation(double deviation) {
+        this.deviation = deviation;
+    }
+}
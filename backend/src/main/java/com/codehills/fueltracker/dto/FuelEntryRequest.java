@@ -4,6 +4,8 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 
+import java.time.Instant;
+
 public class FuelEntryRequest {
     @NotNull
     @Positive(message = "liters must be greater than zero")
@@ -17,6 +19,9 @@ public class FuelEntryRequest {
     @Positive(message = "odometer must be greater than zero")
     private Double odometer;
 
+    // Optional; fill-ups without a timestamp are recorded at the time they arrive.
+    private Instant timestamp;
+
     public Double getLiters() {
         return liters;
     }
@@ -40,4 +45,12 @@ public class FuelEntryRequest {
     public void setOdometer(Double odometer) {
         this.odometer = odometer;
     }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
 }
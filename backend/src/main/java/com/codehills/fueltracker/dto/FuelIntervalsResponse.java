@@ -0,0 +1,64 @@
+package com.codehills.fueltracker.dto;
+
+import java.util.List;
+
+public class FuelIntervalsResponse {
+    private List<ConsumptionPointResponse> intervals;
+    private long intervalCount;
+    private Double minConsumptionPer100Km;
+    private Double maxConsumptionPer100Km;
+    private Double medianConsumptionPer100Km;
+
+    public FuelIntervalsResponse() {
+    }
+
+    public FuelIntervalsResponse(List<ConsumptionPointResponse> intervals, long intervalCount,
+                                 Double minConsumptionPer100Km, Double maxConsumptionPer100Km,
+                                 Double medianConsumptionPer100Km) {
+        this.intervals = intervals;
+        this.intervalCount = intervalCount;
+        this.minConsumptionPer100Km = minConsumptionPer100Km;
+        this.maxConsumptionPer100Km = maxConsumptionPer100Km;
+        this.medianConsumptionPer100Km = medianConsumptionPer100Km;
+    }
+
+    public List<ConsumptionPointResponse> getIntervals() {
+        return intervals;
+    }
+
+    public void setIntervals(List<ConsumptionPointResponse> intervals) {
+        this.intervals = intervals;
+    }
+
+    public long getIntervalCount() {
+        return intervalCount;
+    }
+
+    public void setIntervalCount(long intervalCount) {
+        this.intervalCount = intervalCount;
+    }
+
+    public Double getMinConsumptionPer100Km() {
+        return minConsumptionPer100Km;
+    }
+
+    public void setMinConsumptionPer100Km(Double minConsumptionPer100Km) {
+        this.minConsumptionPer100Km = minConsumptionPer100Km;
+    }
+
+    public Double getMaxConsumptionPer100Km() {
+        return maxConsumptionPer100Km;
+    }
+
+    public void setMaxConsumptionPer100Km(Double maxConsumptionPer100Km) {
+        this.maxConsumptionPer100Km = maxConsumptionPer100Km;
+    }
+
+    public Double getMedianConsumptionPer100Km() {
+        return medianConsumptionPer100Km;
+    }
+
+    public void setMedianConsumptionPer100Km(Double medianConsumptionPer100Km) {
+        this.medianConsumptionPer100Km = medianConsumptionPer100Km;
+    }
+}
@@ -0,0 +1,40 @@
+package com.codehills.fueltracker.dto;
+
+public class FuelStatsUpdateResponse {
+    private long carId;
+    private long version;
+    private FuelStatsResponse stats;
+
+    public FuelStatsUpdateResponse() {
+    }
+
+    public FuelStatsUpdateResponse(long carId, long version, FuelStatsResponse stats) {
+        this.carId = carId;
+        this.version = version;
+        this.stats = stats;
+    }
+
+    public long getCarId() {
+        return carId;
+    }
+
+    public void setCarId(long carId) {
+        this.carId = carId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public FuelStatsResponse getStats() {
+        return stats;
+    }
+
+    public void setStats(FuelStatsResponse stats) {
+        this.stats = stats;
+    }
+}
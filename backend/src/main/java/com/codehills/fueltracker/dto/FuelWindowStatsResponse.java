@@ -0,0 +1,93 @@
+package com.codehills.fueltracker.dto;
+
+import java.time.Instant;
+
+public class FuelWindowStatsResponse {
+    private Instant from;
+    private Instant to;
+    private int fillUps;
+    private double totalFuelLiters;
+    private double totalCost;
+    private double distanceKm;
+    private double consumptionPer100Km;
+    private double costPerKm;
+
+    public FuelWindowStatsResponse() {
+    }
+
+    public FuelWindowStatsResponse(Instant from, Instant to, int fillUps, double totalFuelLiters, double totalCost,
+                                   double distanceKm, double consumptionPer100Km, double costPerKm) {
+        this.from = from;
+        this.to = to;
+        this.fillUps = fillUps;
+        this.totalFuelLiters = totalFuelLiters;
+        this.totalCost = totalCost;
+        this.distanceKm = distanceKm;
+        this.consumptionPer100Km = consumptionPer100Km;
+        this.costPerKm = costPerKm;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public void setFrom(Instant from) {
+        this.from = from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public void setTo(Instant to) {
+        this.to = to;
+    }
+
+    public int getFillUps() {
+        return fillUps;
+    }
+
+    public void setFillUps(int fillUps) {
+        this.fillUps = fillUps;
+    }
+
+    public double getTotalFuelLiters() {
+        return totalFuelLiters;
+    }
+
+    public void setTotalFuelLiters(double totalFuelLiters) {
+        this.totalFuelLiters = totalFuelLiters;
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(double totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+
+    public double getConsumptionPer100Km() {
+        return consumptionPer100Km;
+    }
+
+    public void setConsumptionPer100Km(double consumptionPer100Km) {
+        this.consumptionPer100Km = consumptionPer100Km;
+    }
+
+    public double getCostPerKm() {
+        return costPerKm;
+    }
+
+    public void setCostPerKm(double costPerKm) {
+        this.costPerKm = costPerKm;
+    }
+}
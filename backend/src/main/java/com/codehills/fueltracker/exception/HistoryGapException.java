@@ -0,0 +1,11 @@
+package com.codehills.fueltracker.exception;
+
+/**
+ * A restored fuel entry does not continue the history held for its car, because entries before it are missing
+ * or its car is unknown. Applying it anyway would silently give the car a wrong history.
+ */
+public class HistoryGapException extends RuntimeException {
+    public HistoryGapException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.codehills.fueltracker.exception;
+
+public class ResourceGoneException extends RuntimeException {
+    public ResourceGoneException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,80 @@
+package com.codehills.fueltracker.format;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Wire formats the API speaks: JSON text and the binary Smile and CBOR encodings of the same data model.
+ */
+public enum PayloadFormat {
+    JSON("JSON", MediaType.APPLICATION_JSON),
+    SMILE("Smile", new MediaType("application", "x-jackson-smile")),
+    CBOR("CBOR", MediaType.APPLICATION_CBOR);
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final String CBOR_VALUE = MediaType.APPLICATION_CBOR_VALUE;
+
+    private final String label;
+    private final MediaType mediaType;
+
+    PayloadFormat(String label, MediaType mediaType) {
+        this.label = label;
+        this.mediaType = mediaType;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Picks the response format from an {@code Accept} header: the highest-quality media type that covers one of
+     * the formats, preferring JSON for wildcards. Missing, malformed or unsupported headers fall back to JSON.
+     */
+    public static PayloadFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            return JSON;
+        }
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : accepted) {
+            for (PayloadFormat format : values()) {
+                if (type.includes(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * Returns the format of a request body from its {@code Content-Type}; anything that is not Smile or CBOR,
+     * including NDJSON, is read as JSON.
+     */
+    public static PayloadFormat forContentType(String contentType) {
+        if (contentType != null) {
+            try {
+                MediaType type = MediaType.parseMediaType(contentType);
+                for (PayloadFormat format : values()) {
+                    if (format.mediaType.isCompatibleWith(type)) {
+                        return format;
+                    }
+                }
+            } catch (InvalidMediaTypeException ex) {
+                return JSON;
+            }
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,42 @@
+package com.codehills.fueltracker.format;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+
+/**
+ * One {@link ObjectMapper} per {@link PayloadFormat}. The binary mappers are copies of the application's JSON
+ * mapper on a different factory, so all formats share its modules and settings.
+ */
+@Component
+public class PayloadMappers {
+    private final ObjectMapper json;
+    private final ObjectMapper smile;
+    private final ObjectMapper cbor;
+
+    public PayloadMappers(ObjectMapper objectMapper) {
+        this.json = objectMapper;
+        this.smile = objectMapper.copyWith(new SmileFactory());
+        this.cbor = objectMapper.copyWith(new CBORFactory());
+    }
+
+    public ObjectMapper forFormat(PayloadFormat format) {
+        return switch (format) {
+            case JSON -> json;
+            case SMILE -> smile;
+            case CBOR -> cbor;
+        };
+    }
+
+    public byte[] write(PayloadFormat format, Object value) {
+        try {
+            return forFormat(format).writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -1,43 +1,87 @@
 package com.codehills.fueltracker.handler;
 
 import com.codehills.fueltracker.exception.BadRequestException;
+import com.codehills.fueltracker.exception.ReadOnlyException;
+import com.codehills.fueltracker.exception.ResourceGoneException;
 import com.codehills.fueltracker.exception.ResourceNotFoundException;
+import com.codehills.fueltracker.metrics.ErrorMetrics;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.stream.Collectors;
 
 @RestControllerAdvice
 public class RestExceptionHandler {
+    private final ErrorMetrics errorMetrics;
+
+    public RestExceptionHandler(ErrorMetrics errorMetrics) {
+        this.errorMetrics = errorMetrics;
+    }
 
     @ExceptionHandler(ResourceNotFoundException.class)
-    public ResponseEntity<ErrorResponse> handleNotFound(ResourceNotFoundException ex) {
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(ex.getMessage()));
+    public ResponseEntity<ErrorResponse> handleNotFound(ResourceNotFoundException ex, WebRequest request) {
+        errorMetrics.notFound();
+        return error(HttpStatus.NOT_FOUND, ex.getMessage(), request);
     }
 
     @ExceptionHandler(BadRequestException.class)
-    public ResponseEntity<ErrorResponse> handleBadRequest(BadRequestException ex) {
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ErrorResponse(ex.getMessage()));
+    public ResponseEntity<ErrorResponse> handleBadRequest(BadRequestException ex, WebRequest request) {
+        errorMetrics.validationFailed();
+        return error(HttpStatus.BAD_REQUEST, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(ResourceGoneException.class)
+    public ResponseEntity<ErrorResponse> handleGone(ResourceGoneException ex, WebRequest request) {
+        return error(HttpStatus.GONE, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(ReadOnlyException.class)
+    public ResponseEntity<ErrorResponse> handleReadOnly(ReadOnlyException ex, WebRequest request) {
+        return error(HttpStatus.METHOD_NOT_ALLOWED, ex.getMessage(), request);
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<ErrorResponse> handleValidation(MethodArgumentNotValidException ex) {
+    public ResponseEntity<ErrorResponse> handleValidation(MethodArgumentNotValidException ex, WebRequest request) {
+        errorMetrics.validationFailed();
         String message = ex.getBindingResult()
                 .getFieldErrors()
                 .stream()
                 .map(FieldError::getDefaultMessage)
                 .collect(Collectors.joining("; "));
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ErrorResponse(message));
+        return error(HttpStatus.BAD_REQUEST, message, request);
+    }
+
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<ErrorResponse> handleTypeMismatch(MethodArgumentTypeMismatchException ex,
+                                                            WebRequest request) {
+        errorMetrics.validationFailed();
+        return error(HttpStatus.BAD_REQUEST, ex.getName() + " has an invalid value: " + ex.getValue(), request);
     }
 
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<ErrorResponse> handleGeneric(Exception ex) {
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new ErrorResponse("Unexpected error: " + ex.getMessage()));
+    public ResponseEntity<ErrorResponse> handleGeneric(Exception ex, WebRequest request) {
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + ex.getMessage(), request);
+    }
+
+    /**
+     * Errors are written in the negotiated format, except for event stream requests: events have no error
+     * format, so those get JSON whatever their {@code Accept} says.
+     */
+    private static ResponseEntity<ErrorResponse> error(HttpStatus status, String message, WebRequest request) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+            response.contentType(MediaType.APPLICATION_JSON);
+        }
+        return response.body(new ErrorResponse(message));
     }
 
     public record ErrorResponse(String message) {
@@ -0,0 +1,33 @@
+package com.codehills.fueltracker.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts requests and bulk records turned away because they were invalid or named an unknown car.
+ */
+@Component
+public class ErrorMetrics {
+    private final Counter validationFailures;
+    private final Counter notFound;
+
+    public ErrorMetrics(MeterRegistry meterRegistry) {
+        this.validationFailures = Counter.builder("fueltracker.errors")
+                .description("Rejected requests and bulk records")
+                .tag("type", "validation")
+                .register(meterRegistry);
+        this.notFound = Counter.builder("fueltracker.errors")
+                .description("Rejected requests and bulk records")
+                .tag("type", "not_found")
+                .register(meterRegistry);
+    }
+
+    public void validationFailed() {
+        validationFailures.increment();
+    }
+
+    public void notFound() {
+        notFound.increment();
+    }
+}
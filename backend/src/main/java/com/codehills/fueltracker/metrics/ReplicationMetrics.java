@@ -0,0 +1,48 @@
+package com.codehills.fueltracker.metrics;
+
+import com.codehills.fueltracker.replication.ChangeFeed;
+import com.codehills.fueltracker.replication.FeedFollower;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the change feed's position and, in follower mode, the replication lag. Values are read on scrape.
+ */
+@Component
+public class ReplicationMetrics implements MeterBinder {
+    private final ChangeFeed changeFeed;
+    private final FeedFollower feedFollower;
+
+    public ReplicationMetrics(ChangeFeed changeFeed, FeedFollower feedFollower) {
+        this.changeFeed = changeFeed;
+        this.feedFollower = feedFollower;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (changeFeed.isEnabled()) {
+            FunctionCounter.builder("fueltracker.feed.changes", changeFeed, ChangeFeed::head)
+                    .description("Changes published to the change feed")
+                    .register(registry);
+        }
+        if (!feedFollower.isEnabled()) {
+            return;
+        }
+        FunctionCounter.builder("fueltracker.follower.applied", feedFollower, FeedFollower::getAppliedChanges)
+                .description("Changes of the leader's feed applied by this follower")
+                .register(registry);
+        Gauge.builder("fueltracker.follower.lag.changes", feedFollower, FeedFollower::getLagChanges)
+                .description("Changes of the leader's feed not applied yet")
+                .register(registry);
+        Gauge.builder("fueltracker.follower.lag", feedFollower, FeedFollower::getLagSeconds)
+                .description("Age of the newest applied change while the leader has more")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("fueltracker.follower.stopped", feedFollower, follower -> follower.isStopped() ? 1 : 0)
+                .description("1 once following stopped because the leader no longer has the changes needed")
+                .register(registry);
+    }
+}
@@ -0,0 +1,51 @@
+package com.codehills.fueltracker.metrics;
+
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the repositories' own counters as meters. The values are read when the registry is scraped, so
+ * the append path only maintains the plain counters in the repositories.
+ */
+@Component
+public class StorageMetrics implements MeterBinder {
+    private final CarRepository carRepository;
+    private final FuelEntryRepository fuelEntryRepository;
+
+    public StorageMetrics(CarRepository carRepository, FuelEntryRepository fuelEntryRepository) {
+        this.carRepository = carRepository;
+        this.fuelEntryRepository = fuelEntryRepository;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("fueltracker.cars", carRepository, CarRepository::count)
+                .description("Number of cars")
+                .register(registry);
+        for (int shard = 0; shard < carRepository.shardCount(); shard++) {
+            int index = shard;
+            Gauge.builder("fueltracker.shard.cars", carRepository, repository -> repository.count(index))
+                    .description("Number of cars stored in a shard")
+                    .tag("shard", Integer.toString(shard))
+                    .register(registry);
+        }
+        Gauge.builder("fueltracker.fuel.entries", fuelEntryRepository, FuelEntryRepository::getEntryCount)
+                .description("Number of fuel entries across all cars")
+                .register(registry);
+        Gauge.builder("fueltracker.fuel.history.max", fuelEntryRepository, FuelEntryRepository::getLargestHistory)
+                .description("Number of fuel entries of the car with the longest history")
+                .register(registry);
+        FunctionTimer.builder("fueltracker.append.lock.wait", fuelEntryRepository,
+                        FuelEntryRepository::getLockWaitCount, FuelEntryRepository::getLockWaitNanos,
+                        TimeUnit.NANOSECONDS)
+                .description("Time appends spent waiting for a contended per-car append lock")
+                .register(registry);
+    }
+}
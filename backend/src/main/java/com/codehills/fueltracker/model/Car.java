@@ -1,15 +1,19 @@
 package com.codehills.fueltracker.model;
 
+/**
+ * A car. Brand and model are kept as {@link NameDictionary} codes and decoded on access, so cars of the same
+ * make share its strings.
+ */
 public class Car {
     private final long id;
-    private final String brand;
-    private final String model;
+    private final int brandCode;
+    private final int modelCode;
     private final int year;
 
     public Car(long id, String brand, String model, int year) {
         this.id = id;
-        this.brand = brand;
-        this.model = model;
+        this.brandCode = NameDictionary.BRANDS.encode(brand);
+        this.modelCode = NameDictionary.MODELS.encode(model);
         this.year = year;
     }
 
@@ -18,11 +22,19 @@ public class Car {
     }
 
     public String getBrand() {
-        return brand;
+        return NameDictionary.BRANDS.decode(brandCode);
     }
 
     public String getModel() {
-        return model;
+        return NameDictionary.MODELS.decode(modelCode);
+    }
+
+    public int getBrandCode() {
+        return brandCode;
+    }
+
+    public int getModelCode() {
+        return modelCode;
     }
 
     public int getYear() {
@@ -0,0 +1,172 @@
+package com.codehills.fueltracker.model;
+
+/**
+ * Immutable summary of a car's interval consumption figures: how many there are, their exact minimum and maximum,
+ * and their median estimated with the P² algorithm (Jain and Chlamtac), which tracks five markers instead of
+ * keeping the values. Like {@link FuelAggregate}, a new instance is produced for every change.
+ * <p>
+ * The first five values are kept exactly. After that the markers sit at the minimum, the lower quartile, the
+ * median, the upper quartile and the maximum, and each new value moves them along a piecewise-parabolic fit.
+ * A value can also be taken out again, which a backdated fill-up needs when it splits an existing interval; the
+ * caller then supplies the new exact minimum and maximum.
+ */
+public final class ConsumptionSketch {
+    private static final int MARKERS = 5;
+    // Marker heights, actual positions and desired positions share one array, so an update copies it once.
+    private static final int POSITIONS = MARKERS;
+    private static final int DESIRED = 2 * MARKERS;
+    private static final double[] INCREMENTS = {0.0, 0.25, 0.5, 0.75, 1.0};
+
+    public static final ConsumptionSketch EMPTY = new ConsumptionSketch(0, new double[3 * MARKERS]);
+
+    private final long count;
+    private final double[] markers;
+
+    private ConsumptionSketch(long count, double[] markers) {
+        this.count = count;
+        this.markers = markers;
+    }
+
+    /**
+     * Returns the sketch with one more value. {@code NaN}, an undefined interval, is ignored.
+     */
+    public ConsumptionSketch plus(double value) {
+        if (Double.isNaN(value)) {
+            return this;
+        }
+        double[] m = markers.clone();
+        if (count < MARKERS) {
+            int i = (int) count;
+            while (i > 0 && m[i - 1] > value) {
+                m[i] = m[i - 1];
+                i--;
+            }
+            m[i] = value;
+            if (count + 1 == MARKERS) {
+                for (int j = 0; j < MARKERS; j++) {
+                    m[POSITIONS + j] = j + 1;
+                    m[DESIRED + j] = j + 1;
+                }
+            }
+            return new ConsumptionSketch(count + 1, m);
+        }
+
+        int cell;
+        if (value < m[0]) {
+            m[0] = value;
+            cell = 0;
+        } else if (value >= m[MARKERS - 1]) {
+            m[MARKERS - 1] = value;
+            cell = MARKERS - 2;
+        } else {
+            cell = 0;
+            while (value >= m[cell + 1]) {
+                cell++;
+            }
+        }
+        for (int i = cell + 1; i < MARKERS; i++) {
+            m[POSITIONS + i]++;
+        }
+        for (int i = 0; i < MARKERS; i++) {
+            m[DESIRED + i] += INCREMENTS[i];
+        }
+        adjust(m);
+        return new ConsumptionSketch(count + 1, m);
+    }
+
+    /**
+     * Returns the sketch without a value it holds. {@code min} and {@code max} are the exact extremes of the
+     * values that remain; {@code NaN} is ignored.
+     */
+    public ConsumptionSketch minus(double value, double min, double max) {
+        if (Double.isNaN(value) || count == 0) {
+            return this;
+        }
+        double[] m = markers.clone();
+        if (count <= MARKERS) {
+            int nearest = 0;
+            for (int i = 1; i < count; i++) {
+                if (Math.abs(m[i] - value) < Math.abs(m[nearest] - value)) {
+                    nearest = i;
+                }
+            }
+            System.arraycopy(m, nearest + 1, m, nearest, (int) count - nearest - 1);
+            return new ConsumptionSketch(count - 1, m);
+        }
+
+        for (int i = 1; i < MARKERS; i++) {
+            if (m[i] >= value) {
+                m[POSITIONS + i]--;
+            }
+        }
+        // Markers must stay at distinct positions between 1 and the new count.
+        m[POSITIONS] = 1;
+        m[POSITIONS + MARKERS - 1] = count - 1;
+        for (int i = 1; i < MARKERS - 1; i++) {
+            m[POSITIONS + i] = Math.max(m[POSITIONS + i], m[POSITIONS + i - 1] + 1);
+        }
+        for (int i = MARKERS - 2; i > 0; i--) {
+            m[POSITIONS + i] = Math.min(m[POSITIONS + i], m[POSITIONS + i + 1] - 1);
+        }
+        m[0] = min;
+        m[MARKERS - 1] = max;
+        for (int i = 1; i < MARKERS - 1; i++) {
+            m[i] = Math.min(Math.max(m[i], min), max);
+        }
+        for (int i = 0; i < MARKERS; i++) {
+            m[DESIRED + i] -= INCREMENTS[i];
+        }
+        adjust(m);
+        return new ConsumptionSketch(count - 1, m);
+    }
+
+    /**
+     * Moves each middle marker by one position towards where it should be, if it drifted by a position or more.
+     */
+    private static void adjust(double[] m) {
+        for (int i = 1; i < MARKERS - 1; i++) {
+            double n = m[POSITIONS + i];
+            double below = m[POSITIONS + i - 1];
+            double above = m[POSITIONS + i + 1];
+            double drift = m[DESIRED + i] - n;
+            if ((drift >= 1 && above - n > 1) || (drift <= -1 && below - n < -1)) {
+                int step = drift > 0 ? 1 : -1;
+                double parabolic = m[i] + step / (above - below)
+                        * ((n - below + step) * (m[i + 1] - m[i]) / (above - n)
+                        + (above - n - step) * (m[i] - m[i - 1]) / (n - below));
+                if (m[i - 1] < parabolic && parabolic < m[i + 1]) {
+                    m[i] = parabolic;
+                } else {
+                    m[i] += step * (m[i + step] - m[i]) / (m[POSITIONS + i + step] - n);
+                }
+                m[POSITIONS + i] = n + step;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return count > 0 ? markers[0] : Double.NaN;
+    }
+
+    public double getMax() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return count < MARKERS ? markers[(int) count - 1] : markers[MARKERS - 1];
+    }
+
+    public double getMedian() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (count < MARKERS) {
+            int middle = (int) count / 2;
+            return count % 2 == 1 ? markers[middle] : (markers[middle - 1] + markers[middle]) / 2.0;
+        }
+        return markers[2];
+    }
+}
@@ -0,0 +1,56 @@
+package com.codehills.fueltracker.model;
+
+/**
+ * Immutable running totals over a car's fuel entries. A new instance is produced for every
+ * append, so readers always see a consistent set of values without scanning the history.
+ */
+public class FuelAggregate {
+    public static final FuelAggregate EMPTY =
+            new FuelAggregate(0, 0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+    private final long count;
+    private final double totalLiters;
+    private final double totalCost;
+    private final double minOdometer;
+    private final double maxOdometer;
+
+    public FuelAggregate(long count, double totalLiters, double totalCost, double minOdometer, double maxOdometer) {
+        this.count = count;
+        this.totalLiters = totalLiters;
+        this.totalCost = totalCost;
+        this.minOdometer = minOdometer;
+        this.maxOdometer = maxOdometer;
+    }
+
+    public FuelAggregate plus(FuelEntry entry) {
+        return new FuelAggregate(count + 1,
+                totalLiters + entry.getLiters(),
+                totalCost + entry.getPrice(),
+                Math.min(minOdometer, entry.getOdometer()),
+                Math.max(maxOdometer, entry.getOdometer()));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getTotalLiters() {
+        return totalLiters;
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    public double getMinOdometer() {
+        return minOdometer;
+    }
+
+    public double getMaxOdometer() {
+        return maxOdometer;
+    }
+
+    public double getDistance() {
+        return count >= 2 ? maxOdometer - minOdometer : 0.0;
+    }
+}
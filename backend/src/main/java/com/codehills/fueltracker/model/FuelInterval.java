@@ -0,0 +1,53 @@
+package com.codehills.fueltracker.model;
+
+/**
+ * The stretch driven between two consecutive fill-ups, ending at the later one. Its fuel is the later fill-up's,
+ * which refilled what was burned over the distance.
+ */
+public class FuelInterval {
+    private final long timestamp;
+    private final double odometer;
+    private final double distance;
+    private final double cost;
+    private final double consumptionPer100Km;
+
+    public FuelInterval(long timestamp, double odometer, double distance, double cost, double consumptionPer100Km) {
+        this.timestamp = timestamp;
+        this.odometer = odometer;
+        this.distance = distance;
+        this.cost = cost;
+        this.consumptionPer100Km = consumptionPer100Km;
+    }
+
+    /**
+     * Consumption in liters per 100 km of a fill-up's liters over the distance driven since the previous one, or
+     * {@code NaN} when the odometer did not advance.
+     */
+    public static double consumptionPer100Km(double liters, double distance) {
+        return distance > 0 ? liters / distance * 100.0 : Double.NaN;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getOdometer() {
+        return odometer;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public double getConsumptionPer100Km() {
+        return consumptionPer100Km;
+    }
+
+    public double getCostPerKm() {
+        return distance > 0 ? cost / distance : 0.0;
+    }
+}
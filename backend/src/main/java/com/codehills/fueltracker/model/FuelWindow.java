@@ -0,0 +1,79 @@
+package com.codehills.fueltracker.model;
+
+/**
+ * Totals over a contiguous run of a car's fill-ups in timestamp order.
+ * <p>
+ * {@code totalLiters} and {@code totalCost} cover every fill-up in the run. {@code consumedLiters} and
+ * {@code consumedCost} leave out the first fill-up, whose fuel was burned before the run's distance started,
+ * so they pair with {@code distance} for consumption figures.
+ */
+public class FuelWindow {
+    public static final FuelWindow EMPTY = new FuelWindow(0, 0.0, 0.0, 0.0, 0.0, 0.0, 0L, 0L, 0.0);
+
+    private final int fillUps;
+    private final double totalLiters;
+    private final double totalCost;
+    private final double consumedLiters;
+    private final double consumedCost;
+    private final double distance;
+    private final long firstTimestamp;
+    private final long lastTimestamp;
+    private final double lastOdometer;
+
+    public FuelWindow(int fillUps, double totalLiters, double totalCost, double consumedLiters, double consumedCost,
+                      double distance, long firstTimestamp, long lastTimestamp, double lastOdometer) {
+        this.fillUps = fillUps;
+        this.totalLiters = totalLiters;
+        this.totalCost = totalCost;
+        this.consumedLiters = consumedLiters;
+        this.consumedCost = consumedCost;
+        this.distance = distance;
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+        this.lastOdometer = lastOdometer;
+    }
+
+    public int getFillUps() {
+        return fillUps;
+    }
+
+    public double getTotalLiters() {
+        return totalLiters;
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    public double getConsumedLiters() {
+        return consumedLiters;
+    }
+
+    public double getConsumedCost() {
+        return consumedCost;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public double getLastOdometer() {
+        return lastOdometer;
+    }
+
+    public double getConsumptionPer100Km() {
+        return distance > 0 ? (consumedLiters / distance) * 100.0 : 0.0;
+    }
+
+    public double getCostPerKm() {
+        return distance > 0 ? consumedCost / distance : 0.0;
+    }
+}
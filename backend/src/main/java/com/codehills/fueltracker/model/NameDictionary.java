@@ -0,0 +1,90 @@
+package com.codehills.fueltracker.model;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns every distinct name a dense int code, so a million cars share a few hundred brand and model strings
+ * instead of holding a copy each. Every name also gets a folded code shared by all names that are equal ignoring
+ * case, which makes case-insensitive matching an integer comparison.
+ * <p>
+ * Codes are never reused or removed and are only valid within the process. Looking up a known name is one
+ * concurrent map read; a new name is added under a lock. Decoding is an array read without locking.
+ */
+public final class NameDictionary {
+    /** Brands of all cars in the process. */
+    public static final NameDictionary BRANDS = new NameDictionary();
+    /** Models of all cars in the process. */
+    public static final NameDictionary MODELS = new NameDictionary();
+
+    /** Returned by {@link #foldedCodeOf} for a name no car has. */
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final Map<String, Integer> foldedCodes = new ConcurrentHashMap<>();
+    // Only replaced under the lock; an entry is written before its code is published through the map.
+    private volatile Entry[] entries = new Entry[64];
+    private int size;
+
+    /**
+     * Returns the code of the name, adding the name if it is new.
+     */
+    public int encode(String name) {
+        Integer code = codes.get(name);
+        return code != null ? code : add(name);
+    }
+
+    /**
+     * Returns the name with the code.
+     */
+    public String decode(int code) {
+        return entries[code].name();
+    }
+
+    /**
+     * Returns the folded code of the name with the code.
+     */
+    public int foldedCode(int code) {
+        return entries[code].foldedCode();
+    }
+
+    /**
+     * Returns the folded code of any name equal to {@code name} ignoring case, or {@link #UNKNOWN} if there is
+     * none, without adding the name.
+     */
+    public int foldedCodeOf(String name) {
+        Integer foldedCode = foldedCodes.get(fold(name));
+        return foldedCode != null ? foldedCode : UNKNOWN;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized int add(String name) {
+        Integer existing = codes.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        int code = size;
+        Entry[] current = entries;
+        if (code == current.length) {
+            current = Arrays.copyOf(current, code * 2);
+        }
+        int foldedCode = foldedCodes.computeIfAbsent(fold(name), key -> foldedCodes.size());
+        current[code] = new Entry(name, foldedCode);
+        entries = current;
+        size++;
+        codes.put(name, code);
+        return code;
+    }
+
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(String name, int foldedCode) {
+    }
+}
@@ -0,0 +1,320 @@
+package com.codehills.fueltracker.persistence;
+
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelAggregate;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.codehills.fueltracker.repository.MappedColumns;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of all cars and their fuel entry columns, written periodically in the background and opened
+ * through {@link MappedByteBuffer} at startup.
+ * <p>
+ * Layout: a fixed header ({@code magic, version, walSegment, createdAt, columnsOffset, fileLength, crc32c}),
+ * a directory with one record per car (id, year, brand, model, entry count and running totals) and then, for
+ * every car with entries, its liters, price, odometer and timestamp columns back to back. The checksum covers
+ * everything after the header. {@code walSegment} is the first write-ahead log segment that may hold records
+ * not contained in the snapshot.
+ * <p>
+ * The previous snapshot is kept as a fallback and log segments are only deleted once they are older than it.
+ */
+@Component
+public class SnapshotStore {
+    static final int MAGIC = 0x46545350;
+    static final int VERSION = 1;
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+    private static final int HEADER_BYTES = 48;
+    private static final long MAX_WINDOW_BYTES = 1L << 30;
+    private static final String CURRENT = "snapshot.bin";
+    private static final String PREVIOUS = "snapshot.prev.bin";
+    private static final String TEMP = "snapshot.tmp";
+
+    private final Path directory;
+    private final WriteAheadLog writeAheadLog;
+    private final CarRepository carRepository;
+    private final FuelEntryRepository fuelEntryRepository;
+
+    public SnapshotStore(@Value("${fueltracker.snapshot.directory:}") String directory,
+                         WriteAheadLog writeAheadLog,
+                         CarRepository carRepository,
+                         FuelEntryRepository fuelEntryRepository) {
+        this.directory = directory == null || directory.isBlank() ? null : Path.of(directory);
+        this.writeAheadLog = writeAheadLog;
+        this.carRepository = carRepository;
+        this.fuelEntryRepository = fuelEntryRepository;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Loads the newest valid snapshot into the repositories and returns the write-ahead log segment replay
+     * has to start from. Corrupt, stale or incompatible snapshots are skipped.
+     */
+    public long load() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        for (String name : List.of(CURRENT, PREVIOUS)) {
+            Path path = directory.resolve(name);
+            if (!Files.exists(path)) {
+                continue;
+            }
+            try {
+                long walSegment = tryLoad(path);
+                if (walSegment >= 0) {
+                    return walSegment;
+                }
+            } catch (IOException ex) {
+                log.warn("Skipping unreadable snapshot {}", path, ex);
+            }
+        }
+        return 0;
+    }
+
+    @Scheduled(fixedDelayString = "${fueltracker.snapshot.interval:PT5M}",
+            initialDelayString = "${fueltracker.snapshot.interval:PT5M}")
+    public void writePeriodically() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException | RuntimeException ex) {
+            log.error("Failed to write snapshot", ex);
+        }
+    }
+
+    /**
+     * Writes a new snapshot, rotates the current one to the fallback slot and drops log segments older than
+     * the fallback.
+     */
+    public synchronized void write() throws IOException {
+        long started = System.nanoTime();
+        Files.createDirectories(directory);
+        long walSegment = writeAheadLog.rollSegment().join();
+        List<Car> cars = carRepository.findAllForSnapshot();
+        List<List<FuelEntry>> histories = new ArrayList<>(cars.size());
+        for (Car car : cars) {
+            histories.add(fuelEntryRepository.findByCarIdForSnapshot(car.getId()));
+        }
+
+        Path temp = directory.resolve(TEMP);
+        long entries = writeFile(temp, walSegment, cars, histories);
+
+        Path current = directory.resolve(CURRENT);
+        long retainFrom = Files.exists(current) ? readWalSegment(current) : -1;
+        if (retainFrom >= 0) {
+            Files.move(current, directory.resolve(PREVIOUS), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(temp, current, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (retainFrom >= 0) {
+            writeAheadLog.deleteSegmentsBefore(retainFrom);
+        }
+        log.info("Wrote snapshot of {} cars and {} fuel entries in {} ms",
+                cars.size(), entries, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private long writeFile(Path path, long walSegment, List<Car> cars, List<List<FuelEntry>> histories)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_BYTES);
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+
+            out.writeInt(cars.size());
+            for (int i = 0; i < cars.size(); i++) {
+                writeDirectoryEntry(out, cars.get(i), histories.get(i));
+            }
+            while ((HEADER_BYTES + out.size()) % Long.BYTES != 0) {
+                out.writeByte(0);
+            }
+            long columnsOffset = HEADER_BYTES + (long) out.size();
+
+            long entries = 0;
+            for (List<FuelEntry> history : histories) {
+                for (FuelEntry entry : history) {
+                    out.writeDouble(entry.getLiters());
+                }
+                for (FuelEntry entry : history) {
+                    out.writeDouble(entry.getPrice());
+                }
+                for (FuelEntry entry : history) {
+                    out.writeDouble(entry.getOdometer());
+                }
+                for (FuelEntry entry : history) {
+                    out.writeLong(entry.getTimestamp().toEpochMilli());
+                }
+                entries += history.size();
+            }
+            out.flush();
+
+            long fileLength = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(walSegment)
+                    .putLong(System.currentTimeMillis())
+                    .putLong(columnsOffset)
+                    .putLong(fileLength)
+                    .putLong(checksum(channel, fileLength))
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+            return entries;
+        }
+    }
+
+    private static void writeDirectoryEntry(DataOutputStream out, Car car, List<FuelEntry> history)
+            throws IOException {
+        FuelAggregate aggregate = FuelAggregate.EMPTY;
+        for (FuelEntry entry : history) {
+            aggregate = aggregate.plus(entry);
+        }
+        byte[] brand = car.getBrand().getBytes(StandardCharsets.UTF_8);
+        byte[] model = car.getModel().getBytes(StandardCharsets.UTF_8);
+        out.writeLong(car.getId());
+        out.writeInt(car.getYear());
+        out.writeInt(brand.length);
+        out.write(brand);
+        out.writeInt(model.length);
+        out.write(model);
+        out.writeInt(history.size());
+        out.writeDouble(aggregate.getTotalLiters());
+        out.writeDouble(aggregate.getTotalCost());
+        out.writeDouble(aggregate.getMinOdometer());
+        out.writeDouble(aggregate.getMaxOdometer());
+    }
+
+    /**
+     * Returns the snapshot's write-ahead log segment, or {@code -1} if the file was rejected.
+     */
+    private long tryLoad(Path path) throws IOException {
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                log.warn("Skipping truncated snapshot {}", path);
+                return -1;
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            int magic = header.getInt();
+            int version = header.getInt();
+            long walSegment = header.getLong();
+            header.getLong();
+            long columnsOffset = header.getLong();
+            long fileLength = header.getLong();
+            long crc = header.getLong();
+            if (magic != MAGIC || version != VERSION) {
+                log.warn("Skipping snapshot {} with unsupported format (magic {}, version {})", path, magic, version);
+                return -1;
+            }
+            if (fileLength != channel.size() || columnsOffset < HEADER_BYTES || columnsOffset > fileLength
+                    || checksum(channel, fileLength) != crc) {
+                log.warn("Skipping corrupt snapshot {}", path);
+                return -1;
+            }
+            long oldestSegment = writeAheadLog.oldestSegmentIndex();
+            if (oldestSegment > walSegment) {
+                log.warn("Skipping stale snapshot {}: log segments from {} onwards are no longer available",
+                        path, walSegment);
+                return -1;
+            }
+
+            ByteBuffer directoryBuffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+                    columnsOffset - HEADER_BYTES);
+            int carCount = directoryBuffer.getInt();
+            long entries = 0;
+            long offset = columnsOffset;
+            MappedByteBuffer window = null;
+            long windowStart = 0;
+            for (int i = 0; i < carCount; i++) {
+                long id = directoryBuffer.getLong();
+                int year = directoryBuffer.getInt();
+                String brand = readString(directoryBuffer);
+                String model = readString(directoryBuffer);
+                int count = directoryBuffer.getInt();
+                FuelAggregate aggregate = new FuelAggregate(count, directoryBuffer.getDouble(),
+                        directoryBuffer.getDouble(), directoryBuffer.getDouble(), directoryBuffer.getDouble());
+                carRepository.restore(new Car(id, brand, model, year));
+                if (count == 0) {
+                    continue;
+                }
+                long bytes = 4L * Long.BYTES * count;
+                if (window == null || offset + bytes > windowStart + window.capacity()) {
+                    windowStart = offset;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                            Math.min(Math.max(bytes, MAX_WINDOW_BYTES), fileLength - offset));
+                }
+                int position = (int) (offset - windowStart);
+                int columnBytes = Long.BYTES * count;
+                fuelEntryRepository.restoreColumns(id, aggregate, new MappedColumns(
+                        window.slice(position, columnBytes).asDoubleBuffer(),
+                        window.slice(position + columnBytes, columnBytes).asDoubleBuffer(),
+                        window.slice(position + 2 * columnBytes, columnBytes).asDoubleBuffer(),
+                        window.slice(position + 3 * columnBytes, columnBytes).asLongBuffer()));
+                offset += bytes;
+                entries += count;
+            }
+            log.info("Opened snapshot {} with {} cars and {} fuel entries in {} ms",
+                    path, carCount, entries, (System.nanoTime() - started) / 1_000_000);
+            return walSegment;
+        }
+    }
+
+    private static long readWalSegment(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return -1;
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                return -1;
+            }
+            header.getInt();
+            return header.getLong();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read snapshot header " + path, ex);
+        }
+    }
+
+    private static long checksum(FileChannel channel, long fileLength) throws IOException {
+        CRC32C crc = new CRC32C();
+        for (long position = HEADER_BYTES; position < fileLength; position += MAX_WINDOW_BYTES) {
+            long length = Math.min(MAX_WINDOW_BYTES, fileLength - position);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+        }
+        return crc.getValue();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
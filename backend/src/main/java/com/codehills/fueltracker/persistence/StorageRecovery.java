@@ -0,0 +1,71 @@
+package com.codehills.fueltracker.persistence;
+
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the in-memory repositories before the application starts serving requests: the newest valid snapshot
+ * is opened first, then the write-ahead log is replayed from the segment the snapshot was cut at. Snapshot-backed
+ * histories are copied onto the heap by a background thread afterwards.
+ * <p>
+ * Recovery runs once every singleton has been created, so repository listeners registered by other beans see
+ * the restored data, and it still finishes before the web server accepts requests. A fuel entry in the log that
+ * does not continue its car's history fails recovery, rather than starting with the car's entries shifted.
+ */
+@Component
+public class StorageRecovery implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(StorageRecovery.class);
+
+    private final SnapshotStore snapshotStore;
+    private final WriteAheadLog writeAheadLog;
+    private final CarRepository carRepository;
+    private final FuelEntryRepository fuelEntryRepository;
+
+    public StorageRecovery(SnapshotStore snapshotStore, WriteAheadLog writeAheadLog, CarRepository carRepository,
+                           FuelEntryRepository fuelEntryRepository) {
+        this.snapshotStore = snapshotStore;
+        this.writeAheadLog = writeAheadLog;
+        this.carRepository = carRepository;
+        this.fuelEntryRepository = fuelEntryRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long fromSegment = snapshotStore.load();
+        if (writeAheadLog.isEnabled()) {
+            replayLog(fromSegment);
+            writeAheadLog.start();
+        }
+        if (snapshotStore.isEnabled()) {
+            Thread materializer = new Thread(fuelEntryRepository::materializeAll, "snapshot-materializer");
+            materializer.setDaemon(true);
+            materializer.start();
+        }
+    }
+
+    private void replayLog(long fromSegment) {
+        long started = System.nanoTime();
+        long[] counts = new long[2];
+        writeAheadLog.replay(fromSegment, new WriteAheadLog.RecordHandler() {
+            @Override
+            public void onCar(Car car) {
+                carRepository.restore(car);
+                counts[0]++;
+            }
+
+            @Override
+            public void onFuelEntry(long carId, long sequence, FuelEntry entry) {
+                fuelEntryRepository.restoreEntry(carId, sequence, entry);
+                counts[1]++;
+            }
+        });
+        log.info("Replayed {} cars and {} fuel entries from the write-ahead log in {} ms",
+                counts[0], counts[1], (System.nanoTime() - started) / 1_000_000);
+    }
+}
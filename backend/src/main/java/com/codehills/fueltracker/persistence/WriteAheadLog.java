@@ -0,0 +1,532 @@
+package com.codehills.fueltracker.persistence;
+
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelEntry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Segmented, append-only log of car and fuel entry writes.
+ * <p>
+ * Callers enqueue a record and receive a future that completes once the record is on disk. A single writer
+ * thread drains everything queued since the previous flush, writes it in one go and issues a single fsync for
+ * the whole batch (group commit), so concurrent writers share the cost of each fsync.
+ * <p>
+ * Every record is framed as {@code [int length][int crc32c][payload]}. Replay stops at the first torn or
+ * corrupt frame, which is normally the unacknowledged tail of the last segment. Should it be in an earlier
+ * segment, the segments after it are moved to a quarantine directory, so they are never replayed behind the gap.
+ * Logging is disabled when {@code fueltracker.wal.directory} is empty and every append then completes immediately.
+ * <p>
+ * Once the log is stopped, or its writer thread has died, pending and new appends fail with an
+ * {@link IllegalStateException} instead of waiting forever. The log is fail-stop: the first failed write or
+ * fsync cuts the segment back to what was last made durable and closes the log, so no record is ever logged
+ * behind one that was lost and replay never meets a gap in a car's history.
+ */
+@Component
+public class WriteAheadLog {
+    static final byte CAR_RECORD = 1;
+    static final byte FUEL_ENTRY_RECORD = 2;
+    private static final byte ROLL_MARKER = -1;
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final int MAX_BATCH = 4096;
+    private static final int MAX_FRAME_BYTES = 1 << 16;
+    private static final long POLL_INTERVAL_MILLIS = 100;
+    private static final String QUARANTINE_PREFIX = "quarantine-";
+
+    private final Path directory;
+    private final long segmentSizeBytes;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    private final CRC32C crc = new CRC32C();
+
+    private FileChannel segment;
+    private long durableSize;
+    private long nextSegmentIndex;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+
+    public WriteAheadLog(@Value("${fueltracker.wal.directory:}") String directory,
+                         @Value("${fueltracker.wal.segment-size-bytes:67108864}") long segmentSizeBytes) {
+        this.directory = directory == null || directory.isBlank() ? null : Path.of(directory);
+        this.segmentSizeBytes = segmentSizeBytes;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Throws the exception an append would fail with if the log no longer accepts records, so callers can refuse
+     * a write before applying it anywhere else.
+     */
+    public void checkWritable() {
+        if (isEnabled() && closed) {
+            throw closedException();
+        }
+    }
+
+    public CompletableFuture<Void> appendCar(Car car) {
+        PendingRecord record = PendingRecord.car(car);
+        if (record.frameSize() - FRAME_HEADER_BYTES > MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("Car record too large for write-ahead log: " + car.getId());
+        }
+        return enqueue(record);
+    }
+
+    /**
+     * Logs a fuel entry. {@code sequence} is the entry's position in the car's append order and lets replay skip
+     * entries that are already contained in a snapshot.
+     */
+    public CompletableFuture<Void> appendFuelEntry(long carId, long sequence, FuelEntry entry) {
+        return enqueue(PendingRecord.fuelEntry(carId, sequence, entry));
+    }
+
+    /**
+     * Closes the current segment once everything queued before this call is durable. The returned future
+     * yields the index of the first segment that can contain records enqueued after this call.
+     */
+    public CompletableFuture<Long> rollSegment() {
+        if (!isEnabled()) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        PendingRecord marker = PendingRecord.roll();
+        submit(marker);
+        return marker.durable.thenApply(ignored -> marker.segmentIndex);
+    }
+
+    /**
+     * Removes segments that are fully covered by a snapshot.
+     */
+    public void deleteSegmentsBefore(long segmentIndex) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            for (Path path : listSegments()) {
+                if (segmentIndex(path) < segmentIndex) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Failed to delete write-ahead log segments before {}", segmentIndex, ex);
+        }
+    }
+
+    /**
+     * Returns the index of the oldest segment on disk, or {@code -1} if there is none.
+     */
+    public long oldestSegmentIndex() {
+        if (!isEnabled()) {
+            return -1;
+        }
+        try {
+            List<Path> segments = listSegments();
+            return segments.isEmpty() ? -1 : segmentIndex(segments.get(0));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to list write-ahead log segments in " + directory, ex);
+        }
+    }
+
+    /**
+     * Feeds every intact record in segments starting at {@code fromSegment} to the handler in log order.
+     * Must be called before {@link #start()}.
+     */
+    public void replay(long fromSegment, RecordHandler handler) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = listSegments();
+            for (int i = 0; i < segments.size(); i++) {
+                Path path = segments.get(i);
+                if (segmentIndex(path) >= fromSegment && !replaySegment(path, handler)) {
+                    quarantine(segments.subList(i + 1, segments.size()));
+                    break;
+                }
+            }
+            nextSegmentIndex = segments.isEmpty() ? 0 : segmentIndex(segments.get(segments.size() - 1)) + 1;
+            nextSegmentIndex = Math.max(nextSegmentIndex, fromSegment);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to replay write-ahead log in " + directory, ex);
+        }
+    }
+
+    /**
+     * Opens a fresh segment and starts the group-commit writer thread.
+     */
+    public synchronized void start() {
+        if (!isEnabled() || running) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            openNextSegment();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open write-ahead log in " + directory, ex);
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            closed = true;
+            failQueued();
+            return;
+        }
+        running = false;
+        writer.join();
+        closeSegment();
+    }
+
+    private CompletableFuture<Void> enqueue(PendingRecord record) {
+        if (!isEnabled()) {
+            return COMPLETED;
+        }
+        submit(record);
+        return record.durable;
+    }
+
+    /**
+     * Queues a record for the writer. A record queued while the writer shuts down is failed by whichever of the
+     * two threads sees it last, so it cannot be left behind in the queue.
+     */
+    private void submit(PendingRecord record) {
+        if (closed) {
+            record.durable.completeExceptionally(closedException());
+            return;
+        }
+        queue.add(record);
+        if (closed) {
+            failQueued();
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingRecord first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - batch.size());
+                try {
+                    writeBatch(batch);
+                } catch (IOException | RuntimeException ex) {
+                    log.error("Write-ahead log flush failed; further writes will fail", ex);
+                    fail(ex);
+                    batch.forEach(record -> record.durable.completeExceptionally(ex));
+                    batch.clear();
+                    return;
+                }
+                batch.forEach(record -> record.durable.complete(null));
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closed = true;
+            if (running && failure == null) {
+                log.error("Write-ahead log writer stopped unexpectedly; further writes will fail");
+            }
+            IllegalStateException failure = closedException();
+            batch.forEach(record -> record.durable.completeExceptionally(failure));
+            failQueued();
+        }
+    }
+
+    private void failQueued() {
+        IllegalStateException failure = closedException();
+        PendingRecord record;
+        while ((record = queue.poll()) != null) {
+            record.durable.completeExceptionally(failure);
+        }
+    }
+
+    private IllegalStateException closedException() {
+        Throwable cause = failure;
+        return cause != null
+                ? new IllegalStateException("Write-ahead log in " + directory + " failed", cause)
+                : new IllegalStateException("Write-ahead log in " + directory + " is closed");
+    }
+
+    /**
+     * Stops the log after a failed flush. The buffer is emptied and the segment cut back to its last durable
+     * length, so the frames of the failed batch are neither written later nor replayed at the next startup.
+     */
+    private void fail(Throwable cause) {
+        failure = cause;
+        closed = true;
+        buffer.clear();
+        try {
+            segment.truncate(durableSize);
+            segment.position(durableSize);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to cut write-ahead log segment back to {} bytes", durableSize, ex);
+        }
+    }
+
+    private void writeBatch(List<PendingRecord> batch) throws IOException {
+        for (PendingRecord record : batch) {
+            if (record.isRoll()) {
+                flushBuffer();
+                segment.force(false);
+                durableSize = segment.position();
+                closeSegment();
+                openNextSegment();
+                record.segmentIndex = nextSegmentIndex - 1;
+                continue;
+            }
+            if (buffer.remaining() < record.frameSize()) {
+                flushBuffer();
+            }
+            writeFrame(record);
+        }
+        flushBuffer();
+        segment.force(false);
+        durableSize = segment.position();
+        if (durableSize >= segmentSizeBytes) {
+            closeSegment();
+            openNextSegment();
+        }
+    }
+
+    private void writeFrame(PendingRecord record) {
+        int frameStart = buffer.position();
+        buffer.position(frameStart + FRAME_HEADER_BYTES);
+        int payloadStart = buffer.position();
+        record.encode(buffer);
+        int payloadLength = buffer.position() - payloadStart;
+
+        crc.reset();
+        crc.update(buffer.duplicate().position(payloadStart).limit(payloadStart + payloadLength));
+        buffer.putInt(frameStart, payloadLength);
+        buffer.putInt(frameStart + 4, (int) crc.getValue());
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private boolean replaySegment(Path path, RecordHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer in = ByteBuffer.allocateDirect(1 << 22);
+            long frameOffset = 0;
+            boolean endOfFile = false;
+            while (true) {
+                endOfFile = endOfFile || channel.read(in) < 0;
+                in.flip();
+                while (in.remaining() >= FRAME_HEADER_BYTES) {
+                    int payloadLength = in.getInt(in.position());
+                    if (payloadLength <= 0 || payloadLength > MAX_FRAME_BYTES) {
+                        return truncate(channel, path, frameOffset);
+                    }
+                    if (in.remaining() < FRAME_HEADER_BYTES + payloadLength) {
+                        break;
+                    }
+                    int checksum = in.getInt(in.position() + 4);
+                    ByteBuffer payload = in.slice(in.position() + FRAME_HEADER_BYTES, payloadLength);
+                    crc.reset();
+                    crc.update(payload.duplicate());
+                    if ((int) crc.getValue() != checksum) {
+                        return truncate(channel, path, frameOffset);
+                    }
+                    decode(payload, handler);
+                    in.position(in.position() + FRAME_HEADER_BYTES + payloadLength);
+                    frameOffset += FRAME_HEADER_BYTES + payloadLength;
+                }
+                if (endOfFile) {
+                    return !in.hasRemaining() || truncate(channel, path, frameOffset);
+                }
+                in.compact();
+            }
+        }
+    }
+
+    /**
+     * Moves segments that follow a torn one out of the log. Their records were acknowledged, but replaying them
+     * after the gap would append them in the wrong place, so they are kept aside for an operator to inspect.
+     */
+    private void quarantine(List<Path> segments) throws IOException {
+        if (segments.isEmpty()) {
+            return;
+        }
+        Path target = directory.resolve(QUARANTINE_PREFIX + System.currentTimeMillis());
+        Files.createDirectories(target);
+        for (Path path : segments) {
+            Files.move(path, target.resolve(path.getFileName()));
+        }
+        log.error("Write-ahead log segment before {} was torn; moved {} later segments to {}",
+                segments.get(0).getFileName(), segments.size(), target);
+    }
+
+    private boolean truncate(FileChannel channel, Path path, long validLength) throws IOException {
+        log.warn("Truncating torn write-ahead log tail in {} at offset {}", path, validLength);
+        channel.truncate(validLength);
+        return false;
+    }
+
+    private static void decode(ByteBuffer payload, RecordHandler handler) {
+        byte type = payload.get();
+        if (type == CAR_RECORD) {
+            long id = payload.getLong();
+            int year = payload.getInt();
+            String brand = readString(payload);
+            String model = readString(payload);
+            handler.onCar(new Car(id, brand, model, year));
+        } else if (type == FUEL_ENTRY_RECORD) {
+            long carId = payload.getLong();
+            long sequence = payload.getLong();
+            double liters = payload.getDouble();
+            double price = payload.getDouble();
+            double odometer = payload.getDouble();
+            long timestamp = payload.getLong();
+            handler.onFuelEntry(carId, sequence, new FuelEntry(liters, price, odometer, Instant.ofEpochMilli(timestamp)));
+        } else {
+            throw new IllegalStateException("Unknown write-ahead log record type: " + type);
+        }
+    }
+
+    private static String readString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getInt()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long segmentIndex(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private void openNextSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegmentIndex++, SEGMENT_SUFFIX));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        durableSize = 0;
+    }
+
+    private void closeSegment() {
+        try {
+            segment.close();
+        } catch (IOException ex) {
+            log.warn("Failed to close write-ahead log segment", ex);
+        }
+    }
+
+    /**
+     * Receives records during {@link #replay(long, RecordHandler)}.
+     */
+    public interface RecordHandler {
+        void onCar(Car car);
+
+        void onFuelEntry(long carId, long sequence, FuelEntry entry);
+    }
+
+    private static final class PendingRecord {
+        private final byte type;
+        private final Car car;
+        private final long carId;
+        private final long sequence;
+        private final FuelEntry entry;
+        private final byte[] brand;
+        private final byte[] model;
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+        private volatile long segmentIndex;
+
+        private PendingRecord(byte type, Car car, long carId, long sequence, FuelEntry entry) {
+            this.type = type;
+            this.car = car;
+            this.carId = carId;
+            this.sequence = sequence;
+            this.entry = entry;
+            this.brand = car != null ? car.getBrand().getBytes(StandardCharsets.UTF_8) : null;
+            this.model = car != null ? car.getModel().getBytes(StandardCharsets.UTF_8) : null;
+        }
+
+        static PendingRecord car(Car car) {
+            return new PendingRecord(CAR_RECORD, car, car.getId(), 0, null);
+        }
+
+        static PendingRecord fuelEntry(long carId, long sequence, FuelEntry entry) {
+            return new PendingRecord(FUEL_ENTRY_RECORD, null, carId, sequence, entry);
+        }
+
+        static PendingRecord roll() {
+            return new PendingRecord(ROLL_MARKER, null, 0, 0, null);
+        }
+
+        boolean isRoll() {
+            return type == ROLL_MARKER;
+        }
+
+        int frameSize() {
+            int payload = type == CAR_RECORD ? 1 + 8 + 4 + 4 + brand.length + 4 + model.length : 1 + 8 + 8 + 8 * 3 + 8;
+            return FRAME_HEADER_BYTES + payload;
+        }
+
+        void encode(ByteBuffer out) {
+            out.put(type);
+            if (type == CAR_RECORD) {
+                out.putLong(car.getId());
+                out.putInt(car.getYear());
+                out.putInt(brand.length);
+                out.put(brand);
+                out.putInt(model.length);
+                out.put(model);
+            } else {
+                out.putLong(carId);
+                out.putLong(sequence);
+                out.putDouble(entry.getLiters());
+                out.putDouble(entry.getPrice());
+                out.putDouble(entry.getOdometer());
+                out.putLong(entry.getTimestamp().toEpochMilli());
+            }
+        }
+    }
+}
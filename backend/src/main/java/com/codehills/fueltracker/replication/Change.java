@@ -0,0 +1,67 @@
+package com.codehills.fueltracker.replication;
+
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelEntry;
+
+/**
+ * One write in the {@link ChangeFeed}: a new car, or a fuel entry together with its position in the car's append
+ * order, which lets a follower skip entries it already holds.
+ */
+public final class Change {
+    private final long sequence;
+    private final long publishedAt;
+    private final Car car;
+    private final long carId;
+    private final long entrySequence;
+    private final FuelEntry entry;
+
+    private Change(long sequence, long publishedAt, Car car, long carId, long entrySequence, FuelEntry entry) {
+        this.sequence = sequence;
+        this.publishedAt = publishedAt;
+        this.car = car;
+        this.carId = carId;
+        this.entrySequence = entrySequence;
+        this.entry = entry;
+    }
+
+    static Change car(long sequence, long publishedAt, Car car) {
+        return new Change(sequence, publishedAt, car, car.getId(), 0, null);
+    }
+
+    static Change fuelEntry(long sequence, long publishedAt, long carId, long entrySequence, FuelEntry entry) {
+        return new Change(sequence, publishedAt, null, carId, entrySequence, entry);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Epoch milliseconds at which the change entered the feed.
+     */
+    public long getPublishedAt() {
+        return publishedAt;
+    }
+
+    /**
+     * The new car, or {@code null} for a fuel entry.
+     */
+    public Car getCar() {
+        return car;
+    }
+
+    public long getCarId() {
+        return carId;
+    }
+
+    public long getEntrySequence() {
+        return entrySequence;
+    }
+
+    /**
+     * The new fuel entry, or {@code null} for a car.
+     */
+    public FuelEntry getEntry() {
+        return entry;
+    }
+}
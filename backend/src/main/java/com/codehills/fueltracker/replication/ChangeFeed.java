@@ -0,0 +1,163 @@
+package com.codehills.fueltracker.replication;
+
+import com.codehills.fueltracker.exception.ResourceGoneException;
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelEntry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ordered, in-memory feed of every car and fuel entry written through the API, for follower replicas to tail.
+ * <p>
+ * Each write takes the next global sequence number and is stored in a ring of {@code fueltracker.feed.capacity}
+ * slots, overwriting the oldest change once the ring is full. The repositories publish under the same locks
+ * they log to the write-ahead log with, so the feed order keeps every car before its entries and every car's
+ * entries in append order. Publishing takes no lock of its own: a slot is readable once it holds the change
+ * with the slot's sequence, and a read stops at the first slot that does not, so readers never skip a change
+ * that took its number but is not stored yet.
+ * <p>
+ * Sequence numbers start at 0 with every process and are only meaningful together with the {@link #epoch()}
+ * chosen at startup. Writes restored from a snapshot, the write-ahead log or another feed are not published.
+ * <p>
+ * The feed is off by default: with a capacity of 0 publishing returns right away, so deployments without
+ * followers do not pay for the global sequence number and the allocation on every write.
+ */
+@Component
+public class ChangeFeed {
+    /**
+     * Response headers of a bootstrap copy: the feed's epoch and the position to tail it from after the copy.
+     */
+    public static final String EPOCH_HEADER = "X-Feed-Epoch";
+    public static final String POSITION_HEADER = "X-Feed-Position";
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicReferenceArray<Change> slots;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicReference<CompletableFuture<Void>> nextChange = new AtomicReference<>();
+
+    /**
+     * @param capacity number of changes kept, rounded up to a power of two; {@code 0} disables the feed
+     */
+    public ChangeFeed(@Value("${fueltracker.feed.capacity:0}") int capacity) {
+        int slotCount = capacity > 0 ? Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1 : 0;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.mask = slotCount - 1;
+    }
+
+    public boolean isEnabled() {
+        return slots.length() > 0;
+    }
+
+    public String epoch() {
+        return epoch;
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    /**
+     * Publishes a new car. Must be called before the car becomes visible, so its entries follow it.
+     */
+    public void publishCar(Car car) {
+        if (isEnabled()) {
+            long sequence = nextSequence.getAndIncrement();
+            store(Change.car(sequence, System.currentTimeMillis(), car));
+        }
+    }
+
+    /**
+     * Publishes a fuel entry. Must be called under the car's append lock, with the entry's position in the car's
+     * append order.
+     */
+    public void publishFuelEntry(long carId, long entrySequence, FuelEntry entry) {
+        if (isEnabled()) {
+            long sequence = nextSequence.getAndIncrement();
+            store(Change.fuelEntry(sequence, System.currentTimeMillis(), carId, entrySequence, entry));
+        }
+    }
+
+    /**
+     * Returns the sequence number the next change will get, which is the number of changes published so far.
+     */
+    public long head() {
+        return nextSequence.get();
+    }
+
+    /**
+     * Returns the sequence number of the oldest change still in the ring.
+     */
+    public long oldest() {
+        return Math.max(0, nextSequence.get() - slots.length());
+    }
+
+    /**
+     * Returns up to {@code limit} consecutive changes starting at {@code from}; fewer, possibly none, when the
+     * following changes are not stored yet.
+     *
+     * @throws ResourceGoneException if the change at {@code from} was already overwritten
+     */
+    public List<Change> read(long from, int limit) {
+        List<Change> changes = new ArrayList<>(Math.min(limit, 1024));
+        for (long sequence = from; changes.size() < limit; sequence++) {
+            Change change = slots.get((int) (sequence & mask));
+            if (change == null || change.getSequence() < sequence) {
+                break;
+            }
+            if (change.getSequence() > sequence) {
+                if (changes.isEmpty()) {
+                    throw new ResourceGoneException("Change " + from
+                            + " is no longer in the feed; the oldest available change is " + oldest());
+                }
+                break;
+            }
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    /**
+     * Returns a future that completes once the change at {@code sequence} is stored, right away if it already is.
+     * The future is shared by all waiters and may also complete for an earlier change, so callers check again
+     * and wait anew. It may complete on a publishing thread, so dependent work should run asynchronously.
+     */
+    public CompletableFuture<Void> awaitChange(long sequence) {
+        if (isStored(sequence)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> signal = nextChange.updateAndGet(
+                current -> current != null ? current : new CompletableFuture<>());
+        // The change may have been stored before the signal was installed, without anybody to wake.
+        if (isStored(sequence) && nextChange.compareAndSet(signal, null)) {
+            signal.complete(null);
+        }
+        return signal;
+    }
+
+    private boolean isStored(long sequence) {
+        Change change = slots.get((int) (sequence & mask));
+        return change != null && change.getSequence() >= sequence;
+    }
+
+    /**
+     * Stores the change and wakes the waiting readers, if any. The signal is only swapped when somebody waits,
+     * so publishing without readers costs one volatile read.
+     */
+    private void store(Change change) {
+        slots.set((int) (change.getSequence() & mask), change);
+        if (nextChange.get() != null) {
+            CompletableFuture<Void> signal = nextChange.getAndSet(null);
+            if (signal != null) {
+                signal.complete(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.codehills.fueltracker.replication;
+
+import com.codehills.fueltracker.dto.CarResponse;
+import com.codehills.fueltracker.dto.ChangeBatchResponse;
+import com.codehills.fueltracker.dto.ChangeResponse;
+import com.codehills.fueltracker.dto.FuelEntryResponse;
+import com.codehills.fueltracker.exception.HistoryGapException;
+import com.codehills.fueltracker.format.PayloadFormat;
+import com.codehills.fueltracker.format.PayloadMappers;
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follower mode: when {@code fueltracker.follower.leader-url} is set, tails the leader's change feed with
+ * long-polls and applies every change to the local repositories, which then serve the same reads as the leader.
+ * Writes through the API are rejected on a follower (see {@code ReplicationConfig}).
+ * <p>
+ * The feed only holds what the leader wrote since it started, so the follower first loads a bootstrap copy of
+ * all the leader's cars and entries, including those it recovered from disk, and then tails the feed from the
+ * position the copy was cut at. Copy and changes are applied with the same idempotent restore operations as the
+ * write-ahead log replay, in order. Connection failures are retried after {@code fueltracker.follower.retry-delay},
+ * a failed copy from the start. Following stops for good when the leader no longer holds the changes the follower
+ * needs, because it restarted or the follower fell further behind than the leader's feed capacity, and when a
+ * change does not continue what the follower holds; the follower then keeps serving what it has and has to be
+ * restarted to resynchronize.
+ * <p>
+ * Replication lag is reported in changes, the leader's head minus the changes applied, and in seconds, the age
+ * of the newest applied change while changes are outstanding. The latter compares the leader's clock with the
+ * follower's and grows while the leader cannot be reached.
+ */
+@Component
+public class FeedFollower implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(FeedFollower.class);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final long RESPONSE_GRACE_MILLIS = 5_000;
+
+    private final String leaderUrl;
+    private final long waitMillis;
+    private final int batchSize;
+    private final long retryDelayMillis;
+    private final CarRepository carRepository;
+    private final FuelEntryRepository fuelEntryRepository;
+    private final ObjectMapper mapper;
+
+    private HttpClient client;
+    private Thread follower;
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private volatile String epoch;
+    private String bootstrapEpoch;
+    private volatile long next;
+    private volatile long leaderHead;
+    private volatile long lastAppliedPublishedAt;
+    private volatile long caughtUpAt = System.currentTimeMillis();
+    private volatile long pollDeadline;
+
+    public FeedFollower(@Value("${fueltracker.follower.leader-url:}") String leaderUrl,
+                        @Value("${fueltracker.follower.wait:PT30S}") Duration wait,
+                        @Value("${fueltracker.follower.batch-size:1000}") int batchSize,
+                        @Value("${fueltracker.follower.retry-delay:PT1S}") Duration retryDelay,
+                        CarRepository carRepository, FuelEntryRepository fuelEntryRepository,
+                        PayloadMappers payloadMappers) {
+        this.leaderUrl = leaderUrl == null || leaderUrl.isBlank() ? null : stripTrailingSlash(leaderUrl.trim());
+        this.waitMillis = wait.toMillis();
+        this.batchSize = batchSize;
+        this.retryDelayMillis = retryDelay.toMillis();
+        this.carRepository = carRepository;
+        this.fuelEntryRepository = fuelEntryRepository;
+        this.mapper = payloadMappers.forFormat(PayloadFormat.SMILE);
+    }
+
+    public boolean isEnabled() {
+        return leaderUrl != null;
+    }
+
+    public String getLeaderUrl() {
+        return leaderUrl;
+    }
+
+    /**
+     * Starts following once every bean exists, so repository listeners see the applied changes.
+     */
+    @Override
+    public synchronized void afterSingletonsInstantiated() {
+        if (!isEnabled() || running) {
+            return;
+        }
+        client = HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).build();
+        running = true;
+        follower = new Thread(this::followLoop, "feed-follower");
+        follower.setDaemon(true);
+        follower.start();
+        log.info("Following the change feed of {}", leaderUrl);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        follower.interrupt();
+        follower.join();
+        client.shutdownNow();
+    }
+
+    /**
+     * Returns how many of the leader's changes were not applied yet, as of the last answer from the leader.
+     */
+    public long getLagChanges() {
+        return Math.max(0, leaderHead - next);
+    }
+
+    /**
+     * Returns the replication lag in seconds: the age of the newest applied change while the leader has more,
+     * otherwise zero as long as the leader answers in time, and the time since the follower last caught up when
+     * it does not.
+     */
+    public double getLagSeconds() {
+        long now = System.currentTimeMillis();
+        if (next < leaderHead) {
+            return Math.max(0, now - lastAppliedPublishedAt) / 1000.0;
+        }
+        if (now <= pollDeadline) {
+            return 0.0;
+        }
+        return (now - caughtUpAt) / 1000.0;
+    }
+
+    /**
+     * Returns the number of changes applied, which is also the sequence number of the next change to fetch.
+     */
+    public long getAppliedChanges() {
+        return next;
+    }
+
+    /**
+     * Returns whether following stopped for good because the leader no longer has the changes needed.
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    private void followLoop() {
+        while (running) {
+            try {
+                if (epoch == null) {
+                    bootstrap();
+                } else {
+                    apply(fetch());
+                }
+            } catch (InterruptedException ex) {
+                return;
+            } catch (FeedGoneException | HistoryGapException ex) {
+                log.error("Stopped following {}: {}", leaderUrl, ex.getMessage());
+                stopped = true;
+                return;
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Failed to read the change feed of {}; retrying in {} ms: {}", leaderUrl, retryDelayMillis,
+                        ex.toString());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(retryDelayMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the leader's bootstrap copy and sets the feed position to tail from. A copy that fails midway is
+     * retried from the start; what was applied is skipped the second time, unless the leader restarted in
+     * between, which stops following.
+     */
+    private void bootstrap() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(leaderUrl + "/api/changes/bootstrap"))
+                .header(HttpHeaders.ACCEPT, PayloadFormat.SMILE_VALUE)
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != HttpStatus.OK.value()) {
+                throw new IOException("Leader answered " + response.statusCode() + ": "
+                        + errorMessage(body.readAllBytes()));
+            }
+            String leaderEpoch = response.headers().firstValue(ChangeFeed.EPOCH_HEADER)
+                    .orElseThrow(() -> new IOException("Bootstrap copy without " + ChangeFeed.EPOCH_HEADER));
+            long position = Long.parseLong(response.headers().firstValue(ChangeFeed.POSITION_HEADER)
+                    .orElseThrow(() -> new IOException("Bootstrap copy without " + ChangeFeed.POSITION_HEADER)));
+            if (bootstrapEpoch != null && !bootstrapEpoch.equals(leaderEpoch)) {
+                throw new FeedGoneException("The leader restarted while its bootstrap copy was being loaded");
+            }
+            bootstrapEpoch = leaderEpoch;
+            long cars = 0;
+            long entries = 0;
+            boolean complete = false;
+            try (MappingIterator<ChangeResponse> changes =
+                         mapper.readerFor(ChangeResponse.class).readValues(body)) {
+                while (!complete && changes.hasNextValue()) {
+                    ChangeResponse change = changes.nextValue();
+                    if (change.getCar() != null) {
+                        cars++;
+                    } else if (change.getEntry() != null) {
+                        entries++;
+                    } else {
+                        complete = true;
+                        continue;
+                    }
+                    applyChange(change);
+                }
+            }
+            if (!complete) {
+                throw new IOException("The bootstrap copy was cut off after " + cars + " cars");
+            }
+            epoch = leaderEpoch;
+            next = position;
+            leaderHead = position;
+            caughtUpAt = System.currentTimeMillis();
+            log.info("Loaded {} cars and {} fuel entries from {}; following its change feed from {}", cars, entries,
+                    leaderUrl, position);
+        }
+    }
+
+    /**
+     * Long-polls the leader for the changes after the ones applied. While the request is within its expected
+     * duration, the follower counts as caught up if it was before.
+     */
+    private ChangeBatchResponse fetch() throws IOException, InterruptedException {
+        StringBuilder uri = new StringBuilder(leaderUrl).append("/api/changes?from=").append(next)
+                .append("&limit=").append(batchSize)
+                .append("&waitMillis=").append(waitMillis);
+        if (epoch != null) {
+            uri.append("&epoch=").append(epoch);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri.toString()))
+                .timeout(Duration.ofMillis(waitMillis + RESPONSE_GRACE_MILLIS))
+                .header(HttpHeaders.ACCEPT, PayloadFormat.SMILE_VALUE)
+                .GET()
+                .build();
+        pollDeadline = System.currentTimeMillis() + waitMillis + RESPONSE_GRACE_MILLIS;
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() == HttpStatus.GONE.value()) {
+                throw new FeedGoneException(errorMessage(response.body()));
+            }
+            if (response.statusCode() != HttpStatus.OK.value()) {
+                throw new IOException("Leader answered " + response.statusCode() + ": "
+                        + errorMessage(response.body()));
+            }
+            return mapper.readValue(response.body(), ChangeBatchResponse.class);
+        } finally {
+            pollDeadline = 0;
+        }
+    }
+
+    /**
+     * Returns the message of an error body, which is Smile like any other answer.
+     */
+    private String errorMessage(byte[] body) {
+        try {
+            return mapper.readTree(body).path("message").asText();
+        } catch (IOException ex) {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private void apply(ChangeBatchResponse batch) {
+        if (epoch == null) {
+            epoch = batch.getEpoch();
+        }
+        for (ChangeResponse change : batch.getChanges()) {
+            applyChange(change);
+            lastAppliedPublishedAt = change.getPublishedAt();
+        }
+        next = batch.getNext();
+        leaderHead = batch.getHead();
+        if (next >= leaderHead) {
+            caughtUpAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Applies a car or a fuel entry. An entry for a car the follower does not have, or one that does not continue
+     * the car's history, means the follower missed changes and fails with a {@link HistoryGapException}.
+     */
+    private void applyChange(ChangeResponse change) {
+        CarResponse car = change.getCar();
+        if (car != null) {
+            carRepository.restore(new Car(car.getId(), car.getBrand(), car.getModel(), car.getYear()));
+            return;
+        }
+        if (carRepository.findById(change.getCarId()).isEmpty()) {
+            throw new HistoryGapException("Fuel entry " + change.getEntrySequence() + " of car " + change.getCarId()
+                    + " arrived for a car this follower does not have");
+        }
+        FuelEntryResponse entry = change.getEntry();
+        fuelEntryRepository.restoreEntry(change.getCarId(), change.getEntrySequence(), new FuelEntry(
+                entry.getLiters(), entry.getPrice(), entry.getOdometer(), entry.getTimestamp()));
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static final class FeedGoneException extends RuntimeException {
+        FeedGoneException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.codehills.fueltracker.repository;
+
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.NameDictionary;
+
+import java.util.function.Predicate;
+
+/**
+ * Optional criteria for listing cars. Brand and model match case-insensitively; the year range is inclusive.
+ * {@code null} means "any".
+ */
+public record CarFilter(String brand, String model, Integer yearFrom, Integer yearTo) {
+    public static final CarFilter ANY = new CarFilter(null, null, null, null);
+
+    public boolean hasYearRange() {
+        return yearFrom != null || yearTo != null;
+    }
+
+    public boolean matches(Car car) {
+        return matcher().test(car);
+    }
+
+    /**
+     * Returns a predicate equivalent to {@link #matches} that resolves brand and model to folded dictionary codes
+     * once, so every car is checked with integer comparisons.
+     */
+    public Predicate<Car> matcher() {
+        int brandCode = brand != null ? NameDictionary.BRANDS.foldedCodeOf(brand) : NameDictionary.UNKNOWN;
+        int modelCode = model != null ? NameDictionary.MODELS.foldedCodeOf(model) : NameDictionary.UNKNOWN;
+        if ((brand != null && brandCode == NameDictionary.UNKNOWN)
+                || (model != null && modelCode == NameDictionary.UNKNOWN)) {
+            return car -> false;
+        }
+        int from = yearFrom != null ? yearFrom : Integer.MIN_VALUE;
+        int to = yearTo != null ? yearTo : Integer.MAX_VALUE;
+        return car -> (brand == null || NameDictionary.BRANDS.foldedCode(car.getBrandCode()) == brandCode)
+                && (model == null || NameDictionary.MODELS.foldedCode(car.getModelCode()) == modelCode)
+                && car.getYear() >= from
+                && car.getYear() <= to;
+    }
+}
@@ -0,0 +1,22 @@
+package com.codehills.fueltracker.repository;
+
+import com.codehills.fueltracker.model.Car;
+
+/**
+ * Notified by {@link CarRepository} for every car it stores. Calls happen on the writing thread, so
+ * implementations must be cheap and must not block.
+ */
+public interface CarListener {
+
+    /**
+     * A new car was saved. Called before the car becomes visible to readers.
+     */
+    void onCarAdded(Car car);
+
+    /**
+     * A car was recovered from persistent storage at startup.
+     */
+    default void onCarRestored(Car car) {
+        onCarAdded(car);
+    }
+}
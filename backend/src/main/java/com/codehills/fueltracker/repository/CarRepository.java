@@ -1,32 +1,355 @@
 package com.codehills.fueltracker.repository;
 
 import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.NameDictionary;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import com.codehills.fueltracker.replication.ChangeFeed;
 import org.springframework.stereotype.Repository;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
+/**
+ * Cars ordered by id, with secondary indexes on brand, model and year. Every index maps to the ids of matching
+ * cars in ascending order, so a filtered listing walks one index from the cursor instead of scanning all cars.
+ * Brands and models are indexed by their folded {@link NameDictionary} codes.
+ * <p>
+ * Cars are partitioned into {@link StorageShards shards}, each with its own id sequence, map, indexes and version,
+ * so concurrent saves do not meet on a shared map. New cars are dealt to the shards in turn, so while the shard
+ * sequences are level a car gets a larger id than the cars saved before it; listings merge the shards' id-ordered
+ * iterators.
+ */
 @Repository
 public class CarRepository {
-    private final Map<Long, Car> cars = new ConcurrentHashMap<>();
-    private final AtomicLong idGenerator = new AtomicLong(1);
+    private final StorageShards storageShards;
+    private final Shard[] shards;
+    private final List<CarListener> listeners = new CopyOnWriteArrayList<>();
+    private final WriteAheadLog writeAheadLog;
+    private final ChangeFeed changeFeed;
+    private final AtomicLong nextShard = new AtomicLong();
 
+    public CarRepository(WriteAheadLog writeAheadLog, ChangeFeed changeFeed, StorageShards storageShards) {
+        this.writeAheadLog = writeAheadLog;
+        this.changeFeed = changeFeed;
+        this.storageShards = storageShards;
+        this.shards = new Shard[storageShards.count()];
+        Arrays.setAll(shards, Shard::new);
+    }
+
+    /**
+     * Saves a car and returns once it is durable. The car is logged and published to the change feed before it
+     * becomes visible, so any fuel entry for it is always logged and published after it. Listeners are told before
+     * it becomes visible too. Once the log has failed, the car is refused before it is stored or published.
+     */
     public Car save(String brand, String model, int year) {
-        long id = idGenerator.getAndIncrement();
+        Shard shard = shards[(int) Math.floorMod(nextShard.getAndIncrement(), (long) shards.length)];
+        long id = storageShards.id(shard.index, shard.idGenerator.getAndIncrement());
         Car car = new Car(id, brand, model, year);
-        cars.put(id, car);
+        CompletableFuture<Void> durable;
+        shard.snapshotLock.readLock().lock();
+        try {
+            writeAheadLog.checkWritable();
+            durable = writeAheadLog.appendCar(car);
+            changeFeed.publishCar(car);
+            listeners.forEach(listener -> listener.onCarAdded(car));
+            shard.insert(car);
+        } finally {
+            shard.snapshotLock.readLock().unlock();
+        }
+        durable.join();
         return car;
     }
 
+    /**
+     * Re-inserts a car recovered from persistent storage or received from a leader's change feed, without logging
+     * or publishing it again.
+     */
+    public void restore(Car car) {
+        Shard shard = shardOf(car.getId());
+        if (shard.cars.containsKey(car.getId())) {
+            return;
+        }
+        listeners.forEach(listener -> listener.onCarRestored(car));
+        shard.insert(car);
+        shard.idGenerator.accumulateAndGet(storageShards.sequence(car.getId()) + 1, Math::max);
+    }
+
+    /**
+     * Returns the fleet version, the sum of the shard versions, each bumped after every car stored in it.
+     * Reading it before the cars guarantees the data read is at least as new as the version.
+     */
+    public long getVersion() {
+        long version = 0;
+        for (Shard shard : shards) {
+            version += shard.version.get();
+        }
+        return version;
+    }
+
+    /**
+     * Returns the number of cars. Cars are never removed, so this is the fleet version.
+     */
+    public long count() {
+        return getVersion();
+    }
+
+    /**
+     * Returns the number of cars stored in one shard.
+     */
+    public long count(int shard) {
+        return shards[shard].version.get();
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public void addListener(CarListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns a live, read-only view of all cars in id order.
+     */
     public Collection<Car> findAll() {
-        return new ArrayList<>(cars.values());
+        if (shards.length == 1) {
+            return findAllInShard(0);
+        }
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Car> iterator() {
+                List<Iterator<Car>> perShard = new ArrayList<>(shards.length);
+                for (Shard shard : shards) {
+                    perShard.add(shard.cars.values().iterator());
+                }
+                return new MergingIterator<>(perShard, Car::getId);
+            }
+
+            // Skip-list sizes are O(n); the versions count the same cars and only serve as a sizing hint.
+            @Override
+            public int size() {
+                return (int) Math.min(Integer.MAX_VALUE, count());
+            }
+        };
+    }
+
+    /**
+     * Returns a live, read-only view of the cars of one shard in id order, for reads that fan out over shards.
+     */
+    public Collection<Car> findAllInShard(int shard) {
+        return Collections.unmodifiableCollection(shards[shard].cars.values());
+    }
+
+    /**
+     * Returns up to {@code limit} cars matching the filter with an id greater than {@code afterId}, in id order.
+     */
+    public List<Car> findPage(CarFilter filter, long afterId, int limit) {
+        List<Car> page = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<Car> matches = iterate(filter, afterId);
+        while (page.size() < limit && matches.hasNext()) {
+            page.add(matches.next());
+        }
+        return page;
+    }
+
+    /**
+     * Hands every car matching the filter with an id greater than {@code afterId} to the consumer, in id order,
+     * without collecting them first.
+     */
+    public void forEach(CarFilter filter, long afterId, Consumer<Car> consumer) {
+        iterate(filter, afterId).forEachRemaining(consumer);
+    }
+
+    /**
+     * Returns all cars once in-flight saves have finished, so every car already handed to the write-ahead log
+     * is included. Shards are drained one after the other, so saves only ever wait for their own shard. Used to
+     * cut snapshots.
+     */
+    public List<Car> findAllForSnapshot() {
+        List<Car> all = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.snapshotLock.writeLock().lock();
+            try {
+                all.addAll(shard.cars.values());
+            } finally {
+                shard.snapshotLock.writeLock().unlock();
+            }
+        }
+        all.sort(Comparator.comparingLong(Car::getId));
+        return all;
     }
 
     public Optional<Car> findById(long id) {
-        return Optional.ofNullable(cars.get(id));
+        return Optional.ofNullable(shardOf(id).cars.get(id));
+    }
+
+    private Shard shardOf(long carId) {
+        return shards[storageShards.of(carId)];
+    }
+
+    private static <K> void index(Map<K, NavigableSet<Long>> index, K key, long id) {
+        index.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>()).add(id);
+    }
+
+    private Iterator<Car> iterate(CarFilter filter, long afterId) {
+        if (shards.length == 1) {
+            return shards[0].iterate(filter, afterId);
+        }
+        List<Iterator<Car>> perShard = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            perShard.add(shard.iterate(filter, afterId));
+        }
+        return new MergingIterator<>(perShard, Car::getId);
+    }
+
+    /**
+     * The cars of one shard with their indexes. Ids are allocated from the shard's own sequence.
+     */
+    private static final class Shard {
+        private final int index;
+        private final ConcurrentSkipListMap<Long, Car> cars = new ConcurrentSkipListMap<>();
+        private final Map<Integer, NavigableSet<Long>> idsByBrand = new ConcurrentHashMap<>();
+        private final Map<Integer, NavigableSet<Long>> idsByModel = new ConcurrentHashMap<>();
+        private final NavigableMap<Integer, NavigableSet<Long>> idsByYear = new ConcurrentSkipListMap<>();
+        private final AtomicLong idGenerator = new AtomicLong(1);
+        private final AtomicLong version = new AtomicLong();
+        private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+        Shard(int index) {
+            this.index = index;
+        }
+
+        void insert(Car car) {
+            cars.put(car.getId(), car);
+            index(idsByBrand, NameDictionary.BRANDS.foldedCode(car.getBrandCode()), car.getId());
+            index(idsByModel, NameDictionary.MODELS.foldedCode(car.getModelCode()), car.getId());
+            index(idsByYear, car.getYear(), car.getId());
+            version.incrementAndGet();
+        }
+
+        /**
+         * Picks the most selective index available for the filter, walks it from the cursor and checks the
+         * remaining criteria on each candidate.
+         */
+        Iterator<Car> iterate(CarFilter filter, long afterId) {
+            Iterator<Long> ids;
+            if (filter.model() != null) {
+                ids = tail(idsByModel.get(NameDictionary.MODELS.foldedCodeOf(filter.model())), afterId);
+            } else if (filter.brand() != null) {
+                ids = tail(idsByBrand.get(NameDictionary.BRANDS.foldedCodeOf(filter.brand())), afterId);
+            } else if (filter.hasYearRange()) {
+                NavigableMap<Integer, NavigableSet<Long>> years = idsByYear.subMap(
+                        filter.yearFrom() != null ? filter.yearFrom() : Integer.MIN_VALUE, true,
+                        filter.yearTo() != null ? filter.yearTo() : Integer.MAX_VALUE, true);
+                List<Iterator<Long>> perYear = new ArrayList<>(years.size());
+                years.values().forEach(set -> perYear.add(tail(set, afterId)));
+                ids = new MergingIterator<>(perYear, Long::longValue);
+            } else {
+                return cars.tailMap(afterId, false).values().iterator();
+            }
+            return new FilteringIterator(cars, ids, filter.matcher());
+        }
+    }
+
+    private static Iterator<Long> tail(NavigableSet<Long> ids, long afterId) {
+        return ids != null ? ids.tailSet(afterId, false).iterator() : Collections.emptyIterator();
+    }
+
+    /**
+     * Merges several iterators, each ascending by id, into one ascending iterator.
+     */
+    private static final class MergingIterator<T> implements Iterator<T> {
+        private final PriorityQueue<Head<T>> heads;
+        private final ToLongFunction<T> id;
+
+        MergingIterator(List<Iterator<T>> sources, ToLongFunction<T> id) {
+            this.id = id;
+            this.heads = new PriorityQueue<>(Math.max(1, sources.size()), Comparator.comparingLong(Head::id));
+            for (Iterator<T> source : sources) {
+                advance(source);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            advance(head.source());
+            return head.value();
+        }
+
+        private void advance(Iterator<T> source) {
+            if (source.hasNext()) {
+                T value = source.next();
+                heads.add(new Head<>(id.applyAsLong(value), value, source));
+            }
+        }
+
+        private record Head<T>(long id, T value, Iterator<T> source) {
+        }
+    }
+
+    private static final class FilteringIterator implements Iterator<Car> {
+        private final Map<Long, Car> cars;
+        private final Iterator<Long> ids;
+        private final Predicate<Car> filter;
+        private Car next;
+
+        FilteringIterator(Map<Long, Car> cars, Iterator<Long> ids, Predicate<Car> filter) {
+            this.cars = cars;
+            this.ids = ids;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && ids.hasNext()) {
+                Car candidate = cars.get(ids.next());
+                if (candidate != null && filter.test(candidate)) {
+                    next = candidate;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Car next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Car car = next;
+            next = null;
+            return car;
+        }
     }
 }
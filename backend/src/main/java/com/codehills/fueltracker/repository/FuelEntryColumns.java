@@ -0,0 +1,710 @@
+package com.codehills.fueltracker.repository;
+
+import com.codehills.fueltracker.model.ConsumptionSketch;
+import com.codehills.fueltracker.model.FuelAggregate;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.model.FuelInterval;
+import com.codehills.fueltracker.model.FuelWindow;
+
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Column-oriented fuel history for a single car. Each field lives in its own primitive array so an entry costs
+ * a few primitives instead of a {@link FuelEntry} plus an {@link Instant}, and scans over one column stay
+ * sequential.
+ * <p>
+ * Entries are kept ordered by timestamp, then odometer, in chunks of at most {@value #CHUNK_CAPACITY} entries.
+ * Every chunk holds running sums of liters and cost over its own entries, and a small directory holds each
+ * chunk's first index and the sums of all chunks before it. Any window of consecutive fill-ups is therefore a
+ * few binary searches and subtractions away, and a backdated insert only copies the chunk it lands in plus the
+ * directory, O(chunk + n / chunk) instead of O(n). A full chunk that receives an insert is split in two.
+ * <p>
+ * A further column holds each fill-up's interval consumption, its liters over the distance since the previous
+ * fill-up, computed when it is stored. A backdated entry also recomputes the interval of the entry after it.
+ * Their count, minimum, maximum and median are kept in a {@link ConsumptionSketch} updated on every append.
+ * <p>
+ * Appends are serialized by an append lock supplied by the repository, which stripes a fixed set of locks over
+ * all cars. Readers never lock and never copy: the chunks, directory, size, aggregate and sketch are published together
+ * as one immutable {@link State}, so a read is a single volatile load. An in-order append writes past the
+ * published size of the last chunk, or past the published chunk count of the directory; an insert copies what it
+ * changes, so a state that has been handed out is never modified.
+ * <p>
+ * A store restored from a snapshot starts out backed by the memory-mapped snapshot file. Its aggregate and size
+ * are available immediately; the columns are copied onto the heap the first time they are needed.
+ */
+final class FuelEntryColumns {
+    static final int CHUNK_CAPACITY = 1024;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final Lock appendLock;
+    private volatile State state = new State(new Chunk[0], new int[0], new double[0], new double[0], 0, 0,
+            FuelAggregate.EMPTY, ConsumptionSketch.EMPTY);
+    private volatile MappedColumns mapped;
+
+    FuelEntryColumns(Lock appendLock) {
+        this.appendLock = appendLock;
+    }
+
+    FuelEntryColumns(Lock appendLock, FuelAggregate aggregate, MappedColumns mapped) {
+        this.appendLock = appendLock;
+        this.mapped = mapped;
+        this.state = new State(new Chunk[0], new int[0], new double[0], new double[0], 0, mapped.size(), aggregate,
+                ConsumptionSketch.EMPTY);
+    }
+
+    Lock appendLock() {
+        return appendLock;
+    }
+
+    /**
+     * Inserts an entry at its place in timestamp order. The caller must hold {@link #appendLock()}.
+     */
+    void append(FuelEntry entry) {
+        materialize();
+        State current = state;
+        long timestamp = entry.getTimestamp().toEpochMilli();
+        FuelAggregate aggregate = current.aggregate.plus(entry);
+        if (current.size == 0 || current.compareLast(timestamp, entry.getOdometer()) <= 0) {
+            state = current.withAppended(entry.getLiters(), entry.getPrice(), entry.getOdometer(), timestamp,
+                    aggregate);
+        } else {
+            int position = current.insertionPoint(timestamp, entry.getOdometer());
+            state = current.withInserted(position, entry.getLiters(), entry.getPrice(), entry.getOdometer(),
+                    timestamp, aggregate);
+        }
+    }
+
+    int size() {
+        return state.size;
+    }
+
+    FuelAggregate aggregate() {
+        return state.aggregate;
+    }
+
+    /**
+     * Returns the summary of the interval consumption figures in O(1).
+     */
+    ConsumptionSketch consumptionSketch() {
+        materialize();
+        return state.sketch;
+    }
+
+    /**
+     * Returns the stored interval of every fill-up with a timestamp in {@code [fromMillis, toMillis]} that has
+     * one: not the first fill-up, and not one at which the odometer did not advance.
+     */
+    List<FuelInterval> intervals(long fromMillis, long toMillis) {
+        materialize();
+        State current = state;
+        int from = Math.max(current.lowerBound(fromMillis), 1);
+        int to = current.lowerBound(toMillis == Long.MAX_VALUE ? toMillis : toMillis + 1) - 1;
+        List<FuelInterval> intervals = new ArrayList<>(Math.max(0, to - from + 1));
+        for (int i = from; i <= to; i++) {
+            FuelInterval interval = current.interval(i);
+            if (interval != null) {
+                intervals.add(interval);
+            }
+        }
+        return intervals;
+    }
+
+    /**
+     * Returns the interval consumption of the entry with this timestamp and odometer, the last one if several
+     * match, in O(log n). {@code NaN} when it has none.
+     */
+    double intervalConsumption(long timestamp, double odometer) {
+        materialize();
+        State current = state;
+        int index = current.insertionPoint(timestamp, odometer) - 1;
+        return index > 0 ? current.intervalConsumption(index) : Double.NaN;
+    }
+
+    /**
+     * Returns a read-only view of the entries in timestamp order. Later appends are not reflected in the view.
+     */
+    List<FuelEntry> view() {
+        materialize();
+        State current = state;
+        return new EntryView(current, 0, current.size);
+    }
+
+    /**
+     * Returns a read-only view of the entries with a timestamp in {@code [fromMillis, toMillis]}, in timestamp
+     * order, found by binary search.
+     */
+    List<FuelEntry> view(long fromMillis, long toMillis) {
+        materialize();
+        State current = state;
+        int from = current.lowerBound(fromMillis);
+        int to = current.lowerBound(toMillis == Long.MAX_VALUE ? toMillis : toMillis + 1);
+        return new EntryView(current, from, Math.max(0, to - from));
+    }
+
+    /**
+     * Hands the entries with a timestamp in {@code [fromMillis, toMillis]} to the visitor in timestamp order,
+     * reading each chunk's columns in place. Like {@link #view()}, later appends are not visited.
+     */
+    void forEach(long fromMillis, long toMillis, FuelEntryVisitor visitor) {
+        materialize();
+        State current = state;
+        int from = current.lowerBound(fromMillis);
+        int to = current.lowerBound(toMillis == Long.MAX_VALUE ? toMillis : toMillis + 1);
+        current.forEach(from, to, visitor);
+    }
+
+    /**
+     * Aggregates the fill-ups with a timestamp in {@code [fromMillis, toMillis]} in O(log n).
+     */
+    FuelWindow window(long fromMillis, long toMillis) {
+        materialize();
+        State current = state;
+        int from = current.lowerBound(fromMillis);
+        int to = current.lowerBound(toMillis == Long.MAX_VALUE ? toMillis : toMillis + 1) - 1;
+        return current.window(from, to);
+    }
+
+    /**
+     * Returns, for every fill-up with a timestamp in {@code [fromMillis, toMillis]}, the window made of it and up
+     * to {@code fillUps} fill-ups before it. Each point costs O(log(n / chunk)).
+     */
+    List<FuelWindow> rollingWindows(int fillUps, long fromMillis, long toMillis) {
+        materialize();
+        State current = state;
+        int from = Math.max(current.lowerBound(fromMillis), 1);
+        int to = current.lowerBound(toMillis == Long.MAX_VALUE ? toMillis : toMillis + 1) - 1;
+        List<FuelWindow> windows = new ArrayList<>(Math.max(0, to - from + 1));
+        for (int i = from; i <= to; i++) {
+            windows.add(current.window(Math.max(0, i - fillUps), i));
+        }
+        return windows;
+    }
+
+    /**
+     * Copies snapshot-backed columns onto the heap. Cheap no-op once the store has been materialized.
+     */
+    void materialize() {
+        if (mapped == null) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            MappedColumns source = mapped;
+            if (source == null) {
+                return;
+            }
+            int count = source.size();
+            int chunkCount = (count + CHUNK_CAPACITY - 1) / CHUNK_CAPACITY;
+            Chunk[] chunks = new Chunk[chunkCount];
+            int[] starts = new int[chunkCount];
+            double[] baseLiters = new double[chunkCount];
+            double[] baseCost = new double[chunkCount];
+            ConsumptionSketch sketch = ConsumptionSketch.EMPTY;
+            double previousOdometer = Double.NaN;
+            for (int k = 0; k < chunkCount; k++) {
+                int start = k * CHUNK_CAPACITY;
+                int length = Math.min(CHUNK_CAPACITY, count - start);
+                Chunk chunk = new Chunk(length);
+                source.liters().get(start, chunk.liters, 0, length);
+                source.prices().get(start, chunk.prices, 0, length);
+                source.odometers().get(start, chunk.odometers, 0, length);
+                source.timestamps().get(start, chunk.timestamps, 0, length);
+                for (int i = 0; i < length; i++) {
+                    double interval = FuelInterval.consumptionPer100Km(chunk.liters[i],
+                            chunk.odometers[i] - previousOdometer);
+                    chunk.intervals[i] = interval;
+                    sketch = sketch.plus(interval);
+                    previousOdometer = chunk.odometers[i];
+                }
+                chunk.accumulate(0, length);
+                chunks[k] = chunk;
+                starts[k] = start;
+                if (k > 0) {
+                    baseLiters[k] = baseLiters[k - 1] + chunks[k - 1].totalLiters(CHUNK_CAPACITY);
+                    baseCost[k] = baseCost[k - 1] + chunks[k - 1].totalCost(CHUNK_CAPACITY);
+                }
+            }
+            state = new State(chunks, starts, baseLiters, baseCost, chunkCount, count, state.aggregate, sketch);
+            mapped = null;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private static int grow(int capacity) {
+        return Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+    }
+
+    private static final class State {
+        private final Chunk[] chunks;
+        private final int[] starts;
+        private final double[] baseLiters;
+        private final double[] baseCost;
+        private final int chunkCount;
+        private final int size;
+        private final FuelAggregate aggregate;
+        private final ConsumptionSketch sketch;
+
+        State(Chunk[] chunks, int[] starts, double[] baseLiters, double[] baseCost, int chunkCount, int size,
+              FuelAggregate aggregate, ConsumptionSketch sketch) {
+            this.chunks = chunks;
+            this.starts = starts;
+            this.baseLiters = baseLiters;
+            this.baseCost = baseCost;
+            this.chunkCount = chunkCount;
+            this.size = size;
+            this.aggregate = aggregate;
+            this.sketch = sketch;
+        }
+
+        private int count(int chunk) {
+            return (chunk + 1 < chunkCount ? starts[chunk + 1] : size) - starts[chunk];
+        }
+
+        /**
+         * Returns the chunk holding the entry at {@code index}.
+         */
+        private int chunkOf(int index) {
+            int low = 0;
+            int high = chunkCount - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (starts[mid] <= index) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns the index of the first entry with a timestamp at or after {@code timestamp}.
+         */
+        int lowerBound(long timestamp) {
+            int low = 0;
+            int high = chunkCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (chunks[mid].timestamps[0] < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low == 0) {
+                return 0;
+            }
+            int k = low - 1;
+            Chunk chunk = chunks[k];
+            int from = 0;
+            int to = count(k);
+            while (from < to) {
+                int mid = (from + to) >>> 1;
+                if (chunk.timestamps[mid] < timestamp) {
+                    from = mid + 1;
+                } else {
+                    to = mid;
+                }
+            }
+            return starts[k] + from;
+        }
+
+        int compareLast(long timestamp, double odometer) {
+            int last = chunkCount - 1;
+            return chunks[last].compare(size - 1 - starts[last], timestamp, odometer);
+        }
+
+        /**
+         * Returns the index a new entry goes to: after every entry with a smaller or equal (timestamp, odometer).
+         */
+        int insertionPoint(long timestamp, double odometer) {
+            int low = 0;
+            int high = chunkCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (chunks[mid].compare(0, timestamp, odometer) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low == 0) {
+                return 0;
+            }
+            int k = low - 1;
+            Chunk chunk = chunks[k];
+            int from = 0;
+            int to = count(k);
+            while (from < to) {
+                int mid = (from + to) >>> 1;
+                if (chunk.compare(mid, timestamp, odometer) <= 0) {
+                    from = mid + 1;
+                } else {
+                    to = mid;
+                }
+            }
+            return starts[k] + from;
+        }
+
+        /**
+         * Adds an entry after all others: in place in the last chunk while it has room, otherwise in a new chunk.
+         */
+        State withAppended(double liters, double price, double odometer, long timestamp, FuelAggregate aggregate) {
+            double interval = size > 0 ? FuelInterval.consumptionPer100Km(liters, odometer - odometerAt(size - 1))
+                    : Double.NaN;
+            ConsumptionSketch sketch = this.sketch.plus(interval);
+            if (chunkCount > 0) {
+                int last = chunkCount - 1;
+                Chunk chunk = chunks[last];
+                int count = size - starts[last];
+                if (count < CHUNK_CAPACITY) {
+                    Chunk target = count < chunk.capacity()
+                            ? chunk
+                            : chunk.copyWithGap(Math.min(CHUNK_CAPACITY, grow(count)), count, count);
+                    target.set(count, liters, price, odometer, timestamp, interval);
+                    target.accumulate(count, count + 1);
+                    Chunk[] targetChunks = chunks;
+                    if (target != chunk) {
+                        targetChunks = chunks.clone();
+                        targetChunks[last] = target;
+                    }
+                    return new State(targetChunks, starts, baseLiters, baseCost, chunkCount, size + 1, aggregate,
+                            sketch);
+                }
+            }
+
+            Chunk chunk = new Chunk(chunkCount == 0 ? INITIAL_CAPACITY : CHUNK_CAPACITY);
+            chunk.set(0, liters, price, odometer, timestamp, interval);
+            chunk.accumulate(0, 1);
+            Chunk[] targetChunks = chunks;
+            int[] targetStarts = starts;
+            double[] targetBaseLiters = baseLiters;
+            double[] targetBaseCost = baseCost;
+            if (chunkCount == chunks.length) {
+                int capacity = Math.max(1, chunkCount * 2);
+                targetChunks = Arrays.copyOf(chunks, capacity);
+                targetStarts = Arrays.copyOf(starts, capacity);
+                targetBaseLiters = Arrays.copyOf(baseLiters, capacity);
+                targetBaseCost = Arrays.copyOf(baseCost, capacity);
+            }
+            targetChunks[chunkCount] = chunk;
+            targetStarts[chunkCount] = size;
+            if (chunkCount > 0) {
+                int last = chunkCount - 1;
+                int lastCount = size - starts[last];
+                targetBaseLiters[chunkCount] = baseLiters[last] + chunks[last].totalLiters(lastCount);
+                targetBaseCost[chunkCount] = baseCost[last] + chunks[last].totalCost(lastCount);
+            }
+            return new State(targetChunks, targetStarts, targetBaseLiters, targetBaseCost, chunkCount + 1,
+                    size + 1, aggregate, sketch);
+        }
+
+        /**
+         * Inserts an entry before the end. The chunk it lands in is copied with a gap, or split in two when full;
+         * the directory is copied with the following chunks shifted by one entry. The entry that follows the new
+         * one is always in the same chunk; its interval now starts at the new entry and is replaced in the sketch.
+         */
+        State withInserted(int position, double liters, double price, double odometer, long timestamp,
+                           FuelAggregate aggregate) {
+            int k = chunkOf(position);
+            Chunk chunk = chunks[k];
+            int count = count(k);
+            int local = position - starts[k];
+            double interval = position > 0
+                    ? FuelInterval.consumptionPer100Km(liters, odometer - odometerAt(position - 1))
+                    : Double.NaN;
+            int capacity = count < chunk.capacity() ? chunk.capacity() : Math.min(CHUNK_CAPACITY, grow(count));
+            Chunk grown = chunk.copyWithGap(Math.max(capacity, count + 1), count, local);
+            grown.set(local, liters, price, odometer, timestamp, interval);
+            double replaced = grown.intervals[local + 1];
+            boolean replacedExtreme = replaced <= grown.minInterval || replaced >= grown.maxInterval;
+            double following = FuelInterval.consumptionPer100Km(grown.liters[local + 1],
+                    grown.odometers[local + 1] - odometer);
+            grown.intervals[local + 1] = following;
+            grown.accumulate(local, count + 1);
+            if (replacedExtreme) {
+                grown.rangeIntervals(count + 1);
+            }
+
+            ConsumptionSketch sketch = this.sketch.plus(interval).plus(following);
+            if (!Double.isNaN(replaced)) {
+                double min = sketch.getMin();
+                double max = sketch.getMax();
+                // Only taking out an extreme needs the new extreme, found from the chunks' own ranges.
+                if (replaced <= min || replaced >= max) {
+                    min = grown.minInterval;
+                    max = grown.maxInterval;
+                    for (int j = 0; j < chunkCount; j++) {
+                        if (j != k) {
+                            min = Math.min(min, chunks[j].minInterval);
+                            max = Math.max(max, chunks[j].maxInterval);
+                        }
+                    }
+                }
+                sketch = sketch.minus(replaced, min, max);
+            }
+
+            if (count < CHUNK_CAPACITY) {
+                return replace(k, new Chunk[] {grown}, new int[] {count + 1}, aggregate, sketch);
+            }
+            int half = (count + 1) / 2;
+            boolean last = k == chunkCount - 1;
+            Chunk left = grown.slice(0, half, half);
+            Chunk right = grown.slice(half, count + 1 - half, last ? CHUNK_CAPACITY : count + 1 - half);
+            return replace(k, new Chunk[] {left, right}, new int[] {half, count + 1 - half}, aggregate, sketch);
+        }
+
+        /**
+         * Builds the state one entry larger, with chunk {@code k} replaced by {@code replacements}.
+         */
+        private State replace(int k, Chunk[] replacements, int[] replacementCounts, FuelAggregate aggregate,
+                              ConsumptionSketch sketch) {
+            int targetCount = chunkCount - 1 + replacements.length;
+            int capacity = Math.max(chunks.length, targetCount);
+            Chunk[] targetChunks = new Chunk[capacity];
+            int[] targetStarts = new int[capacity];
+            double[] targetBaseLiters = new double[capacity];
+            double[] targetBaseCost = new double[capacity];
+            System.arraycopy(chunks, 0, targetChunks, 0, k);
+            System.arraycopy(starts, 0, targetStarts, 0, k);
+            System.arraycopy(baseLiters, 0, targetBaseLiters, 0, k + 1);
+            System.arraycopy(baseCost, 0, targetBaseCost, 0, k + 1);
+
+            int start = starts[k];
+            for (int i = 0; i < replacements.length; i++) {
+                targetChunks[k + i] = replacements[i];
+                targetStarts[k + i] = start;
+                start += replacementCounts[i];
+            }
+            int shift = replacements.length - 1;
+            for (int j = k + 1; j < chunkCount; j++) {
+                targetChunks[j + shift] = chunks[j];
+                targetStarts[j + shift] = starts[j] + 1;
+            }
+            for (int j = k + 1; j < targetCount; j++) {
+                int previousCount = targetStarts[j] - targetStarts[j - 1];
+                targetBaseLiters[j] = targetBaseLiters[j - 1] + targetChunks[j - 1].totalLiters(previousCount);
+                targetBaseCost[j] = targetBaseCost[j - 1] + targetChunks[j - 1].totalCost(previousCount);
+            }
+            return new State(targetChunks, targetStarts, targetBaseLiters, targetBaseCost, targetCount, size + 1,
+                    aggregate, sketch);
+        }
+
+        FuelWindow window(int from, int to) {
+            if (from > to) {
+                return FuelWindow.EMPTY;
+            }
+            int fromChunk = chunkOf(from);
+            int toChunk = chunkOf(to);
+            Chunk first = chunks[fromChunk];
+            Chunk last = chunks[toChunk];
+            int i = from - starts[fromChunk];
+            int j = to - starts[toChunk];
+            double litersBefore = baseLiters[fromChunk] + (i > 0 ? first.cumulativeLiters[i - 1] : 0.0);
+            double costBefore = baseCost[fromChunk] + (i > 0 ? first.cumulativeCost[i - 1] : 0.0);
+            double totalLiters = baseLiters[toChunk] + last.cumulativeLiters[j] - litersBefore;
+            double totalCost = baseCost[toChunk] + last.cumulativeCost[j] - costBefore;
+            double distance = Math.max(0.0, last.odometers[j] - first.odometers[i]);
+            return new FuelWindow(to - from + 1, totalLiters, totalCost,
+                    totalLiters - first.liters[i], totalCost - first.prices[i], distance,
+                    first.timestamps[i], last.timestamps[j], last.odometers[j]);
+        }
+
+        private double odometerAt(int index) {
+            int k = index >= starts[chunkCount - 1] ? chunkCount - 1 : chunkOf(index);
+            return chunks[k].odometers[index - starts[k]];
+        }
+
+        /**
+         * Returns the interval ending at the entry at {@code index}, or {@code null} when it has none.
+         */
+        FuelInterval interval(int index) {
+            int k = chunkOf(index);
+            Chunk chunk = chunks[k];
+            int i = index - starts[k];
+            if (Double.isNaN(chunk.intervals[i])) {
+                return null;
+            }
+            return new FuelInterval(chunk.timestamps[i], chunk.odometers[i], chunk.odometers[i] - odometerAt(index - 1),
+                    chunk.prices[i], chunk.intervals[i]);
+        }
+
+        double intervalConsumption(int index) {
+            int k = chunkOf(index);
+            return chunks[k].intervals[index - starts[k]];
+        }
+
+        /**
+         * Visits the entries {@code [from, to)} chunk by chunk.
+         */
+        void forEach(int from, int to, FuelEntryVisitor visitor) {
+            if (from >= to) {
+                return;
+            }
+            for (int k = chunkOf(from); k < chunkCount && starts[k] < to; k++) {
+                Chunk chunk = chunks[k];
+                int end = Math.min(to, starts[k] + count(k)) - starts[k];
+                for (int i = Math.max(from - starts[k], 0); i < end; i++) {
+                    visitor.visit(chunk.liters[i], chunk.prices[i], chunk.odometers[i], chunk.timestamps[i]);
+                }
+            }
+        }
+
+        FuelEntry entry(int index) {
+            int k = chunkOf(index);
+            Chunk chunk = chunks[k];
+            int i = index - starts[k];
+            return new FuelEntry(chunk.liters[i], chunk.prices[i], chunk.odometers[i],
+                    Instant.ofEpochMilli(chunk.timestamps[i]));
+        }
+    }
+
+    /**
+     * A run of consecutive entries with running sums of liters and cost over the run. The range of the run's
+     * intervals is only read and written by appenders, under the append lock.
+     */
+    private static final class Chunk {
+        private final double[] liters;
+        private final double[] prices;
+        private final double[] odometers;
+        private final long[] timestamps;
+        private final double[] intervals;
+        private final double[] cumulativeLiters;
+        private final double[] cumulativeCost;
+        private double minInterval = Double.POSITIVE_INFINITY;
+        private double maxInterval = Double.NEGATIVE_INFINITY;
+
+        Chunk(int capacity) {
+            this.liters = new double[capacity];
+            this.prices = new double[capacity];
+            this.odometers = new double[capacity];
+            this.timestamps = new long[capacity];
+            this.intervals = new double[capacity];
+            this.cumulativeLiters = new double[capacity];
+            this.cumulativeCost = new double[capacity];
+        }
+
+        int capacity() {
+            return liters.length;
+        }
+
+        void set(int index, double liters, double price, double odometer, long timestamp, double interval) {
+            this.liters[index] = liters;
+            this.prices[index] = price;
+            this.odometers[index] = odometer;
+            this.timestamps[index] = timestamp;
+            this.intervals[index] = interval;
+        }
+
+        /**
+         * Recomputes the running sums of entries {@code [from, to)} and widens the interval range by their
+         * intervals.
+         */
+        void accumulate(int from, int to) {
+            for (int i = from; i < to; i++) {
+                cumulativeLiters[i] = (i > 0 ? cumulativeLiters[i - 1] : 0.0) + liters[i];
+                cumulativeCost[i] = (i > 0 ? cumulativeCost[i - 1] : 0.0) + prices[i];
+                widen(intervals[i]);
+            }
+        }
+
+        /**
+         * Recomputes the interval range from the first {@code count} entries, after an interval was replaced.
+         */
+        void rangeIntervals(int count) {
+            minInterval = Double.POSITIVE_INFINITY;
+            maxInterval = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                widen(intervals[i]);
+            }
+        }
+
+        // Plain comparisons are false for NaN, so undefined intervals are skipped without a check.
+        private void widen(double interval) {
+            if (interval < minInterval) {
+                minInterval = interval;
+            }
+            if (interval > maxInterval) {
+                maxInterval = interval;
+            }
+        }
+
+        double totalLiters(int count) {
+            return cumulativeLiters[count - 1];
+        }
+
+        double totalCost(int count) {
+            return cumulativeCost[count - 1];
+        }
+
+        int compare(int index, long timestamp, double odometer) {
+            int byTime = Long.compare(timestamps[index], timestamp);
+            return byTime != 0 ? byTime : Double.compare(odometers[index], odometer);
+        }
+
+        /**
+         * Copies the first {@code count} entries into new arrays, leaving slot {@code gap} free for an insert.
+         * Running sums are copied up to the gap, the interval range as is.
+         */
+        Chunk copyWithGap(int capacity, int count, int gap) {
+            Chunk copy = new Chunk(capacity);
+            copyRange(this, copy, 0, 0, gap);
+            copyRange(this, copy, gap, gap + 1, count - gap);
+            System.arraycopy(cumulativeLiters, 0, copy.cumulativeLiters, 0, gap);
+            System.arraycopy(cumulativeCost, 0, copy.cumulativeCost, 0, gap);
+            copy.minInterval = minInterval;
+            copy.maxInterval = maxInterval;
+            return copy;
+        }
+
+        /**
+         * Copies {@code count} entries starting at {@code from} into a new chunk with its own running sums.
+         */
+        Chunk slice(int from, int count, int capacity) {
+            Chunk copy = new Chunk(capacity);
+            copyRange(this, copy, from, 0, count);
+            copy.accumulate(0, count);
+            return copy;
+        }
+
+        private static void copyRange(Chunk source, Chunk target, int from, int to, int length) {
+            System.arraycopy(source.liters, from, target.liters, to, length);
+            System.arraycopy(source.prices, from, target.prices, to, length);
+            System.arraycopy(source.odometers, from, target.odometers, to, length);
+            System.arraycopy(source.timestamps, from, target.timestamps, to, length);
+            System.arraycopy(source.intervals, from, target.intervals, to, length);
+        }
+    }
+
+    private static final class EntryView extends AbstractList<FuelEntry> implements RandomAccess {
+        private final State state;
+        private final int offset;
+        private final int size;
+
+        EntryView(State state, int offset, int size) {
+            this.state = state;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public FuelEntry get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+            }
+            return state.entry(offset + index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.codehills.fueltracker.repository;
+
+import com.codehills.fueltracker.model.FuelAggregate;
+import com.codehills.fueltracker.model.FuelEntry;
+
+import java.util.List;
+
+/**
+ * Notified by {@link FuelEntryRepository} whenever a car's history grows, with the car's running totals before
+ * and after the change. Calls happen on the writing thread while the car's append lock is held, so notifications
+ * for the same car arrive in append order. Implementations must be cheap, must not block and must not append.
+ */
+public interface FuelEntryListener {
+
+    /**
+     * New entries were appended through the API. Called as soon as they are stored, before they are durable, so
+     * listeners always agree with what readers of the repository see.
+     */
+    void onEntriesAdded(long carId, List<FuelEntry> entries, FuelAggregate before, FuelAggregate after);
+
+    /**
+     * Entries were restored rather than appended through the API: recovered from a snapshot or the write-ahead log
+     * at startup, or, on a follower, applied from the leader's change feed, one call per applied entry while the
+     * follower runs. Listeners that push updates to clients, like the stats streams, rely on the latter.
+     */
+    default void onHistoryRestored(long carId, FuelAggregate before, FuelAggregate after) {
+    }
+}
@@ -1,24 +1,369 @@
 package com.codehills.fueltracker.repository;
 
+import com.codehills.fueltracker.exception.HistoryGapException;
+import com.codehills.fueltracker.model.ConsumptionSketch;
+import com.codehills.fueltracker.model.FuelAggregate;
 import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.model.FuelInterval;
+import com.codehills.fueltracker.model.FuelWindow;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import com.codehills.fueltracker.replication.ChangeFeed;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Fuel histories partitioned into the same {@link StorageShards shards} as the cars, so a car and its entries
+ * always live in one shard. Each shard has its own map and its own set of striped append locks.
+ */
 @Repository
 public class FuelEntryRepository {
-    private final Map<Long, List<FuelEntry>> fuelEntriesByCar = new ConcurrentHashMap<>();
+    private static final int APPEND_LOCK_STRIPES = 256;
 
+    private final StorageShards storageShards;
+    private final Shard[] shards;
+    private final List<FuelEntryListener> listeners = new CopyOnWriteArrayList<>();
+    private final WriteAheadLog writeAheadLog;
+    private final ChangeFeed changeFeed;
+    private final LongAdder entryCount = new LongAdder();
+    private final AtomicLong largestHistory = new AtomicLong();
+    private final LongAdder lockWaits = new LongAdder();
+    private final LongAdder lockWaitNanos = new LongAdder();
+
+    public FuelEntryRepository(WriteAheadLog writeAheadLog, ChangeFeed changeFeed, StorageShards storageShards) {
+        this.writeAheadLog = writeAheadLog;
+        this.changeFeed = changeFeed;
+        this.storageShards = storageShards;
+        this.shards = new Shard[storageShards.count()];
+        Arrays.setAll(shards, i -> new Shard());
+    }
+
+    /**
+     * Appends an entry and returns once it is durable. The log record is enqueued, the change published and the
+     * listeners notified under the car's append lock so all of them preserve per-car order, while the wait for the
+     * group commit happens outside of it. Once the log has failed, the entry is refused before it is stored or
+     * published.
+     */
     public FuelEntry addEntry(long carId, FuelEntry fuelEntry) {
-        fuelEntriesByCar.computeIfAbsent(carId, id -> Collections.synchronizedList(new ArrayList<>())).add(fuelEntry);
+        FuelEntryColumns columns = columnsFor(carId);
+        CompletableFuture<Void> durable;
+        FuelAggregate before;
+        FuelAggregate after;
+        Lock lock = columns.appendLock();
+        lockForAppend(lock);
+        try {
+            writeAheadLog.checkWritable();
+            before = columns.aggregate();
+            long sequence = columns.size();
+            columns.append(fuelEntry);
+            after = columns.aggregate();
+            durable = writeAheadLog.appendFuelEntry(carId, sequence, fuelEntry);
+            changeFeed.publishFuelEntry(carId, sequence, fuelEntry);
+            notifyAdded(carId, List.of(fuelEntry), before, after);
+        } finally {
+            lock.unlock();
+        }
+        recordGrowth(before, after);
+        durable.join();
         return fuelEntry;
     }
 
+    /**
+     * Appends a batch of entries for one car under a single lock acquisition and returns once all of them are
+     * durable.
+     */
+    public void addEntries(long carId, List<FuelEntry> fuelEntries) {
+        FuelEntryColumns columns = columnsFor(carId);
+        List<CompletableFuture<Void>> durable = new ArrayList<>(fuelEntries.size());
+        FuelAggregate before;
+        FuelAggregate after;
+        Lock lock = columns.appendLock();
+        lockForAppend(lock);
+        try {
+            writeAheadLog.checkWritable();
+            before = columns.aggregate();
+            for (FuelEntry fuelEntry : fuelEntries) {
+                long sequence = columns.size();
+                columns.append(fuelEntry);
+                durable.add(writeAheadLog.appendFuelEntry(carId, sequence, fuelEntry));
+                changeFeed.publishFuelEntry(carId, sequence, fuelEntry);
+            }
+            after = columns.aggregate();
+            notifyAdded(carId, fuelEntries, before, after);
+        } finally {
+            lock.unlock();
+        }
+        recordGrowth(before, after);
+        durable.forEach(CompletableFuture::join);
+    }
+
+    /**
+     * Re-inserts an entry recovered from the write-ahead log or received from a leader's change feed, without
+     * logging or publishing it again. Entries whose sequence is already present are ignored.
+     *
+     * @throws HistoryGapException if entries before {@code sequence} are missing
+     */
+    public void restoreEntry(long carId, long sequence, FuelEntry fuelEntry) {
+        FuelEntryColumns columns = columnsFor(carId);
+        FuelAggregate before;
+        FuelAggregate after;
+        Lock lock = columns.appendLock();
+        lock.lock();
+        try {
+            if (sequence < columns.size()) {
+                return;
+            }
+            if (sequence > columns.size()) {
+                throw new HistoryGapException("Fuel entry " + sequence + " of car " + carId
+                        + " does not follow the " + columns.size() + " entries held");
+            }
+            before = columns.aggregate();
+            columns.append(fuelEntry);
+            after = columns.aggregate();
+            listeners.forEach(listener -> listener.onHistoryRestored(carId, before, after));
+        } finally {
+            lock.unlock();
+        }
+        recordGrowth(before, after);
+    }
+
+    /**
+     * Installs a car's history from a memory-mapped snapshot. Stats are served from the given aggregate right
+     * away; the columns are copied onto the heap lazily.
+     */
+    public void restoreColumns(long carId, FuelAggregate aggregate, MappedColumns mapped) {
+        Shard shard = shardOf(carId);
+        FuelEntryColumns previous = shard.fuelEntriesByCar.put(carId,
+                new FuelEntryColumns(shard.appendLockFor(storageShards.sequence(carId)), aggregate, mapped));
+        FuelAggregate before = previous != null ? previous.aggregate() : FuelAggregate.EMPTY;
+        recordGrowth(before, aggregate);
+        listeners.forEach(listener -> listener.onHistoryRestored(carId, before, aggregate));
+    }
+
+    public void addListener(FuelEntryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Copies every snapshot-backed history onto the heap so the snapshot file is no longer referenced. Shards are
+     * copied in parallel.
+     */
+    public void materializeAll() {
+        Arrays.stream(shards).parallel()
+                .forEach(shard -> shard.fuelEntriesByCar.values().forEach(FuelEntryColumns::materialize));
+    }
+
+    /**
+     * Returns a read-only, point-in-time view of the car's entries backed directly by the column store.
+     */
     public List<FuelEntry> findByCarId(long carId) {
-        return fuelEntriesByCar.getOrDefault(carId, Collections.emptyList());
+        FuelEntryColumns columns = find(carId);
+        return columns != null ? columns.view() : Collections.emptyList();
+    }
+
+    /**
+     * Returns a read-only, point-in-time view of the car's entries with a timestamp in
+     * {@code [fromMillis, toMillis]}. Entries are stored in timestamp order, so the range is found by binary search.
+     */
+    public List<FuelEntry> findByCarIdBetween(long carId, long fromMillis, long toMillis) {
+        FuelEntryColumns columns = find(carId);
+        return columns != null ? columns.view(fromMillis, toMillis) : Collections.emptyList();
+    }
+
+    /**
+     * Hands the car's entries with a timestamp in {@code [fromMillis, toMillis]} to the visitor in timestamp order,
+     * straight from the columns of a point-in-time state. Used by exports, which would otherwise create a
+     * {@link FuelEntry} per row only to read its fields once.
+     */
+    public void forEachBetween(long carId, long fromMillis, long toMillis, FuelEntryVisitor visitor) {
+        FuelEntryColumns columns = find(carId);
+        if (columns != null) {
+            columns.forEach(fromMillis, toMillis, visitor);
+        }
+    }
+
+    /**
+     * Like {@link #findByCarId(long)}, but waits for an in-flight append of the car to finish first, so every
+     * entry already handed to the write-ahead log is included. Used to cut snapshots.
+     */
+    public List<FuelEntry> findByCarIdForSnapshot(long carId) {
+        FuelEntryColumns columns = find(carId);
+        if (columns == null) {
+            return Collections.emptyList();
+        }
+        Lock lock = columns.appendLock();
+        lock.lock();
+        try {
+            return columns.view();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the car's version, which changes with every appended entry. Entries are never removed, so the
+     * entry count serves as the version.
+     */
+    public long getVersion(long carId) {
+        FuelEntryColumns columns = find(carId);
+        return columns != null ? columns.size() : 0;
+    }
+
+    /**
+     * Returns the number of stored entries across all cars.
+     */
+    public long getEntryCount() {
+        return entryCount.sum();
+    }
+
+    /**
+     * Returns the number of entries of the car with the longest history.
+     */
+    public long getLargestHistory() {
+        return largestHistory.get();
+    }
+
+    /**
+     * Returns how many appends found their car's append lock taken and had to wait for it.
+     */
+    public long getLockWaitCount() {
+        return lockWaits.sum();
+    }
+
+    /**
+     * Returns the total time appends spent waiting for a taken append lock, in nanoseconds.
+     */
+    public long getLockWaitNanos() {
+        return lockWaitNanos.sum();
+    }
+
+    /**
+     * Returns the running totals for a car in O(1); the aggregate is replaced atomically on every append.
+     */
+    public FuelAggregate getAggregate(long carId) {
+        FuelEntryColumns columns = find(carId);
+        return columns != null ? columns.aggregate() : FuelAggregate.EMPTY;
+    }
+
+    /**
+     * Returns the summary of a car's interval consumption figures in O(1); it is replaced on every append.
+     */
+    public ConsumptionSketch getConsumptionSketch(long carId) {
+        FuelEntryColumns columns = find(carId);
+        return columns != null ? columns.consumptionSketch() : ConsumptionSketch.EMPTY;
+    }
+
+    /**
+     * Returns the stored interval of each of a car's fill-ups with a timestamp in {@code [fromMillis, toMillis]},
+     * skipping fill-ups without one.
+     */
+    public List<FuelInterval> getIntervals(long carId, long fromMillis, long toMillis) {
+        FuelEntryColumns columns = find(carId);
+        return columns != null ? columns.intervals(fromMillis, toMillis) : Collections.emptyList();
+    }
+
+    /**
+     * Returns the stored interval consumption of a car's fill-up, found by its timestamp and odometer in
+     * O(log n), or {@code NaN} when it has none.
+     */
+    public double getIntervalConsumption(long carId, FuelEntry fuelEntry) {
+        FuelEntryColumns columns = find(carId);
+        return columns != null
+                ? columns.intervalConsumption(fuelEntry.getTimestamp().toEpochMilli(), fuelEntry.getOdometer())
+                : Double.NaN;
+    }
+
+    /**
+     * Aggregates a car's fill-ups with a timestamp in {@code [fromMillis, toMillis]} in O(log n).
+     */
+    public FuelWindow getWindow(long carId, long fromMillis, long toMillis) {
+        FuelEntryColumns columns = find(carId);
+        return columns != null ? columns.window(fromMillis, toMillis) : FuelWindow.EMPTY;
+    }
+
+    /**
+     * Returns one window per fill-up in {@code [fromMillis, toMillis]}, spanning it and up to {@code fillUps}
+     * preceding fill-ups.
+     */
+    public List<FuelWindow> getRollingWindows(long carId, int fillUps, long fromMillis, long toMillis) {
+        FuelEntryColumns columns = find(carId);
+        return columns != null ? columns.rollingWindows(fillUps, fromMillis, toMillis) : Collections.emptyList();
+    }
+
+    private FuelEntryColumns find(long carId) {
+        return shardOf(carId).fuelEntriesByCar.get(carId);
+    }
+
+    /**
+     * Looks the car up with a plain read first; {@code computeIfAbsent} is only needed for a car's first entry.
+     */
+    private FuelEntryColumns columnsFor(long carId) {
+        Shard shard = shardOf(carId);
+        FuelEntryColumns columns = shard.fuelEntriesByCar.get(carId);
+        if (columns != null) {
+            return columns;
+        }
+        return shard.fuelEntriesByCar.computeIfAbsent(carId,
+                id -> new FuelEntryColumns(shard.appendLockFor(storageShards.sequence(id))));
+    }
+
+    private Shard shardOf(long carId) {
+        return shards[storageShards.of(carId)];
+    }
+
+    /**
+     * Takes an append lock, timing the wait only when the lock is contended so uncontended appends do not read
+     * the clock.
+     */
+    private void lockForAppend(Lock lock) {
+        if (lock.tryLock()) {
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        lockWaitNanos.add(System.nanoTime() - start);
+        lockWaits.increment();
+    }
+
+    private void recordGrowth(FuelAggregate before, FuelAggregate after) {
+        entryCount.add(after.getCount() - before.getCount());
+        long size = after.getCount();
+        long largest = largestHistory.get();
+        while (size > largest && !largestHistory.compareAndSet(largest, size)) {
+            largest = largestHistory.get();
+        }
+    }
+
+    private void notifyAdded(long carId, List<FuelEntry> entries, FuelAggregate before, FuelAggregate after) {
+        for (FuelEntryListener listener : listeners) {
+            listener.onEntriesAdded(carId, entries, before, after);
+        }
+    }
+
+    private static final class Shard {
+        private final Map<Long, FuelEntryColumns> fuelEntriesByCar = new ConcurrentHashMap<>();
+        private final Lock[] appendLocks = new Lock[APPEND_LOCK_STRIPES];
+
+        Shard() {
+            Arrays.setAll(appendLocks, i -> new ReentrantLock());
+        }
+
+        /**
+         * Stripes by the car's position in the shard's id sequence, which is dense, rather than by its id.
+         */
+        Lock appendLockFor(long sequence) {
+            return appendLocks[Long.hashCode(sequence) & (APPEND_LOCK_STRIPES - 1)];
+        }
     }
 }
@@ -0,0 +1,11 @@
+package com.codehills.fueltracker.repository;
+
+/**
+ * Receives a car's fill-ups straight from the column store, one call per fill-up in timestamp order, without a
+ * {@link com.codehills.fueltracker.model.FuelEntry} being created for any of them.
+ */
+@FunctionalInterface
+public interface FuelEntryVisitor {
+
+    void visit(double liters, double price, double odometer, long timestampMillis);
+}
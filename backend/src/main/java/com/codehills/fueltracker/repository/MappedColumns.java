@@ -0,0 +1,15 @@
+package com.codehills.fueltracker.repository;
+
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Fuel entry columns of one car as views over a memory-mapped snapshot. All buffers hold the same number of
+ * values and are read with absolute gets only.
+ */
+public record MappedColumns(DoubleBuffer liters, DoubleBuffer prices, DoubleBuffer odometers, LongBuffer timestamps) {
+
+    public int size() {
+        return liters.limit();
+    }
+}
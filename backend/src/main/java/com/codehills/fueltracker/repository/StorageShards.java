@@ -0,0 +1,49 @@
+package com.codehills.fueltracker.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Partitioning of the in-memory storage. Cars and their fuel entries live in one of {@link #count()} shards,
+ * picked from the car id alone: a shard allocates the ids {@code sequence * count + shard}, so the shard of any id
+ * is {@code id % count} and no id counter is shared between shards.
+ * <p>
+ * The shard of an id does not depend on the count it was allocated with, so a restart with a different count
+ * keeps every id unique: each shard only continues past the largest id it was handed back.
+ */
+@Component
+public class StorageShards {
+    private final int count;
+
+    /**
+     * @param count number of shards; {@code 0} or less uses one per available processor
+     */
+    public StorageShards(@Value("${fueltracker.storage.shards:0}") int count) {
+        this.count = count > 0 ? count : Runtime.getRuntime().availableProcessors();
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns the shard owning a car.
+     */
+    public int of(long carId) {
+        return (int) Math.floorMod(carId, (long) count);
+    }
+
+    /**
+     * Returns the id allocated as the {@code sequence}-th car of a shard.
+     */
+    long id(int shard, long sequence) {
+        return sequence * count + shard;
+    }
+
+    /**
+     * Returns the position of an id within its shard's id sequence.
+     */
+    long sequence(long carId) {
+        return Math.floorDiv(carId, (long) count);
+    }
+}
@@ -1,75 +1,263 @@
 package com.codehills.fueltracker.service;
 
+import com.codehills.fueltracker.dto.CarPageResponse;
 import com.codehills.fueltracker.dto.CarRequest;
 import com.codehills.fueltracker.dto.CarResponse;
+import com.codehills.fueltracker.dto.ConsumptionPointResponse;
 import com.codehills.fueltracker.dto.FuelEntryRequest;
 import com.codehills.fueltracker.dto.FuelEntryResponse;
+import com.codehills.fueltracker.dto.FuelIntervalsResponse;
 import com.codehills.fueltracker.dto.FuelStatsResponse;
+import com.codehills.fueltracker.dto.FuelWindowStatsResponse;
 import com.codehills.fueltracker.exception.BadRequestException;
 import com.codehills.fueltracker.exception.ResourceNotFoundException;
 import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.ConsumptionSketch;
+import com.codehills.fueltracker.model.FuelAggregate;
 import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.model.FuelWindow;
+import com.codehills.fueltracker.repository.CarFilter;
 import com.codehills.fueltracker.repository.CarRepository;
 import com.codehills.fueltracker.repository.FuelEntryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class CarService {
+    public static final int MAX_PAGE_SIZE = 1000;
 
     private final CarRepository carRepository;
     private final FuelEntryRepository fuelEntryRepository;
+    private final Timer createCarTimer;
+    private final Timer getAllCarsTimer;
+    private final Timer getCarPageTimer;
+    private final Timer forEachCarTimer;
+    private final Timer addFuelEntryTimer;
+    private final Timer getFuelEntriesTimer;
+    private final Timer getFuelStatsTimer;
+    private final Timer getWindowStatsTimer;
+    private final Timer getConsumptionSeriesTimer;
+    private final Timer getFuelIntervalsTimer;
 
-    public CarService(CarRepository carRepository, FuelEntryRepository fuelEntryRepository) {
+    public CarService(CarRepository carRepository, FuelEntryRepository fuelEntryRepository,
+                      MeterRegistry meterRegistry) {
         this.carRepository = carRepository;
         this.fuelEntryRepository = fuelEntryRepository;
+        this.createCarTimer = timer(meterRegistry, "createCar");
+        this.getAllCarsTimer = timer(meterRegistry, "getAllCars");
+        this.getCarPageTimer = timer(meterRegistry, "getCarPage");
+        this.forEachCarTimer = timer(meterRegistry, "forEachCar");
+        this.addFuelEntryTimer = timer(meterRegistry, "addFuelEntry");
+        this.getFuelEntriesTimer = timer(meterRegistry, "getFuelEntries");
+        this.getFuelStatsTimer = timer(meterRegistry, "getFuelStats");
+        this.getWindowStatsTimer = timer(meterRegistry, "getWindowStats");
+        this.getConsumptionSeriesTimer = timer(meterRegistry, "getConsumptionSeries");
+        this.getFuelIntervalsTimer = timer(meterRegistry, "getFuelIntervals");
     }
 
     public CarResponse createCar(CarRequest request) {
-        validateCarRequest(request);
-        Car car = carRepository.save(request.getBrand().trim(), request.getModel().trim(), request.getYear());
-        return toCarResponse(car);
+        return createCarTimer.record(() -> {
+            validateCarRequest(request);
+            Car car = carRepository.save(request.getBrand().trim(), request.getModel().trim(), request.getYear());
+            return toCarResponse(car);
+        });
     }
 
     public List<CarResponse> getAllCars() {
-        return carRepository.findAll()
+        return getAllCarsTimer.record(() -> carRepository.findAll()
                 .stream()
                 .map(this::toCarResponse)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns the cars matching the filter that come after the cursor id. {@code nextCursor} is set when more
+     * matching cars follow.
+     */
+    public CarPageResponse getCarPage(CarFilter filter, long afterId, int limit) {
+        return getCarPageTimer.record(() -> {
+            validateCarFilter(filter);
+            if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+                throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+            }
+            List<Car> cars = carRepository.findPage(filter, afterId, limit + 1);
+            Long nextCursor = null;
+            if (cars.size() > limit) {
+                cars = cars.subList(0, limit);
+                nextCursor = cars.get(limit - 1).getId();
+            }
+            return new CarPageResponse(cars.stream().map(this::toCarResponse).collect(Collectors.toList()),
+                    nextCursor);
+        });
+    }
+
+    /**
+     * Hands the matching cars after the cursor id to the consumer one at a time, in id order.
+     */
+    public void forEachCar(CarFilter filter, long afterId, Consumer<CarResponse> consumer) {
+        forEachCarTimer.record(() -> {
+            validateCarFilter(filter);
+            carRepository.forEach(filter, afterId, car -> consumer.accept(toCarResponse(car)));
+        });
+    }
+
+    public void validateCarFilter(CarFilter filter) {
+        if (filter.yearFrom() != null && filter.yearTo() != null && filter.yearFrom() > filter.yearTo()) {
+            throw new BadRequestException("yearFrom must not be after yearTo");
+        }
     }
 
     public FuelEntryResponse addFuelEntry(long carId, FuelEntryRequest request) {
+        return addFuelEntryTimer.record(() -> {
+            ensureCarExists(carId);
+            validateFuelRequest(request);
+            Instant timestamp = request.getTimestamp() != null ? request.getTimestamp() : Instant.now();
+            FuelEntry entry = new FuelEntry(request.getLiters(), request.getPrice(), request.getOdometer(),
+                    timestamp);
+            fuelEntryRepository.addEntry(carId, entry);
+            return toFuelEntryResponse(entry);
+        });
+    }
+
+    /**
+     * Returns the car's fill-ups in timestamp order, optionally restricted to {@code [from, to]}.
+     */
+    public List<FuelEntryResponse> getFuelEntries(long carId, Instant from, Instant to) {
+        return getFuelEntriesTimer.record(() -> {
+            ensureCarExists(carId);
+            long fromMillis = from != null ? from.toEpochMilli() : Long.MIN_VALUE;
+            long toMillis = to != null ? to.toEpochMilli() : Long.MAX_VALUE;
+            if (fromMillis > toMillis) {
+                throw new BadRequestException("from must not be after to");
+            }
+            return fuelEntryRepository.findByCarIdBetween(carId, fromMillis, toMillis)
+                    .stream()
+                    .map(this::toFuelEntryResponse)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Returns the fleet version; the car list only changes when it does.
+     */
+    public long getCarsVersion() {
+        return carRepository.getVersion();
+    }
+
+    /**
+     * Returns the car's fuel version; its stats only change when it does.
+     */
+    public long getFuelStatsVersion(long carId) {
         ensureCarExists(carId);
-        validateFuelRequest(request);
-        FuelEntry entry = new FuelEntry(request.getLiters(), request.getPrice(), request.getOdometer(), Instant.now());
-        fuelEntryRepository.addEntry(carId, entry);
-        return toFuelEntryResponse(entry);
+        return fuelEntryRepository.getVersion(carId);
     }
 
     public FuelStatsResponse getFuelStats(long carId) {
-        ensureCarExists(carId);
-        List<FuelEntry> entries = fuelEntryRepository.findByCarId(carId);
-
-        double totalFuel = entries.stream().mapToDouble(FuelEntry::getLiters).sum();
-        double totalCost = entries.stream().mapToDouble(FuelEntry::getPrice).sum();
-        double averageConsumption = 0.0;
-
-        if (entries.size() >= 2) {
-            double minOdometer = entries.stream().min(Comparator.comparingDouble(FuelEntry::getOdometer))
-                    .map(FuelEntry::getOdometer).orElse(0.0);
-            double maxOdometer = entries.stream().max(Comparator.comparingDouble(FuelEntry::getOdometer))
-                    .map(FuelEntry::getOdometer).orElse(0.0);
-            double distance = maxOdometer - minOdometer;
+        return getFuelStatsTimer.record(() -> {
+            ensureCarExists(carId);
+            FuelAggregate aggregate = fuelEntryRepository.getAggregate(carId);
+
+            double totalFuel = aggregate.getTotalLiters();
+            double distance = aggregate.getDistance();
+            double averageConsumption = 0.0;
             if (distance > 0) {
                 averageConsumption = (totalFuel / distance) * 100.0;
             }
-        }
 
-        return new FuelStatsResponse(totalFuel, totalCost, averageConsumption);
+            return new FuelStatsResponse(totalFuel, aggregate.getTotalCost(), averageConsumption);
+        });
+    }
+
+    /**
+     * Returns totals and consumption for the fill-ups in a time window, given either as the last {@code days}
+     * days or as a {@code from}/{@code to} range. {@code to} defaults to now.
+     */
+    public FuelWindowStatsResponse getWindowStats(long carId, Integer days, Instant from, Instant to) {
+        return getWindowStatsTimer.record(() -> {
+            ensureCarExists(carId);
+            Instant end = to != null ? to : Instant.now();
+            Instant start;
+            if (days != null) {
+                if (from != null) {
+                    throw new BadRequestException("use either days or from, not both");
+                }
+                if (days <= 0) {
+                    throw new BadRequestException("days must be greater than zero");
+                }
+                start = end.minus(Duration.ofDays(days));
+            } else if (from != null) {
+                start = from;
+            } else {
+                throw new BadRequestException("days or from is required");
+            }
+            if (start.isAfter(end)) {
+                throw new BadRequestException("from must not be after to");
+            }
+
+            FuelWindow window = fuelEntryRepository.getWindow(carId, start.toEpochMilli(), end.toEpochMilli());
+            return new FuelWindowStatsResponse(start, end, window.getFillUps(), window.getTotalLiters(),
+                    window.getTotalCost(), window.getDistance(), window.getConsumptionPer100Km(),
+                    window.getCostPerKm());
+        });
+    }
+
+    /**
+     * Returns one consumption point per fill-up, computed over that fill-up and the {@code fillUps} before it.
+     * {@code from} and {@code to} optionally restrict which fill-ups get a point.
+     */
+    public List<ConsumptionPointResponse> getConsumptionSeries(long carId, int fillUps, Instant from, Instant to) {
+        return getConsumptionSeriesTimer.record(() -> {
+            ensureCarExists(carId);
+            if (fillUps <= 0) {
+                throw new BadRequestException("window must be greater than zero");
+            }
+            long fromMillis = from != null ? from.toEpochMilli() : Long.MIN_VALUE;
+            long toMillis = to != null ? to.toEpochMilli() : Long.MAX_VALUE;
+            if (fromMillis > toMillis) {
+                throw new BadRequestException("from must not be after to");
+            }
+            return fuelEntryRepository.getRollingWindows(carId, fillUps, fromMillis, toMillis)
+                    .stream()
+                    .map(window -> new ConsumptionPointResponse(Instant.ofEpochMilli(window.getLastTimestamp()),
+                            window.getLastOdometer(), window.getDistance(), window.getConsumptionPer100Km(),
+                            window.getCostPerKm()))
+                    .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Returns the consumption of every interval between consecutive fill-ups, as stored when the later fill-up
+     * was appended, with {@code from} and {@code to} optionally restricting the series. Count, minimum, maximum
+     * and median always cover the whole history and are read from the car's sketch without a scan.
+     */
+    public FuelIntervalsResponse getFuelIntervals(long carId, Instant from, Instant to) {
+        return getFuelIntervalsTimer.record(() -> {
+            ensureCarExists(carId);
+            long fromMillis = from != null ? from.toEpochMilli() : Long.MIN_VALUE;
+            long toMillis = to != null ? to.toEpochMilli() : Long.MAX_VALUE;
+            if (fromMillis > toMillis) {
+                throw new BadRequestException("from must not be after to");
+            }
+            List<ConsumptionPointResponse> intervals = fuelEntryRepository.getIntervals(carId, fromMillis, toMillis)
+                    .stream()
+                    .map(interval -> new ConsumptionPointResponse(Instant.ofEpochMilli(interval.getTimestamp()),
+                            interval.getOdometer(), interval.getDistance(), interval.getConsumptionPer100Km(),
+                            interval.getCostPerKm()))
+                    .collect(Collectors.toList());
+            ConsumptionSketch sketch = fuelEntryRepository.getConsumptionSketch(carId);
+            if (sketch.getCount() == 0) {
+                return new FuelIntervalsResponse(intervals, 0, null, null, null);
+            }
+            return new FuelIntervalsResponse(intervals, sketch.getCount(), sketch.getMin(), sketch.getMax(),
+                    sketch.getMedian());
+        });
     }
 
     private void validateCarRequest(CarRequest request) {
@@ -84,7 +272,7 @@ public class CarService {
         }
     }
 
-    private void validateFuelRequest(FuelEntryRequest request) {
+    void validateFuelRequest(FuelEntryRequest request) {
         if (request.getLiters() == null || request.getPrice() == null || request.getOdometer() == null) {
             throw new BadRequestException("liters, price, and odometer are required");
         }
@@ -103,6 +291,13 @@ public class CarService {
         carRepository.findById(carId).orElseThrow(() -> new ResourceNotFoundException("Car not found: " + carId));
     }
 
+    private static Timer timer(MeterRegistry meterRegistry, String method) {
+        return Timer.builder("fueltracker.service")
+                .description("Time spent in CarService methods")
+                .tag("method", method)
+                .register(meterRegistry);
+    }
+
     private CarResponse toCarResponse(Car car) {
         return new CarResponse(car.getId(), car.getBrand(), car.getModel(), car.getYear());
     }
@@ -0,0 +1,180 @@
+package com.codehills.fueltracker.service;
+
+import com.codehills.fueltracker.dto.CarResponse;
+import com.codehills.fueltracker.dto.ChangeBatchResponse;
+import com.codehills.fueltracker.dto.ChangeResponse;
+import com.codehills.fueltracker.dto.FuelEntryResponse;
+import com.codehills.fueltracker.exception.BadRequestException;
+import com.codehills.fueltracker.exception.ResourceGoneException;
+import com.codehills.fueltracker.exception.ResourceNotFoundException;
+import com.codehills.fueltracker.format.PayloadFormat;
+import com.codehills.fueltracker.format.PayloadMappers;
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.replication.Change;
+import com.codehills.fueltracker.replication.ChangeFeed;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves the {@link ChangeFeed} to followers. A read that finds no new change is parked without a thread until
+ * one is published or the wait runs out, and then answered with whatever is there, possibly nothing.
+ * <p>
+ * The feed only holds writes made since this process started, so a follower starts from a bootstrap copy of
+ * everything the leader holds, recovered data included, and tails the feed from the position the copy was cut at.
+ */
+@Service
+public class ChangeFeedService {
+    public static final int MAX_BATCH_SIZE = 10_000;
+
+    private static final int BOOTSTRAP_BUFFER_BYTES = 1 << 16;
+
+    private final ChangeFeed changeFeed;
+    private final CarRepository carRepository;
+    private final FuelEntryRepository fuelEntryRepository;
+    private final PayloadMappers payloadMappers;
+    private final long maxWaitMillis;
+
+    public ChangeFeedService(ChangeFeed changeFeed, CarRepository carRepository,
+                             FuelEntryRepository fuelEntryRepository, PayloadMappers payloadMappers,
+                             @Value("${fueltracker.feed.max-wait:PT30S}") Duration maxWait) {
+        this.changeFeed = changeFeed;
+        this.carRepository = carRepository;
+        this.fuelEntryRepository = fuelEntryRepository;
+        this.payloadMappers = payloadMappers;
+        this.maxWaitMillis = maxWait.toMillis();
+    }
+
+    public String epoch() {
+        return changeFeed.epoch();
+    }
+
+    /**
+     * Returns the feed position a bootstrap copy started now is cut at. It has to be taken before the copy is
+     * written, so every change before it is in the copy.
+     */
+    public long bootstrapPosition() {
+        ensureEnabled();
+        return changeFeed.head();
+    }
+
+    /**
+     * Writes every car, each followed by all of its fuel entries with their positions in the car's append order,
+     * as a sequence of changes. Cars and entries are read once in-flight writes have finished, so the copy holds
+     * every change before {@code position}; it may also hold some later ones, which a follower skips when they
+     * reach it through the feed. A last change without car or entry ends the copy, so a reader can tell a complete
+     * copy from one that was cut off.
+     */
+    public void writeBootstrap(OutputStream out, PayloadFormat format, long position) throws IOException {
+        ObjectWriter writer = payloadMappers.forFormat(format).writer();
+        if (format == PayloadFormat.JSON) {
+            writer = writer.withRootValueSeparator("\n");
+        }
+        long copiedAt = System.currentTimeMillis();
+        try (SequenceWriter values = writer.writeValues(new BufferedOutputStream(out, BOOTSTRAP_BUFFER_BYTES))) {
+            for (Car car : carRepository.findAllForSnapshot()) {
+                values.write(new ChangeResponse(position, copiedAt, car.getId(),
+                        new CarResponse(car.getId(), car.getBrand(), car.getModel(), car.getYear()), null, null));
+                List<FuelEntry> entries = fuelEntryRepository.findByCarIdForSnapshot(car.getId());
+                for (int i = 0; i < entries.size(); i++) {
+                    FuelEntry entry = entries.get(i);
+                    values.write(new ChangeResponse(position, copiedAt, car.getId(), null, (long) i,
+                            new FuelEntryResponse(entry.getLiters(), entry.getPrice(), entry.getOdometer(),
+                                    entry.getTimestamp())));
+                }
+            }
+            values.write(new ChangeResponse(position, copiedAt, 0, null, null, null));
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} changes starting at {@code from}. If the change at {@code from} has not been
+     * published yet, waits up to {@code waitMillis}, capped at {@code fueltracker.feed.max-wait}, for it. A follower
+     * passes the epoch of the feed it has been reading, if any, and gets {@code 410 Gone} once the leader has
+     * restarted with a new feed.
+     */
+    public DeferredResult<ChangeBatchResponse> poll(String epoch, long from, int limit, long waitMillis) {
+        validate(epoch, from, limit);
+        long timeout = Math.min(waitMillis, maxWaitMillis);
+        if (timeout <= 0) {
+            DeferredResult<ChangeBatchResponse> result = new DeferredResult<>();
+            result.setResult(batch(from, limit));
+            return result;
+        }
+        DeferredResult<ChangeBatchResponse> result = new DeferredResult<>(timeout, () -> batch(from, limit));
+        answerWhenAvailable(result, from, limit);
+        return result;
+    }
+
+    private void answerWhenAvailable(DeferredResult<ChangeBatchResponse> result, long from, int limit) {
+        if (result.isSetOrExpired()) {
+            return;
+        }
+        ChangeBatchResponse batch;
+        try {
+            batch = batch(from, limit);
+        } catch (RuntimeException ex) {
+            result.setErrorResult(ex);
+            return;
+        }
+        if (!batch.getChanges().isEmpty()) {
+            result.setResult(batch);
+            return;
+        }
+        changeFeed.awaitChange(from).thenRunAsync(() -> answerWhenAvailable(result, from, limit));
+    }
+
+    private void ensureEnabled() {
+        if (!changeFeed.isEnabled()) {
+            throw new ResourceNotFoundException("The change feed is disabled");
+        }
+    }
+
+    private void validate(String epoch, long from, int limit) {
+        ensureEnabled();
+        if (epoch != null && !epoch.equals(changeFeed.epoch())) {
+            throw new ResourceGoneException("The feed of epoch " + epoch
+                    + " ended with a restart; the current epoch is " + changeFeed.epoch());
+        }
+        if (from < 0 || from > changeFeed.head()) {
+            throw new BadRequestException("from must be between 0 and the feed head " + changeFeed.head());
+        }
+        if (limit < 1 || limit > MAX_BATCH_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_BATCH_SIZE);
+        }
+    }
+
+    private ChangeBatchResponse batch(long from, int limit) {
+        List<Change> changes = changeFeed.read(from, limit);
+        List<ChangeResponse> responses = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            responses.add(toResponse(change));
+        }
+        // Read after the changes, so the head is never behind them.
+        return new ChangeBatchResponse(changeFeed.epoch(), from, from + changes.size(), changeFeed.head(), responses);
+    }
+
+    private static ChangeResponse toResponse(Change change) {
+        Car car = change.getCar();
+        if (car != null) {
+            return new ChangeResponse(change.getSequence(), change.getPublishedAt(), change.getCarId(),
+                    new CarResponse(car.getId(), car.getBrand(), car.getModel(), car.getYear()), null, null);
+        }
+        FuelEntry entry = change.getEntry();
+        return new ChangeResponse(change.getSequence(), change.getPublishedAt(), change.getCarId(), null,
+                change.getEntrySequence(),
+                new FuelEntryResponse(entry.getLiters(), entry.getPrice(), entry.getOdometer(), entry.getTimestamp()));
+    }
+}
@@ -0,0 +1,105 @@
+package com.codehills.fueltracker.service;
+
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelAggregate;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.repository.CarListener;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryListener;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fleet totals kept up to date from repository notifications. Every append adds the difference between the
+ * car's running totals before and after the change, so reading the rollup costs one pass over the groups
+ * instead of one over the cars. Groups are read one at a time, so a read racing with appends may see some
+ * groups slightly ahead of others.
+ */
+@Component
+public class FleetRollup implements CarListener, FuelEntryListener {
+    private final Cell total = new Cell();
+    private final Map<Integer, Cell> byBrand = new ConcurrentHashMap<>();
+    private final Map<Long, Cell> byModel = new ConcurrentHashMap<>();
+    private final Map<Integer, Cell> byYear = new ConcurrentHashMap<>();
+    private final CarRepository carRepository;
+
+    public FleetRollup(CarRepository carRepository, FuelEntryRepository fuelEntryRepository) {
+        this.carRepository = carRepository;
+        carRepository.addListener(this);
+        fuelEntryRepository.addListener(this);
+    }
+
+    @Override
+    public void onCarAdded(Car car) {
+        apply(car, 1, FuelAggregate.EMPTY, FuelAggregate.EMPTY);
+    }
+
+    @Override
+    public void onEntriesAdded(long carId, List<FuelEntry> entries, FuelAggregate before, FuelAggregate after) {
+        onHistoryRestored(carId, before, after);
+    }
+
+    @Override
+    public void onHistoryRestored(long carId, FuelAggregate before, FuelAggregate after) {
+        carRepository.findById(carId).ifPresent(car -> apply(car, 0, before, after));
+    }
+
+    FleetStatsAccumulator snapshot() {
+        FleetStatsAccumulator accumulator = new FleetStatsAccumulator();
+        total.addTo(accumulator.total());
+        byBrand.forEach((brand, cell) -> cell.addTo(accumulator.brand(brand)));
+        byModel.forEach((model, cell) -> cell.addTo(accumulator.model(model)));
+        byYear.forEach((year, cell) -> cell.addTo(accumulator.year(year)));
+        return accumulator;
+    }
+
+    private void apply(Car car, long carsDelta, FuelAggregate before, FuelAggregate after) {
+        total.apply(carsDelta, before, after);
+        byBrand.computeIfAbsent(car.getBrandCode(), key -> new Cell()).apply(carsDelta, before, after);
+        byModel.computeIfAbsent(FleetStatsAccumulator.modelKey(car), key -> new Cell())
+                .apply(carsDelta, before, after);
+        byYear.computeIfAbsent(car.getYear(), key -> new Cell()).apply(carsDelta, before, after);
+    }
+
+    private static final class Cell {
+        private final LongAdder cars = new LongAdder();
+        private final LongAdder fillUps = new LongAdder();
+        private final DoubleAdder liters = new DoubleAdder();
+        private final DoubleAdder cost = new DoubleAdder();
+        private final DoubleAdder distance = new DoubleAdder();
+        private final DoubleAdder consumedLiters = new DoubleAdder();
+
+        void apply(long carsDelta, FuelAggregate before, FuelAggregate after) {
+            if (carsDelta != 0) {
+                cars.add(carsDelta);
+            }
+            if (after.getCount() == before.getCount()) {
+                return;
+            }
+            fillUps.add(after.getCount() - before.getCount());
+            liters.add(after.getTotalLiters() - before.getTotalLiters());
+            cost.add(after.getTotalCost() - before.getTotalCost());
+            distance.add(after.getDistance() - before.getDistance());
+            consumedLiters.add(consumedLiters(after) - consumedLiters(before));
+        }
+
+        void addTo(FleetTotals totals) {
+            totals.cars += cars.sum();
+            totals.fillUps += fillUps.sum();
+            totals.liters += liters.sum();
+            totals.cost += cost.sum();
+            totals.distance += distance.sum();
+            totals.consumedLiters += consumedLiters.sum();
+        }
+
+        private static double consumedLiters(FuelAggregate aggregate) {
+            return aggregate.getDistance() > 0 ? aggregate.getTotalLiters() : 0.0;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.codehills.fueltracker.service;
+
+import com.codehills.fueltracker.dto.FleetGroupStatsResponse;
+import com.codehills.fueltracker.dto.FleetStatsResponse;
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelAggregate;
+import com.codehills.fueltracker.model.NameDictionary;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Fleet totals plus per-brand, per-model and per-year breakdowns. Not thread-safe; parallel computations give
+ * every partition its own instance and {@link #merge} them. Groups are keyed by dictionary codes and only
+ * decoded to names for the response.
+ */
+final class FleetStatsAccumulator {
+    private final FleetTotals total = new FleetTotals();
+    private final Map<Integer, FleetTotals> byBrand = new HashMap<>();
+    private final Map<Long, FleetTotals> byModel = new HashMap<>();
+    private final Map<Integer, FleetTotals> byYear = new HashMap<>();
+
+    void add(Car car, FuelAggregate aggregate) {
+        total.add(aggregate);
+        byBrand.computeIfAbsent(car.getBrandCode(), key -> new FleetTotals()).add(aggregate);
+        byModel.computeIfAbsent(modelKey(car), key -> new FleetTotals()).add(aggregate);
+        byYear.computeIfAbsent(car.getYear(), key -> new FleetTotals()).add(aggregate);
+    }
+
+    void merge(FleetStatsAccumulator other) {
+        total.merge(other.total);
+        other.byBrand.forEach((key, totals) -> byBrand.computeIfAbsent(key, k -> new FleetTotals()).merge(totals));
+        other.byModel.forEach((key, totals) -> byModel.computeIfAbsent(key, k -> new FleetTotals()).merge(totals));
+        other.byYear.forEach((key, totals) -> byYear.computeIfAbsent(key, k -> new FleetTotals()).merge(totals));
+    }
+
+    FleetTotals total() {
+        return total;
+    }
+
+    FleetTotals brand(int brand) {
+        return byBrand.computeIfAbsent(brand, key -> new FleetTotals());
+    }
+
+    FleetTotals model(long modelKey) {
+        return byModel.computeIfAbsent(modelKey, key -> new FleetTotals());
+    }
+
+    FleetTotals year(int year) {
+        return byYear.computeIfAbsent(year, key -> new FleetTotals());
+    }
+
+    FleetStatsResponse toResponse() {
+        return new FleetStatsResponse(total.cars, total.fillUps, total.liters, total.cost, total.distance,
+                total.averageConsumption(), groups(byBrand, NameDictionary.BRANDS::decode),
+                groups(byModel, FleetStatsAccumulator::modelName), groups(byYear));
+    }
+
+    /**
+     * Returns the group key of the car's brand and model.
+     */
+    static long modelKey(Car car) {
+        return (long) car.getBrandCode() << 32 | car.getModelCode();
+    }
+
+    private static String modelName(long modelKey) {
+        return NameDictionary.BRANDS.decode((int) (modelKey >>> 32)) + " "
+                + NameDictionary.MODELS.decode((int) modelKey);
+    }
+
+    /**
+     * Returns the groups ordered by name, decoding each key once.
+     */
+    private static <K> List<FleetGroupStatsResponse> groups(Map<K, FleetTotals> totals, Function<K, String> name) {
+        List<FleetGroupStatsResponse> groups = new ArrayList<>(totals.size());
+        totals.forEach((key, value) -> groups.add(value.toGroupResponse(name.apply(key))));
+        groups.sort(Comparator.comparing(FleetGroupStatsResponse::getKey));
+        return groups;
+    }
+
+    /**
+     * Returns the year groups in numeric order.
+     */
+    private static List<FleetGroupStatsResponse> groups(Map<Integer, FleetTotals> totals) {
+        List<FleetGroupStatsResponse> groups = new ArrayList<>(totals.size());
+        new TreeMap<>(totals).forEach((key, value) -> groups.add(value.toGroupResponse(String.valueOf(key))));
+        return groups;
+    }
+}
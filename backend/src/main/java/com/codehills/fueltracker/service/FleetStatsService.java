@@ -0,0 +1,101 @@
+package com.codehills.fueltracker.service;
+
+import com.codehills.fueltracker.dto.FleetStatsResponse;
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+@Service
+public class FleetStatsService {
+    private static final int PARTITION_SIZE = 4096;
+
+    private final CarRepository carRepository;
+    private final FuelEntryRepository fuelEntryRepository;
+    private final FleetRollup fleetRollup;
+
+    public FleetStatsService(CarRepository carRepository, FuelEntryRepository fuelEntryRepository,
+                             FleetRollup fleetRollup) {
+        this.carRepository = carRepository;
+        this.fuelEntryRepository = fuelEntryRepository;
+        this.fleetRollup = fleetRollup;
+    }
+
+    /**
+     * Returns totals across every car, broken down by brand, model and year. With {@code rollup} the answer comes
+     * from the incrementally maintained {@link FleetRollup}; otherwise it is computed from the per-car aggregates,
+     * fanning out over the storage shards and splitting each shard's cars into partitions that are summed in
+     * parallel on the common fork-join pool.
+     */
+    public FleetStatsResponse getFleetStats(boolean rollup) {
+        FleetStatsAccumulator accumulator = rollup ? fleetRollup.snapshot() : compute();
+        return accumulator.toResponse();
+    }
+
+    private FleetStatsAccumulator compute() {
+        return ForkJoinPool.commonPool().invoke(new FleetTask());
+    }
+
+    private final class FleetTask extends RecursiveTask<FleetStatsAccumulator> {
+        @Override
+        protected FleetStatsAccumulator compute() {
+            List<ShardTask> shards = new ArrayList<>(carRepository.shardCount());
+            for (int shard = 0; shard < carRepository.shardCount(); shard++) {
+                shards.add(new ShardTask(shard));
+            }
+            invokeAll(shards);
+            FleetStatsAccumulator merged = new FleetStatsAccumulator();
+            shards.forEach(task -> merged.merge(task.join()));
+            return merged;
+        }
+    }
+
+    private final class ShardTask extends RecursiveTask<FleetStatsAccumulator> {
+        private final int shard;
+
+        ShardTask(int shard) {
+            this.shard = shard;
+        }
+
+        @Override
+        protected FleetStatsAccumulator compute() {
+            Car[] cars = carRepository.findAllInShard(shard).toArray(new Car[0]);
+            return new PartitionTask(cars, 0, cars.length).compute();
+        }
+    }
+
+    private final class PartitionTask extends RecursiveTask<FleetStatsAccumulator> {
+        private final Car[] cars;
+        private final int from;
+        private final int to;
+
+        PartitionTask(Car[] cars, int from, int to) {
+            this.cars = cars;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected FleetStatsAccumulator compute() {
+            if (to - from <= PARTITION_SIZE) {
+                FleetStatsAccumulator accumulator = new FleetStatsAccumulator();
+                for (int i = from; i < to; i++) {
+                    accumulator.add(cars[i], fuelEntryRepository.getAggregate(cars[i].getId()));
+                }
+                return accumulator;
+            }
+            int middle = (from + to) >>> 1;
+            PartitionTask left = new PartitionTask(cars, from, middle);
+            left.fork();
+            FleetStatsAccumulator right = new PartitionTask(cars, middle, to).compute();
+            FleetStatsAccumulator merged = left.join();
+            merged.merge(right);
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.codehills.fueltracker.service;
+
+import com.codehills.fueltracker.dto.FleetGroupStatsResponse;
+import com.codehills.fueltracker.model.FuelAggregate;
+
+/**
+ * Mutable sums over a set of cars. Consumption only counts fuel from cars that have driven a measurable
+ * distance, so a car with a single fill-up does not inflate the average.
+ */
+final class FleetTotals {
+    long cars;
+    long fillUps;
+    double liters;
+    double cost;
+    double distance;
+    double consumedLiters;
+
+    void add(FuelAggregate aggregate) {
+        cars++;
+        fillUps += aggregate.getCount();
+        liters += aggregate.getTotalLiters();
+        cost += aggregate.getTotalCost();
+        double carDistance = aggregate.getDistance();
+        if (carDistance > 0) {
+            distance += carDistance;
+            consumedLiters += aggregate.getTotalLiters();
+        }
+    }
+
+    void merge(FleetTotals other) {
+        cars += other.cars;
+        fillUps += other.fillUps;
+        liters += other.liters;
+        cost += other.cost;
+        distance += other.distance;
+        consumedLiters += other.consumedLiters;
+    }
+
+    double averageConsumption() {
+        return distance > 0 ? (consumedLiters / distance) * 100.0 : 0.0;
+    }
+
+    FleetGroupStatsResponse toGroupResponse(String key) {
+        return new FleetGroupStatsResponse(key, cars, fillUps, liters, cost, distance, averageConsumption());
+    }
+}
@@ -0,0 +1,218 @@
+package com.codehills.fueltracker.service;
+
+import com.codehills.fueltracker.exception.BadRequestException;
+import com.codehills.fueltracker.format.ExportFormat;
+import com.codehills.fueltracker.format.PayloadFormat;
+import com.codehills.fueltracker.format.PayloadMappers;
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.repository.CarFilter;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.codehills.fueltracker.repository.FuelEntryVisitor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports cars and their fill-ups in the CLI's import format: a {@code car} row per car in id order, each
+ * followed by a {@code fuel} row per fill-up in timestamp order, so an export can be imported into another
+ * backend as it is.
+ * <p>
+ * Rows are written as they are read into a buffer of {@code fueltracker.export.buffer-bytes}, which goes to the
+ * response whenever it fills up, optionally through gzip. Fill-ups are read straight from the column store,
+ * so nothing else is held per row and memory stays flat however large the export. Cars are read from the live
+ * store and every car's fill-ups are a point-in-time view; an export started after {@code after} resumes one
+ * that stopped after that car.
+ */
+@Service
+public class FuelExportService {
+    private static final String CSV_HEADER = "type,ref,brand,model,year,car,liters,price,odometer,timestamp\n";
+
+    private final CarRepository carRepository;
+    private final FuelEntryRepository fuelEntryRepository;
+    private final JsonFactory jsonFactory;
+    private final int bufferBytes;
+
+    public FuelExportService(CarRepository carRepository, FuelEntryRepository fuelEntryRepository,
+                             PayloadMappers payloadMappers,
+                             @Value("${fueltracker.export.buffer-bytes:65536}") int bufferBytes) {
+        this.carRepository = carRepository;
+        this.fuelEntryRepository = fuelEntryRepository;
+        this.jsonFactory = payloadMappers.forFormat(PayloadFormat.JSON).getFactory();
+        this.bufferBytes = bufferBytes;
+    }
+
+    /**
+     * Checks the export parameters before anything is written, so bad ones are answered with {@code 400}.
+     */
+    public void validate(long after, Instant from, Instant to) {
+        if (after < 0) {
+            throw new BadRequestException("after must not be negative");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestException("from must not be after to");
+        }
+    }
+
+    /**
+     * Writes the cars with an id greater than {@code after} and their fill-ups with a timestamp in
+     * {@code [from, to]}, either bound being optional. Cars are exported even if none of their fill-ups is.
+     */
+    public void export(OutputStream out, ExportFormat format, boolean gzip, long after, Instant from, Instant to)
+            throws IOException {
+        validate(after, from, to);
+        long fromMillis = from != null ? from.toEpochMilli() : Long.MIN_VALUE;
+        long toMillis = to != null ? to.toEpochMilli() : Long.MAX_VALUE;
+        OutputStream buffered = gzip
+                ? new GZIPOutputStream(out, bufferBytes)
+                : new BufferedOutputStream(out, bufferBytes);
+        try (RowWriter writer = format == ExportFormat.CSV
+                ? new CsvRowWriter(buffered)
+                : new NdjsonRowWriter(buffered)) {
+            carRepository.forEach(CarFilter.ANY, after, car -> {
+                writer.car(car);
+                fuelEntryRepository.forEachBetween(car.getId(), fromMillis, toMillis, writer);
+            });
+        }
+    }
+
+    /**
+     * Writes rows of one format. Each visited fill-up is written as a row of the car passed to {@link #car(Car)}
+     * last. Failures to write, typically a client that went away, end the export with an
+     * {@link UncheckedIOException}.
+     */
+    private interface RowWriter extends FuelEntryVisitor, Closeable {
+        void car(Car car);
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+        private String carId;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(CSV_HEADER);
+        }
+
+        @Override
+        public void car(Car car) {
+            try {
+                carId = Long.toString(car.getId());
+                writer.write("car,");
+                writer.write(carId);
+                writer.write(',');
+                writeText(car.getBrand());
+                writer.write(',');
+                writeText(car.getModel());
+                writer.write(',');
+                writer.write(Integer.toString(car.getYear()));
+                writer.write(",,,,,\n");
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void visit(double liters, double price, double odometer, long timestampMillis) {
+            try {
+                writer.write("fuel,,,,,");
+                writer.write(carId);
+                writer.write(',');
+                writer.write(Double.toString(liters));
+                writer.write(',');
+                writer.write(Double.toString(price));
+                writer.write(',');
+                writer.write(Double.toString(odometer));
+                writer.write(',');
+                writer.write(Instant.ofEpochMilli(timestampMillis).toString());
+                writer.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * Quotes a value that contains a separator, quote or line break, doubling its quotes.
+         */
+        private void writeText(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private long carId;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            this.generator = jsonFactory.createGenerator(out);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void car(Car car) {
+            carId = car.getId();
+            try {
+                generator.writeStartObject();
+                generator.writeStringField("type", "car");
+                generator.writeNumberField("ref", car.getId());
+                generator.writeStringField("brand", car.getBrand());
+                generator.writeStringField("model", car.getModel());
+                generator.writeNumberField("year", car.getYear());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void visit(double liters, double price, double odometer, long timestampMillis) {
+            try {
+                generator.writeStartObject();
+                generator.writeStringField("type", "fuel");
+                generator.writeNumberField("car", carId);
+                generator.writeNumberField("liters", liters);
+                generator.writeNumberField("price", price);
+                generator.writeNumberField("odometer", odometer);
+                generator.writeStringField("timestamp", Instant.ofEpochMilli(timestampMillis).toString());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+}
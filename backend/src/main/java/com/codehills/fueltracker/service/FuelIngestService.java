@@ -0,0 +1,211 @@
+package com.codehills.fueltracker.service;
+
+import com.codehills.fueltracker.dto.BulkFuelEntryResponse;
+import com.codehills.fueltracker.dto.FuelEntryRequest;
+import com.codehills.fueltracker.exception.BadRequestException;
+import com.codehills.fueltracker.format.PayloadFormat;
+import com.codehills.fueltracker.format.PayloadMappers;
+import com.codehills.fueltracker.metrics.ErrorMetrics;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Ingests fuel entries from a JSON array or an NDJSON stream of
+ * {@code {carId, liters, price, odometer, timestamp}} records, or from the same records encoded as a Smile or CBOR
+ * array or sequence.
+ * <p>
+ * The body is read token by token, so only the current chunk of accepted records is held in memory. Accepted
+ * records are grouped by car and every group is appended with one repository call once the chunk is full.
+ * <p>
+ * Appended groups stay appended. When storing a group fails, ingestion stops there and the response reports it as
+ * a final rejection, with every record stored before it counted as accepted, so a client knows how far the body got.
+ */
+@Service
+public class FuelIngestService {
+    private static final int CHUNK_SIZE = 1024;
+
+    private final CarService carService;
+    private final CarRepository carRepository;
+    private final FuelEntryRepository fuelEntryRepository;
+    private final PayloadMappers payloadMappers;
+    private final ErrorMetrics errorMetrics;
+
+    public FuelIngestService(CarService carService, CarRepository carRepository,
+                             FuelEntryRepository fuelEntryRepository, PayloadMappers payloadMappers,
+                             ErrorMetrics errorMetrics) {
+        this.carService = carService;
+        this.carRepository = carRepository;
+        this.fuelEntryRepository = fuelEntryRepository;
+        this.payloadMappers = payloadMappers;
+        this.errorMetrics = errorMetrics;
+    }
+
+    public BulkFuelEntryResponse ingest(InputStream body, PayloadFormat format) {
+        BulkFuelEntryResponse response = new BulkFuelEntryResponse();
+        Map<Long, List<FuelEntry>> chunk = new LinkedHashMap<>();
+        RecordReader reader = new RecordReader();
+        int chunkSize = 0;
+        long index = 0;
+        try (JsonParser parser = payloadMappers.forFormat(format).getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            for (; token != null && token != JsonToken.END_ARRAY; token = parser.nextToken(), index++) {
+                try {
+                    reader.read(parser);
+                    if (carRepository.findById(reader.carId).isEmpty()) {
+                        errorMetrics.notFound();
+                        response.addRejection(index, "Car not found: " + reader.carId);
+                        continue;
+                    }
+                    carService.validateFuelRequest(reader.request);
+                } catch (BadRequestException ex) {
+                    errorMetrics.validationFailed();
+                    response.addRejection(index, ex.getMessage());
+                    continue;
+                }
+                chunk.computeIfAbsent(reader.carId, id -> new ArrayList<>()).add(reader.toEntry());
+                if (++chunkSize == CHUNK_SIZE) {
+                    if (!flush(chunk, index + 1, response)) {
+                        return response;
+                    }
+                    chunkSize = 0;
+                }
+            }
+        } catch (JsonProcessingException ex) {
+            errorMetrics.validationFailed();
+            response.addRejection(index,
+                    "Malformed " + format.label() + ", ingestion stopped: " + ex.getOriginalMessage());
+        } catch (IOException ex) {
+            response.addRejection(index, "Failed to read the body, ingestion stopped: " + ex.getMessage());
+        }
+        flush(chunk, index, response);
+        return response;
+    }
+
+    /**
+     * Appends the chunk one car at a time and counts every stored group as accepted. A failed append stops
+     * ingestion: it is reported as a rejection at {@code index}, the first record not ingested, the rest of the
+     * chunk is dropped and {@code false} is returned.
+     */
+    private boolean flush(Map<Long, List<FuelEntry>> chunk, long index, BulkFuelEntryResponse response) {
+        try {
+            for (Map.Entry<Long, List<FuelEntry>> group : chunk.entrySet()) {
+                fuelEntryRepository.addEntries(group.getKey(), group.getValue());
+                response.setAccepted(response.getAccepted() + group.getValue().size());
+            }
+            return true;
+        } catch (RuntimeException ex) {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            response.addRejection(index, "Storing fuel entries failed after " + response.getAccepted()
+                    + " accepted records, ingestion stopped: " + cause.getMessage());
+            return false;
+        } finally {
+            chunk.clear();
+        }
+    }
+
+    /**
+     * Reads one record into reusable fields. Type errors are collected and reported once the whole record has
+     * been consumed, so the parser always ends up positioned after the record.
+     */
+    private static final class RecordReader {
+        private final FuelEntryRequest request = new FuelEntryRequest();
+        private Long carId;
+        private Instant timestamp;
+
+        void read(JsonParser parser) throws IOException {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                throw new BadRequestException("record must be a JSON object");
+            }
+            carId = null;
+            timestamp = null;
+            request.setLiters(null);
+            request.setPrice(null);
+            request.setOdometer(null);
+            String error = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "carId" -> {
+                        if (value == JsonToken.VALUE_NUMBER_INT) {
+                            carId = parser.getLongValue();
+                        } else {
+                            error = "carId must be a number";
+                        }
+                    }
+                    case "liters", "price", "odometer" -> {
+                        if (value.isNumeric()) {
+                            setNumber(field, parser.getDoubleValue());
+                        } else {
+                            error = field + " must be a number";
+                        }
+                    }
+                    case "timestamp" -> error = readTimestamp(parser, value, error);
+                    default -> {
+                        // unknown fields are ignored
+                    }
+                }
+                if (value.isStructStart()) {
+                    parser.skipChildren();
+                }
+            }
+            if (error != null) {
+                throw new BadRequestException(error);
+            }
+            if (carId == null) {
+                throw new BadRequestException("carId is required");
+            }
+        }
+
+        private String readTimestamp(JsonParser parser, JsonToken value, String error) throws IOException {
+            if (value == JsonToken.VALUE_NUMBER_INT) {
+                timestamp = Instant.ofEpochMilli(parser.getLongValue());
+                return error;
+            }
+            if (value == JsonToken.VALUE_STRING) {
+                try {
+                    timestamp = Instant.parse(parser.getText());
+                    return error;
+                } catch (DateTimeParseException ex) {
+                    return "timestamp must be an ISO-8601 instant or epoch milliseconds";
+                }
+            }
+            return "timestamp must be an ISO-8601 instant or epoch milliseconds";
+        }
+
+        private void setNumber(String field, double value) {
+            switch (field) {
+                case "liters" -> request.setLiters(value);
+                case "price" -> request.setPrice(value);
+                default -> request.setOdometer(value);
+            }
+        }
+
+        FuelEntry toEntry() {
+            return new FuelEntry(request.getLiters(), request.getPrice(), request.getOdometer(),
+                    timestamp != null ? timestamp : Instant.now());
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.codehills.fueltracker.servlet;
+
+import com.codehills.fueltracker.dto.FuelStatsResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Writes {@link FuelStatsResponse} and error bodies as UTF-8 JSON into a reusable byte buffer, producing the same
+ * text as Jackson without going through reflection or an intermediate {@code String}.
+ * <p>
+ * Instances are not thread-safe. {@link #acquire()} hands out one per platform thread through a thread local;
+ * virtual threads are short-lived, so they borrow from a small shared pool instead and give the writer back with
+ * {@link #release()}.
+ */
+public final class FuelStatsJsonWriter {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final double PLAIN_LOWER_LIMIT = 1e-3;
+    private static final double PLAIN_UPPER_LIMIT = 1e7;
+    private static final double MAX_EXACT_LONG = 0x1p53;
+    private static final int MAX_SCALE = 15;
+    private static final double[] DOUBLE_POWERS_OF_TEN = new double[MAX_SCALE + 1];
+    private static final long[] LONG_POWERS_OF_TEN = new long[MAX_SCALE + 1];
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+    private static final ThreadLocal<FuelStatsJsonWriter> LOCAL = ThreadLocal.withInitial(FuelStatsJsonWriter::new);
+    private static final AtomicReferenceArray<FuelStatsJsonWriter> SHARED =
+            new AtomicReferenceArray<>(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+
+    static {
+        for (int i = 0; i <= MAX_SCALE; i++) {
+            LONG_POWERS_OF_TEN[i] = i == 0 ? 1 : LONG_POWERS_OF_TEN[i - 1] * 10;
+            DOUBLE_POWERS_OF_TEN[i] = LONG_POWERS_OF_TEN[i];
+        }
+    }
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int length;
+    private final StringBuilder digits = new StringBuilder(32);
+
+    public static FuelStatsJsonWriter acquire() {
+        if (!Thread.currentThread().isVirtual()) {
+            return LOCAL.get();
+        }
+        int start = ThreadLocalRandom.current().nextInt(SHARED.length());
+        for (int i = 0; i < SHARED.length(); i++) {
+            FuelStatsJsonWriter writer = SHARED.getAndSet((start + i) % SHARED.length(), null);
+            if (writer != null) {
+                return writer;
+            }
+        }
+        return new FuelStatsJsonWriter();
+    }
+
+    /**
+     * Returns a writer obtained from {@link #acquire()} on the same thread.
+     */
+    public void release() {
+        if (!Thread.currentThread().isVirtual()) {
+            return;
+        }
+        for (int i = 0; i < SHARED.length(); i++) {
+            if (SHARED.compareAndSet(i, null, this)) {
+                return;
+            }
+        }
+    }
+
+    public FuelStatsJsonWriter stats(FuelStatsResponse stats) {
+        length = 0;
+        writeAscii("{\"totalFuelLiters\":");
+        writeDouble(stats.getTotalFuelLiters());
+        writeAscii(",\"totalCost\":");
+        writeDouble(stats.getTotalCost());
+        writeAscii(",\"averageConsumptionPer100Km\":");
+        writeDouble(stats.getAverageConsumptionPer100Km());
+        writeByte('}');
+        return this;
+    }
+
+    public FuelStatsJsonWriter error(String message) {
+        length = 0;
+        writeAscii("{\"message\":");
+        writeString(message);
+        writeByte('}');
+        return this;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private void writeDouble(double value) {
+        if (!Double.isFinite(value)) {
+            writeByte('"');
+            writeAscii(Double.toString(value));
+            writeByte('"');
+            return;
+        }
+        long integral = (long) value;
+        boolean negativeZero = Double.doubleToRawLongBits(value) == Long.MIN_VALUE;
+        if (integral == value && Math.abs(value) < PLAIN_UPPER_LIMIT && !negativeZero) {
+            writeLong(integral);
+            writeAscii(".0");
+            return;
+        }
+        if (writeShortDecimal(value)) {
+            return;
+        }
+        digits.setLength(0);
+        digits.append(value);
+        ensureCapacity(digits.length());
+        for (int i = 0; i < digits.length(); i++) {
+            buffer[length++] = (byte) digits.charAt(i);
+        }
+    }
+
+    /**
+     * Writes values with few decimals, such as prices, without the JDK's formatter. The shortest decimal that
+     * reads back as {@code value} is what {@link Double#toString} prints; a candidate with {@code scale} fraction
+     * digits is checked exactly, because dividing two doubles that hold integers below 2^53 is correctly rounded.
+     */
+    private boolean writeShortDecimal(double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude < PLAIN_LOWER_LIMIT || magnitude >= PLAIN_UPPER_LIMIT) {
+            return false;
+        }
+        for (int scale = 1; scale <= MAX_SCALE; scale++) {
+            double scaled = magnitude * DOUBLE_POWERS_OF_TEN[scale];
+            if (scaled >= MAX_EXACT_LONG) {
+                return false;
+            }
+            long unscaled = Math.round(scaled);
+            if (unscaled / DOUBLE_POWERS_OF_TEN[scale] == magnitude) {
+                if (value < 0) {
+                    writeByte('-');
+                }
+                writeLong(unscaled / LONG_POWERS_OF_TEN[scale]);
+                writeByte('.');
+                long fraction = unscaled % LONG_POWERS_OF_TEN[scale];
+                ensureCapacity(scale);
+                for (int i = length + scale - 1; i >= length; i--) {
+                    buffer[i] = (byte) ('0' + fraction % 10);
+                    fraction /= 10;
+                }
+                length += scale;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeLong(long value) {
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        int digitCount = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digitCount++;
+        }
+        ensureCapacity(digitCount);
+        for (int i = length + digitCount - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digitCount;
+    }
+
+    private void writeString(String value) {
+        writeByte('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writeByte('\\');
+                writeByte(c);
+            } else if (c < 0x20) {
+                writeControl(c);
+            } else if (c < 0x80) {
+                writeByte(c);
+            } else if (c < 0x800) {
+                writeByte(0xc0 | (c >> 6));
+                writeByte(0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                writeByte(0xf0 | (codePoint >> 18));
+                writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+                writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+                writeByte(0x80 | (codePoint & 0x3f));
+            } else {
+                char encoded = Character.isSurrogate(c) ? '\uFFFD' : c;
+                writeByte(0xe0 | (encoded >> 12));
+                writeByte(0x80 | ((encoded >> 6) & 0x3f));
+                writeByte(0x80 | (encoded & 0x3f));
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeControl(char c) {
+        writeByte('\\');
+        switch (c) {
+            case '\b' -> writeByte('b');
+            case '\f' -> writeByte('f');
+            case '\n' -> writeByte('n');
+            case '\r' -> writeByte('r');
+            case '\t' -> writeByte('t');
+            default -> {
+                writeAscii("u00");
+                writeByte(HEX[c >> 4]);
+                writeByte(HEX[c & 0xf]);
+            }
+        }
+    }
+
+    private void writeAscii(String value) {
+        ensureCapacity(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer[length++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) b;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -1,61 +1,144 @@
 package com.codehills.fueltracker.servlet;
 
-import com.codehills.fueltracker.dto.FuelStatsResponse;
+import com.codehills.fueltracker.cache.ResponseCache;
 import com.codehills.fueltracker.exception.BadRequestException;
 import com.codehills.fueltracker.exception.ResourceNotFoundException;
+import com.codehills.fueltracker.format.PayloadFormat;
+import com.codehills.fueltracker.format.PayloadMappers;
+import com.codehills.fueltracker.metrics.ErrorMetrics;
 import com.codehills.fueltracker.service.CarService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Serves fuel stats in JSON through {@link FuelStatsJsonWriter}, or in Smile or CBOR when the {@code Accept}
+ * header asks for them. Requests are timed per response status; Spring's HTTP metrics do not see this servlet.
+ */
 public class FuelStatsServlet extends HttpServlet {
 
     private final CarService carService;
-    private final ObjectMapper objectMapper;
+    private final ResponseCache responseCache;
+    private final PayloadMappers payloadMappers;
+    private final ErrorMetrics errorMetrics;
+    private final Timer okTimer;
+    private final Timer notModifiedTimer;
+    private final Timer badRequestTimer;
+    private final Timer notFoundTimer;
+    private final Timer errorTimer;
 
-    public FuelStatsServlet(CarService carService, ObjectMapper objectMapper) {
+    public FuelStatsServlet(CarService carService, ResponseCache responseCache, PayloadMappers payloadMappers,
+                            MeterRegistry meterRegistry, ErrorMetrics errorMetrics) {
         this.carService = carService;
-        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.payloadMappers = payloadMappers;
+        this.errorMetrics = errorMetrics;
+        this.okTimer = timer(meterRegistry, HttpServletResponse.SC_OK);
+        this.notModifiedTimer = timer(meterRegistry, HttpServletResponse.SC_NOT_MODIFIED);
+        this.badRequestTimer = timer(meterRegistry, HttpServletResponse.SC_BAD_REQUEST);
+        this.notFoundTimer = timer(meterRegistry, HttpServletResponse.SC_NOT_FOUND);
+        this.errorTimer = timer(meterRegistry, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        resp.setContentType("application/json");
-        String carIdParam = req.getParameter("carId");
-        if (carIdParam == null || carIdParam.isBlank()) {
-            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().write("{\"message\":\"carId is required\"}");
-            return;
+        long start = System.nanoTime();
+        try {
+            serve(req, resp);
+        } finally {
+            timerFor(resp.getStatus()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
+    }
 
-        long carId;
+    private void serve(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        PayloadFormat format = PayloadFormat.negotiate(req.getHeader("Accept"));
+        resp.setContentType(format.mediaType().toString());
+        resp.setHeader("Vary", "Accept");
+        FuelStatsJsonWriter json = FuelStatsJsonWriter.acquire();
         try {
-            carId = Long.parseLong(carIdParam);
-        } catch (NumberFormatException ex) {
-            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().write("{\"message\":\"carId must be a number\"}");
-            return;
+            String carIdParam = req.getParameter("carId");
+            if (carIdParam == null || carIdParam.isBlank()) {
+                sendError(resp, HttpServletResponse.SC_BAD_REQUEST, format, json, "carId is required");
+                return;
+            }
+
+            long carId;
+            try {
+                carId = Long.parseLong(carIdParam);
+            } catch (NumberFormatException ex) {
+                sendError(resp, HttpServletResponse.SC_BAD_REQUEST, format, json, "carId must be a number");
+                return;
+            }
+
+            try {
+                long version = carService.getFuelStatsVersion(carId);
+                if (responseCache.matches(req.getHeader("If-None-Match"), ResponseCache.Resource.STATS, carId,
+                        format, version)) {
+                    resp.setHeader("ETag", responseCache.etag(ResponseCache.Resource.STATS, carId, format, version));
+                    resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+                ResponseCache.Body cached = responseCache.get(ResponseCache.Resource.STATS, carId, format, version,
+                        () -> format == PayloadFormat.JSON
+                                ? json.stats(carService.getFuelStats(carId)).toByteArray()
+                                : payloadMappers.write(format, carService.getFuelStats(carId)));
+                byte[] body = cached.body();
+                resp.setHeader("ETag", cached.etag());
+                resp.setStatus(HttpServletResponse.SC_OK);
+                resp.setContentLength(body.length);
+                resp.getOutputStream().write(body);
+            } catch (ResourceNotFoundException ex) {
+                sendError(resp, HttpServletResponse.SC_NOT_FOUND, format, json, ex.getMessage());
+            } catch (BadRequestException ex) {
+                sendError(resp, HttpServletResponse.SC_BAD_REQUEST, format, json, ex.getMessage());
+            } catch (Exception ex) {
+                sendError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, format, json,
+                        "Unexpected error: " + ex.getMessage());
+            }
+        } finally {
+            json.release();
         }
+    }
 
-        try {
-            FuelStatsResponse stats = carService.getFuelStats(carId);
-            resp.setStatus(HttpServletResponse.SC_OK);
-            resp.getWriter().write(objectMapper.writeValueAsString(stats));
-        } catch (ResourceNotFoundException ex) {
-            resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
-            resp.getWriter().write(objectMapper.writeValueAsString(new Error(ex.getMessage())));
-        } catch (BadRequestException ex) {
-            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().write(objectMapper.writeValueAsString(new Error(ex.getMessage())));
-        } catch (Exception ex) {
-            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            resp.getWriter().write(objectMapper.writeValueAsString(new Error("Unexpected error: " + ex.getMessage())));
+    private void sendError(HttpServletResponse resp, int status, PayloadFormat format, FuelStatsJsonWriter json,
+                           String message) throws IOException {
+        if (status == HttpServletResponse.SC_BAD_REQUEST) {
+            errorMetrics.validationFailed();
+        } else if (status == HttpServletResponse.SC_NOT_FOUND) {
+            errorMetrics.notFound();
+        }
+        resp.setStatus(status);
+        if (format == PayloadFormat.JSON) {
+            json.error(message);
+            resp.setContentLength(json.length());
+            json.writeTo(resp.getOutputStream());
+        } else {
+            byte[] body = payloadMappers.write(format, Map.of("message", message));
+            resp.setContentLength(body.length);
+            resp.getOutputStream().write(body);
         }
     }
 
-    private record Error(String message) {
+    private Timer timerFor(int status) {
+        return switch (status) {
+            case HttpServletResponse.SC_OK -> okTimer;
+            case HttpServletResponse.SC_NOT_MODIFIED -> notModifiedTimer;
+            case HttpServletResponse.SC_BAD_REQUEST -> badRequestTimer;
+            case HttpServletResponse.SC_NOT_FOUND -> notFoundTimer;
+            default -> errorTimer;
+        };
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, int status) {
+        return Timer.builder("fueltracker.servlet.requests")
+                .description("Requests to the fuel stats servlet")
+                .tag("status", String.valueOf(status))
+                .register(meterRegistry);
     }
 }
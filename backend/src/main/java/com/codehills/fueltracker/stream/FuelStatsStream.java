@@ -0,0 +1,282 @@
+package com.codehills.fueltracker.stream;
+
+import com.codehills.fueltracker.dto.FuelStatsUpdateResponse;
+import com.codehills.fueltracker.exception.BadRequestException;
+import com.codehills.fueltracker.model.FuelAggregate;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.repository.FuelEntryListener;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.codehills.fueltracker.service.CarService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes a car's fuel stats to Server-Sent Events subscribers whenever its history grows.
+ * <p>
+ * An append only marks the car dirty and queues it once; further appends to a dirty car do nothing, and cars
+ * nobody watches cost one map lookup. A single dispatcher thread waits out {@code fueltracker.stream.coalesce}
+ * after the first change, then reads and serializes the stats once and hands the same event to every subscriber,
+ * so a burst of fill-ups becomes one push.
+ * <p>
+ * Each subscription keeps only the newest pending event per car and writes on its own virtual thread, started
+ * when there is something to send. A slow client therefore delays nothing but itself and skips intermediate
+ * versions, and idle subscriptions hold no thread and no timer.
+ */
+@Component
+public class FuelStatsStream implements FuelEntryListener {
+    public static final String EVENT_NAME = "stats";
+
+    private static final Logger log = LoggerFactory.getLogger(FuelStatsStream.class);
+
+    private final CarService carService;
+    private final ObjectMapper objectMapper;
+    private final long coalesceNanos;
+    private final long timeoutMillis;
+    private final int maxCars;
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final BlockingQueue<Channel> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger subscriptions = new AtomicInteger();
+    private ExecutorService senders;
+    private Thread dispatcher;
+
+    public FuelStatsStream(CarService carService, FuelEntryRepository fuelEntryRepository, ObjectMapper objectMapper,
+                           @Value("${fueltracker.stream.coalesce:PT0.1S}") Duration coalesce,
+                           @Value("${fueltracker.stream.timeout:PT30M}") Duration timeout,
+                           @Value("${fueltracker.stream.max-cars:100}") int maxCars) {
+        this.carService = carService;
+        this.objectMapper = objectMapper;
+        this.coalesceNanos = coalesce.toNanos();
+        this.timeoutMillis = timeout.toMillis();
+        this.maxCars = maxCars;
+        fuelEntryRepository.addListener(this);
+    }
+
+    /**
+     * Opens a stream of the cars' stats. The current stats of every car are sent first, then an update after
+     * each change.
+     */
+    public SseEmitter subscribe(Collection<Long> carIds) {
+        return subscribe(carIds, new SseEmitter(timeoutMillis));
+    }
+
+    /**
+     * Streams the cars' stats to an emitter created by the caller.
+     */
+    public SseEmitter subscribe(Collection<Long> carIds, SseEmitter emitter) {
+        long[] ids = carIds.stream().mapToLong(Long::longValue).distinct().sorted().toArray();
+        if (ids.length == 0) {
+            throw new BadRequestException("At least one carId is required");
+        }
+        if (ids.length > maxCars) {
+            throw new BadRequestException("At most " + maxCars + " cars can be streamed at once");
+        }
+        for (long carId : ids) {
+            carService.getFuelStatsVersion(carId);
+        }
+        start();
+
+        Subscription subscription = new Subscription(emitter, ids);
+        emitter.onTimeout(emitter::complete);
+        emitter.onCompletion(subscription::close);
+        for (long carId : ids) {
+            channels.compute(carId, (key, channel) -> {
+                Channel target = channel != null ? channel : new Channel(key);
+                target.subscribers.add(subscription);
+                return target;
+            });
+        }
+        subscriptions.incrementAndGet();
+        // Registered before reading, so a change racing with this read is pushed afterwards.
+        for (long carId : ids) {
+            subscription.offer(read(carId));
+        }
+        return emitter;
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptions.get();
+    }
+
+    @Override
+    public void onEntriesAdded(long carId, List<FuelEntry> entries, FuelAggregate before, FuelAggregate after) {
+        onHistoryRestored(carId, before, after);
+    }
+
+    /**
+     * Also pushes entries applied from a leader's change feed, so streams work on followers.
+     */
+    @Override
+    public void onHistoryRestored(long carId, FuelAggregate before, FuelAggregate after) {
+        Channel channel = channels.get(carId);
+        if (channel != null && channel.dirty.compareAndSet(false, true)) {
+            channel.dirtySince = System.nanoTime();
+            queue.add(channel);
+        }
+    }
+
+    private synchronized void start() {
+        if (dispatcher != null) {
+            return;
+        }
+        senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stats-stream-", 0).factory());
+        dispatcher = new Thread(this::dispatchLoop, "stats-stream-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (dispatcher == null) {
+            return;
+        }
+        dispatcher.interrupt();
+        dispatcher.join();
+        senders.shutdownNow();
+        dispatcher = null;
+    }
+
+    private void dispatchLoop() {
+        while (true) {
+            Channel channel;
+            try {
+                channel = queue.take();
+                long wait = channel.dirtySince + coalesceNanos - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            } catch (InterruptedException ex) {
+                return;
+            }
+            // Cleared before reading, so a change made during the read queues the car again.
+            channel.dirty.set(false);
+            if (channel.subscribers.isEmpty()) {
+                continue;
+            }
+            try {
+                Update update = read(channel.carId);
+                channel.subscribers.forEach(subscription -> subscription.offer(update));
+            } catch (RuntimeException ex) {
+                log.warn("Failed to publish fuel stats of car {}", channel.carId, ex);
+            }
+        }
+    }
+
+    /**
+     * Reads the version before the stats, so an event is never older than the version it carries.
+     */
+    private Update read(long carId) {
+        long version = carService.getFuelStatsVersion(carId);
+        FuelStatsUpdateResponse response = new FuelStatsUpdateResponse(carId, version, carService.getFuelStats(carId));
+        try {
+            return new Update(carId, version, objectMapper.writeValueAsString(response));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private record Update(long carId, long version, String json) {
+    }
+
+    private static final class Channel {
+        private final long carId;
+        private final Set<Subscription> subscribers = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        // Written before the channel is queued and read after it is taken, so the queue orders the accesses.
+        private long dirtySince;
+
+        Channel(long carId) {
+            this.carId = carId;
+        }
+    }
+
+    private final class Subscription {
+        private final SseEmitter emitter;
+        private final long[] carIds;
+        private final long[] sentVersions;
+        private final Map<Long, Update> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscription(SseEmitter emitter, long[] carIds) {
+            this.emitter = emitter;
+            this.carIds = carIds;
+            this.sentVersions = new long[carIds.length];
+            Arrays.fill(sentVersions, -1);
+        }
+
+        void offer(Update update) {
+            pending.merge(update.carId(), update, (queued, next) -> next.version() >= queued.version() ? next : queued);
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        /**
+         * Sends the pending events; only one drain per subscription runs at a time.
+         */
+        private void drain() {
+            do {
+                for (Long carId : pending.keySet()) {
+                    Update update = pending.remove(carId);
+                    if (update != null && !send(update)) {
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private boolean send(Update update) {
+            int index = Arrays.binarySearch(carIds, update.carId());
+            if (update.version() <= sentVersions[index]) {
+                return true;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(EVENT_NAME).data(update.json(), MediaType.APPLICATION_JSON));
+                sentVersions[index] = update.version();
+                return true;
+            } catch (IOException | IllegalStateException ex) {
+                close();
+                emitter.completeWithError(ex);
+                return false;
+            }
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            for (long carId : carIds) {
+                channels.computeIfPresent(carId, (key, channel) -> {
+                    channel.subscribers.remove(this);
+                    return channel.subscribers.isEmpty() ? null : channel;
+                });
+            }
+            subscriptions.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.codehills.fueltracker.anomaly;
+
+import com.codehills.fueltracker.dto.FuelAnomalyResponse;
+import com.codehills.fueltracker.exception.ResourceNotFoundException;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import com.codehills.fueltracker.replication.ChangeFeed;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.codehills.fueltracker.repository.StorageShards;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuelAnomalyDetectorTest {
+    private static final double THRESHOLD = 4.0;
+    private static final int WARMUP = 3;
+    private static final double DISTANCE = 500;
+    private static final double LITERS = 40;
+    private static final double PRICE_PER_LITER = 2.0;
+
+    private final WriteAheadLog writeAheadLog = new WriteAheadLog("", 0);
+    private final StorageShards storageShards = new StorageShards(1);
+    private final CarRepository carRepository = new CarRepository(writeAheadLog, new ChangeFeed(0), storageShards);
+    private final FuelEntryRepository fuelEntryRepository =
+            new FuelEntryRepository(writeAheadLog, new ChangeFeed(0), storageShards);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private FuelAnomalyDetector detector = detector(100);
+
+    @Test
+    void flagsNothingBeforeTheWarmup() {
+        long carId = car();
+        fillUp(carId, 0, LITERS, 1.0);
+        fillUp(carId, DISTANCE, LITERS * 4, 9.0);
+        fillUp(carId, DISTANCE / 10, LITERS, 0.2);
+
+        assertTrue(detector.getRecentAnomalies(10).isEmpty());
+    }
+
+    @Test
+    void flagsValuesPastTheThresholdAndNotThoseWithinIt() {
+        long carId = regularCar(6);
+        // A perfectly regular car has no variance; the spread is 5 % of the mean, 0.1 per liter.
+        fillUp(carId, DISTANCE, LITERS, 2.3);
+        assertTrue(detector.getRecentAnomalies(10).isEmpty());
+
+        fillUp(carId, DISTANCE, LITERS, 3.0);
+
+        List<FuelAnomalyResponse> anomalies = detector.getRecentAnomalies(10);
+        assertEquals(1, anomalies.size());
+        FuelAnomalyResponse anomaly = anomalies.get(0);
+        assertEquals(FuelAnomalyDetector.PRICE_PER_LITER, anomaly.getMetric());
+        assertEquals(3.0, anomaly.getValue(), 1e-9);
+        assertEquals(2.03, anomaly.getExpected(), 1e-9);
+        assertTrue(anomaly.getDeviation() > THRESHOLD);
+        assertEquals(1.0, meterRegistry.get("fueltracker.fuel.anomalies")
+                .tag("metric", FuelAnomalyDetector.PRICE_PER_LITER).counter().count());
+    }
+
+    @Test
+    void flagsConsumptionPastTheThreshold() {
+        long carId = regularCar(6);
+        fillUp(carId, DISTANCE, LITERS * 1.5, PRICE_PER_LITER);
+
+        List<FuelAnomalyResponse> anomalies = detector.getRecentAnomalies(10);
+        assertEquals(1, anomalies.size());
+        assertEquals(FuelAnomalyDetector.CONSUMPTION, anomalies.get(0).getMetric());
+        assertEquals(12.0, anomalies.get(0).getValue(), 1e-9);
+        assertEquals(8.0, anomalies.get(0).getExpected(), 1e-9);
+        assertEquals(10.0, anomalies.get(0).getDeviation(), 1e-9);
+    }
+
+    @Test
+    void keepsTheSpreadAboveItsFloorForRegularCars() {
+        long carId = regularCar(20);
+        double withinFloor = PRICE_PER_LITER * (1 + FuelAnomalyDetector.MIN_RELATIVE_SPREAD * (THRESHOLD - 0.5));
+        fillUp(carId, DISTANCE, LITERS, withinFloor);
+
+        assertTrue(detector.getRecentAnomalies(10).isEmpty());
+    }
+
+    @Test
+    void foldsAFlaggedValueInAtTheThreshold() {
+        long carId = regularCar(6);
+        fillUp(carId, DISTANCE, LITERS, 20.0);
+        fillUp(carId, DISTANCE, LITERS, PRICE_PER_LITER);
+        assertEquals(1, detector.getRecentAnomalies(10).size());
+
+        // Folded in as 2.4, the typo leaves the spread small enough to catch the next outlier.
+        fillUp(carId, DISTANCE, LITERS, 2.6);
+
+        List<FuelAnomalyResponse> anomalies = detector.getRecentAnomalies(10);
+        assertEquals(List.of(2.6, 20.0), anomalies.stream().map(FuelAnomalyResponse::getValue).toList());
+        assertEquals(2.036, anomalies.get(0).getExpected(), 1e-9);
+    }
+
+    @Test
+    void checksOnlyThePriceOfFillUpsWithoutAnIntervalConsumption() {
+        long carId = regularCar(6);
+        // The odometer did not advance, so there is no interval consumption to compare.
+        fillUp(carId, 0, LITERS / 8, PRICE_PER_LITER);
+        assertTrue(detector.getRecentAnomalies(10).isEmpty());
+
+        fillUp(carId, 0, LITERS * 2, 5.0);
+
+        List<FuelAnomalyResponse> anomalies = detector.getRecentAnomalies(10);
+        assertEquals(1, anomalies.size());
+        assertEquals(FuelAnomalyDetector.PRICE_PER_LITER, anomalies.get(0).getMetric());
+    }
+
+    @Test
+    void keepsTheLatestFlaggedFillUpsNewestFirst() {
+        detector = detector(3);
+        long first = regularCar(6);
+        long second = regularCar(6);
+        fillUp(first, DISTANCE, LITERS, 10.0);
+        fillUp(second, DISTANCE, LITERS, 11.0);
+        fillUp(first, DISTANCE, LITERS, 12.0);
+        fillUp(second, DISTANCE, LITERS, 13.0);
+        fillUp(first, DISTANCE, LITERS, 14.0);
+
+        assertEquals(List.of(14.0, 13.0, 12.0), values(detector.getRecentAnomalies(10)));
+        assertEquals(List.of(14.0), values(detector.getRecentAnomalies(1)));
+        assertEquals(List.of(14.0, 12.0), values(detector.getRecentAnomalies(first, 10)));
+        assertEquals(List.of(13.0), values(detector.getRecentAnomalies(second, 10)));
+    }
+
+    @Test
+    void rejectsUnknownCars() {
+        assertThrows(ResourceNotFoundException.class, () -> detector.getRecentAnomalies(42L, 10));
+    }
+
+    private FuelAnomalyDetector detector(int maxFlagged) {
+        return new FuelAnomalyDetector(carRepository, fuelEntryRepository, meterRegistry, true, 0.1, THRESHOLD,
+                WARMUP, maxFlagged);
+    }
+
+    private long car() {
+        return carRepository.save("Skoda", "Octavia", 2018).getId();
+    }
+
+    /**
+     * Returns a car with the given number of identical fill-ups, the first of which has no interval consumption.
+     */
+    private long regularCar(int fillUps) {
+        long carId = car();
+        fillUp(carId, 0, LITERS, PRICE_PER_LITER);
+        for (int i = 1; i < fillUps; i++) {
+            fillUp(carId, DISTANCE, LITERS, PRICE_PER_LITER);
+        }
+        return carId;
+    }
+
+    private void fillUp(long carId, double distance, double liters, double pricePerLiter) {
+        List<FuelEntry> history = fuelEntryRepository.findByCarId(carId);
+        FuelEntry last = history.isEmpty() ? null : history.get(history.size() - 1);
+        double odometer = last == null ? 10_000 : last.getOdometer() + distance;
+        Instant timestamp = last == null ? Instant.parse("2024-01-01T08:00:00Z")
+                : last.getTimestamp().plusSeconds(86_400);
+        fuelEntryRepository.addEntry(carId, new FuelEntry(liters, liters * pricePerLiter, odometer, timestamp));
+    }
+
+    private static List<Double> values(List<FuelAnomalyResponse> anomalies) {
+        return anomalies.stream().map(FuelAnomalyResponse::getValue).toList();
+    }
+}
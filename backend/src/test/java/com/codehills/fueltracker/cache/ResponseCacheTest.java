@@ -0,0 +1,161 @@
+package com.codehills.fueltracker.cache;
+
+import com.codehills.fueltracker.cache.ResponseCache.Resource;
+import com.codehills.fueltracker.format.PayloadFormat;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheTest {
+    private static final int BODY_BYTES = 100;
+    private static final long MAX_BYTES = 100 * BODY_BYTES;
+
+    private final ResponseCache cache = new ResponseCache(MAX_BYTES);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void servesABodyUntilItsVersionChanges() {
+        ResponseCache.Body first = get(7, 1);
+        assertSame(first, get(7, 1));
+        assertEquals(1, loads.get());
+
+        ResponseCache.Body second = get(7, 2);
+        assertEquals(2, loads.get());
+        assertSame(second, get(7, 2));
+        assertEquals(cache.etag(Resource.STATS, 7, PayloadFormat.JSON, 2), second.etag());
+        assertEquals(BODY_BYTES, cache.cachedBytes());
+    }
+
+    @Test
+    void staysWithinTheBound() {
+        for (int id = 0; id < 1_000; id++) {
+            get(id, 1);
+            assertTrue(cache.cachedBytes() <= MAX_BYTES, cache.cachedBytes() + " bytes cached");
+        }
+        assertTrue(cache.contains(Resource.STATS, 999, PayloadFormat.JSON));
+    }
+
+    @Test
+    void keepsBodiesThatAreReadWhileColdOnesComeAndGo() {
+        for (int id = 0; id < 10; id++) {
+            get(id, 1);
+        }
+        for (int id = 10; id < 2_000; id++) {
+            get(id, 1);
+            get(id % 10, 1);
+        }
+
+        assertEquals(2_000, loads.get());
+        for (int id = 0; id < 10; id++) {
+            assertTrue(cache.contains(Resource.STATS, id, PayloadFormat.JSON), "hot body " + id + " was evicted");
+        }
+    }
+
+    @Test
+    void leavesSlackAfterAnEviction() {
+        int id = 0;
+        while (cache.cachedBytes() + BODY_BYTES <= MAX_BYTES) {
+            get(id++, 1);
+        }
+        get(id++, 1);
+        long afterEviction = cache.cachedBytes();
+        assertTrue(afterEviction <= MAX_BYTES - MAX_BYTES / 8, afterEviction + " bytes cached");
+
+        int first = id;
+        while (cache.cachedBytes() + BODY_BYTES <= MAX_BYTES) {
+            get(id++, 1);
+        }
+        for (int stored = first; stored < id; stored++) {
+            assertTrue(cache.contains(Resource.STATS, stored, PayloadFormat.JSON));
+        }
+        assertEquals(afterEviction + (long) (id - first) * BODY_BYTES, cache.cachedBytes());
+    }
+
+    @Test
+    void doesNotCacheBodiesLargerThanAnEighthOfTheBound() {
+        cache.get(Resource.CARS, 0, PayloadFormat.JSON, 1, () -> new byte[(int) (MAX_BYTES / 8) + 1]);
+
+        assertFalse(cache.contains(Resource.CARS, 0, PayloadFormat.JSON));
+        assertEquals(0, cache.cachedBytes());
+    }
+
+    @Test
+    void matchesTheTagOfTheVersionInAnyListPosition() {
+        String tag = cache.etag(Resource.STATS, 42, PayloadFormat.JSON, 7);
+
+        assertTrue(matches(tag, 42, 7));
+        assertTrue(matches("W/" + tag, 42, 7));
+        assertTrue(matches("*", 42, 7));
+        assertTrue(matches(" *  ", 42, 7));
+        assertTrue(matches("\"other\", " + tag, 42, 7));
+        assertTrue(matches("\"other\" ,W/" + tag + " , \"more\"", 42, 7));
+        assertTrue(matches("  " + tag + "\t", 42, 7));
+        assertTrue(cache.matches(cache.etag(Resource.CARS, 0, PayloadFormat.CBOR, 3), Resource.CARS, 0,
+                PayloadFormat.CBOR, 3));
+    }
+
+    @Test
+    void doesNotMatchOtherVersionsOrMalformedTags() {
+        String tag = cache.etag(Resource.STATS, 42, PayloadFormat.JSON, 7);
+
+        assertFalse(matches(null, 42, 7));
+        assertFalse(matches("", 42, 7));
+        assertFalse(matches(tag, 42, 8));
+        assertFalse(matches(tag, 43, 7));
+        assertFalse(matches("\"other\", \"more\"", 42, 7));
+        assertFalse(matches(tag.substring(0, tag.length() - 1), 42, 7));
+        assertFalse(matches(tag + "x", 42, 7));
+        assertFalse(matches("w/" + tag, 42, 7));
+        assertFalse(matches("*x", 42, 7));
+    }
+
+    @Test
+    void comparesNumbersOnlyInTheirShortestForm() {
+        String tag = cache.etag(Resource.STATS, 42, PayloadFormat.JSON, 7);
+        String prefix = tag.substring(0, tag.indexOf("-42-"));
+
+        assertTrue(matches(prefix + "-42-JSON-7\"", 42, 7));
+        assertFalse(matches(prefix + "-042-JSON-7\"", 42, 7));
+        assertFalse(matches(prefix + "-42-JSON-07\"", 42, 7));
+        assertFalse(matches(prefix + "-42-JSON-00\"", 42, 0));
+        assertTrue(matches(prefix + "-42-JSON-0\"", 42, 0));
+
+        long max = Long.MAX_VALUE;
+        assertTrue(matches(cache.etag(Resource.STATS, max, PayloadFormat.JSON, max), max, max));
+        assertTrue(matches(prefix + "-" + max + "-JSON-" + max + "\"", max, max));
+        assertFalse(matches(prefix + "-42-JSON-" + max + "0\"", 42, max));
+        assertFalse(matches(prefix + "-42-JSON-9999999999999999999\"", 42, max));
+        assertFalse(matches(prefix + "-42-JSON-18446744073709551623\"", 42, 7));
+    }
+
+    @Test
+    void doesNotMatchTagsOfAnotherEpochResourceFormatOrId() {
+        String tag = cache.etag(Resource.STATS, 42, PayloadFormat.JSON, 7);
+        String epoch = tag.substring(1, tag.indexOf('-'));
+
+        assertFalse(matches(tag.replace(epoch, epoch + "0"), 42, 7));
+        assertFalse(matches(tag.replace(epoch, "0"), 42, 7));
+        assertFalse(cache.matches(tag, Resource.CARS, 0, PayloadFormat.JSON, 7));
+        assertFalse(cache.matches(cache.etag(Resource.CARS, 0, PayloadFormat.JSON, 7), Resource.STATS, 0,
+                PayloadFormat.JSON, 7));
+        assertFalse(cache.matches(tag, Resource.STATS, 42, PayloadFormat.SMILE, 7));
+        assertFalse(matches(tag, 4, 7));
+        assertFalse(matches(tag, 420, 7));
+    }
+
+    private boolean matches(String ifNoneMatch, long id, long version) {
+        return cache.matches(ifNoneMatch, Resource.STATS, id, PayloadFormat.JSON, version);
+    }
+
+    private ResponseCache.Body get(long id, long version) {
+        return cache.get(Resource.STATS, id, PayloadFormat.JSON, version, () -> {
+            loads.incrementAndGet();
+            return new byte[BODY_BYTES];
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package com.codehills.fueltracker.controller;
+
+import com.codehills.fueltracker.cache.ResponseCache;
+import com.codehills.fueltracker.format.PayloadFormat;
+import com.codehills.fueltracker.format.PayloadMappers;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import com.codehills.fueltracker.replication.ChangeFeed;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.codehills.fueltracker.repository.StorageShards;
+import com.codehills.fueltracker.service.CarService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Calls the conditional GET handlers directly; the collaborators they do not use are left out.
+ */
+class CarControllerTest {
+    private final WriteAheadLog writeAheadLog = new WriteAheadLog("", 0);
+    private final ChangeFeed changeFeed = new ChangeFeed(0);
+    private final StorageShards shards = new StorageShards(0);
+    private final CarRepository carRepository = new CarRepository(writeAheadLog, changeFeed, shards);
+    private final FuelEntryRepository fuelEntryRepository = new FuelEntryRepository(writeAheadLog, changeFeed, shards);
+    private final CarController controller = new CarController(
+            new CarService(carRepository, fuelEntryRepository, new CompositeMeterRegistry()), null,
+            new PayloadMappers(new ObjectMapper()), new ResponseCache(1 << 20), null, null);
+
+    @Test
+    void answersNotModifiedForTheCurrentCarList() {
+        carRepository.save("Toyota", "Corolla", 2018);
+        ResponseEntity<byte[]> first = controller.getCars(null, null);
+        String etag = first.getHeaders().getETag();
+
+        ResponseEntity<byte[]> again = controller.getCars(null, "W/" + etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, again.getStatusCode());
+        assertEquals(etag, again.getHeaders().getETag());
+        assertNull(again.getBody());
+
+        assertEquals(HttpStatus.OK, controller.getCars(PayloadFormat.SMILE.mediaType().toString(), etag)
+                .getStatusCode());
+        carRepository.save("Ford", "Focus", 2020);
+        ResponseEntity<byte[]> changed = controller.getCars(null, etag);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+    }
+
+    @Test
+    void answersNotModifiedForCurrentFuelStats() {
+        long carId = carRepository.save("Toyota", "Corolla", 2018).getId();
+        fuelEntryRepository.addEntry(carId, new FuelEntry(40, 72, 45_000, Instant.ofEpochSecond(1_700_000_000)));
+        String etag = controller.getFuelStats(carId, null, null).getHeaders().getETag();
+
+        ResponseEntity<byte[]> again = controller.getFuelStats(carId, null, "\"other\", " + etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, again.getStatusCode());
+        assertEquals(etag, again.getHeaders().getETag());
+
+        fuelEntryRepository.addEntry(carId, new FuelEntry(35, 63, 45_600, Instant.ofEpochSecond(1_700_100_000)));
+        assertEquals(HttpStatus.OK, controller.getFuelStats(carId, null, etag).getStatusCode());
+    }
+}
@@ -0,0 +1,35 @@
+package com.codehills.fueltracker.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportControllerTest {
+
+    @Test
+    void acceptsGzipWithANonZeroQuality() {
+        assertTrue(ExportController.acceptsGzip("gzip"));
+        assertTrue(ExportController.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(ExportController.acceptsGzip("x-gzip"));
+        assertTrue(ExportController.acceptsGzip("br;q=1.0, *;q=0.1"));
+        assertTrue(ExportController.acceptsGzip("gzip ; Q=0.001"));
+    }
+
+    @Test
+    void refusesGzipWithAZeroQuality() {
+        assertFalse(ExportController.acceptsGzip("gzip;q=0"));
+        assertFalse(ExportController.acceptsGzip("gzip; q=0.000, identity"));
+        assertFalse(ExportController.acceptsGzip("*, gzip;q=0"));
+        assertFalse(ExportController.acceptsGzip("*;q=0"));
+    }
+
+    @Test
+    void refusesGzipThatIsNotListed() {
+        assertFalse(ExportController.acceptsGzip(null));
+        assertFalse(ExportController.acceptsGzip(""));
+        assertFalse(ExportController.acceptsGzip("identity, deflate"));
+        assertFalse(ExportController.acceptsGzip("gzipped"));
+        assertFalse(ExportController.acceptsGzip("gzip;q=high"));
+    }
+}
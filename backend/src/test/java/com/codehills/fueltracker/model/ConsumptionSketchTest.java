@@ -0,0 +1,71 @@
+package com.codehills.fueltracker.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsumptionSketchTest {
+
+    @Test
+    void isExactForFewValues() {
+        ConsumptionSketch sketch = ConsumptionSketch.EMPTY.plus(8.0).plus(6.0).plus(7.5).plus(5.0);
+
+        assertEquals(4, sketch.getCount());
+        assertEquals(5.0, sketch.getMin());
+        assertEquals(8.0, sketch.getMax());
+        assertEquals((6.0 + 7.5) / 2, sketch.getMedian());
+        assertEquals(7.5, sketch.plus(9.0).getMedian());
+    }
+
+    @Test
+    void ignoresUndefinedIntervals() {
+        ConsumptionSketch sketch = ConsumptionSketch.EMPTY.plus(6.0);
+
+        assertSame(sketch, sketch.plus(Double.NaN));
+        assertSame(sketch, sketch.minus(Double.NaN, 6.0, 6.0));
+        assertTrue(Double.isNaN(ConsumptionSketch.EMPTY.getMedian()));
+    }
+
+    @Test
+    void estimatesTheMedianOfManyValues() {
+        Random random = new Random(7);
+        double[] values = new double[10_000];
+        ConsumptionSketch sketch = ConsumptionSketch.EMPTY;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 6.5 + random.nextGaussian() * 1.2;
+            sketch = sketch.plus(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, sketch.getCount());
+        assertEquals(values[0], sketch.getMin());
+        assertEquals(values[values.length - 1], sketch.getMax());
+        assertEquals((values[4_999] + values[5_000]) / 2, sketch.getMedian(), 0.05);
+    }
+
+    @Test
+    void takesValuesOutAgain() {
+        ConsumptionSketch few = ConsumptionSketch.EMPTY.plus(5.0).plus(6.0).plus(9.0);
+        ConsumptionSketch fewer = few.minus(9.0, 5.0, 6.0);
+        assertEquals(2, fewer.getCount());
+        assertEquals(6.0, fewer.getMax());
+        assertEquals(5.5, fewer.getMedian());
+
+        Random random = new Random(11);
+        ConsumptionSketch sketch = ConsumptionSketch.EMPTY;
+        for (int i = 0; i < 1_000; i++) {
+            sketch = sketch.plus(5.0 + random.nextDouble() * 4.0);
+        }
+        sketch = sketch.plus(30.0);
+        ConsumptionSketch without = sketch.minus(30.0, sketch.getMin(), 9.0);
+
+        assertEquals(1_000, without.getCount());
+        assertEquals(9.0, without.getMax());
+        assertTrue(without.getMedian() > 6.5 && without.getMedian() < 7.5, "median " + without.getMedian());
+    }
+}
@@ -0,0 +1,101 @@
+package com.codehills.fueltracker.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class NameDictionaryTest {
+    private final NameDictionary dictionary = new NameDictionary();
+
+    @Test
+    void encodesEachNameOnce() {
+        int toyota = dictionary.encode("Toyota");
+        int ford = dictionary.encode("Ford");
+
+        assertEquals(toyota, dictionary.encode(new String("Toyota")));
+        assertNotEquals(toyota, ford);
+        assertEquals("Toyota", dictionary.decode(toyota));
+        assertEquals("Ford", dictionary.decode(ford));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    void sharesFoldedCodesBetweenNamesEqualIgnoringCase() {
+        int mixed = dictionary.encode("Volkswagen");
+        int upper = dictionary.encode("VOLKSWAGEN");
+        int other = dictionary.encode("Skoda");
+
+        assertNotEquals(mixed, upper);
+        assertEquals("VOLKSWAGEN", dictionary.decode(upper));
+        assertEquals(dictionary.foldedCode(mixed), dictionary.foldedCode(upper));
+        assertNotEquals(dictionary.foldedCode(mixed), dictionary.foldedCode(other));
+        assertEquals(dictionary.foldedCode(mixed), dictionary.foldedCodeOf("volkswagen"));
+    }
+
+    @Test
+    void looksUpUnknownNamesWithoutAddingThem() {
+        dictionary.encode("Kia");
+
+        assertEquals(NameDictionary.UNKNOWN, dictionary.foldedCodeOf("Hyundai"));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void encodesConcurrentlyIntoDenseCodesThatDecodeBack() throws Exception {
+        int threads = 8;
+        int names = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                results.add(executor.submit(() -> {
+                    int[] codes = new int[names];
+                    for (int i = 0; i < names; i++) {
+                        int name = (i + offset * 97) % names;
+                        codes[name] = dictionary.encode(name(name));
+                        assertEquals(name(name), dictionary.decode(codes[name]));
+                    }
+                    return codes;
+                }));
+            }
+            int[] first = results.get(0).get();
+            for (Future<int[]> result : results) {
+                int[] codes = result.get();
+                for (int name = 0; name < names; name++) {
+                    assertEquals(first[name], codes[name], "code of " + name(name));
+                }
+            }
+            TreeSet<Integer> distinct = new TreeSet<>();
+            for (int name = 0; name < names; name++) {
+                distinct.add(first[name]);
+                if (name % 2 == 1) {
+                    assertEquals(dictionary.foldedCode(first[name - 1]), dictionary.foldedCode(first[name]));
+                }
+            }
+            assertEquals(names, dictionary.size());
+            assertEquals(names, distinct.size());
+            assertEquals(0, distinct.first());
+            assertEquals(names - 1, distinct.last());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Every other name differs from the one before it only in case. */
+    private static String name(int index) {
+        String name = "Brand " + index / 2;
+        return index % 2 == 0 ? name : name.toUpperCase();
+    }
+}
@@ -0,0 +1,130 @@
+package com.codehills.fueltracker.persistence;
+
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.replication.ChangeFeed;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.codehills.fueltracker.repository.StorageShards;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotStoreTest {
+    @TempDir
+    Path directory;
+
+    private final Storage source = new Storage();
+
+    @Test
+    void restoresCarsAndHistories() throws IOException {
+        long corolla = source.cars.save("Toyota", "Corolla", 2018).getId();
+        long focus = source.cars.save("Ford", "Focus", 2020).getId();
+        for (int i = 0; i < 3000; i++) {
+            source.entries.addEntry(corolla, entry(i));
+        }
+        source.snapshots(directory).write();
+
+        Storage restored = new Storage();
+        restored.snapshots(directory).load();
+
+        assertSameCar(source, restored, corolla);
+        assertSameCar(source, restored, focus);
+        assertEquals(source.entries.getAggregate(corolla).getTotalLiters(),
+                restored.entries.getAggregate(corolla).getTotalLiters());
+        assertSameHistory(source.entries.findByCarId(corolla), restored.entries.findByCarId(corolla));
+        assertTrue(restored.entries.findByCarId(focus).isEmpty());
+    }
+
+    @Test
+    void fallsBackToThePreviousSnapshotWhenTheCurrentOneIsCorrupt() throws IOException {
+        long carId = source.cars.save("Toyota", "Corolla", 2018).getId();
+        for (int i = 0; i < 10; i++) {
+            source.entries.addEntry(carId, entry(i));
+        }
+        SnapshotStore snapshots = source.snapshots(directory);
+        snapshots.write();
+        List<FuelEntry> previous = List.copyOf(source.entries.findByCarId(carId));
+        source.entries.addEntry(carId, entry(10));
+        snapshots.write();
+        flipLastByte(directory.resolve("snapshot.bin"));
+
+        Storage restored = new Storage();
+        restored.snapshots(directory).load();
+
+        assertSameHistory(previous, restored.entries.findByCarId(carId));
+    }
+
+    @Test
+    void loadsNothingWhenEverySnapshotIsCorrupt() throws IOException {
+        long carId = source.cars.save("Toyota", "Corolla", 2018).getId();
+        source.entries.addEntry(carId, entry(0));
+        SnapshotStore snapshots = source.snapshots(directory);
+        snapshots.write();
+        snapshots.write();
+        flipLastByte(directory.resolve("snapshot.bin"));
+        flipLastByte(directory.resolve("snapshot.prev.bin"));
+
+        Storage restored = new Storage();
+
+        assertEquals(0, restored.snapshots(directory).load());
+        assertEquals(0, restored.cars.count());
+    }
+
+    private static void assertSameCar(Storage expected, Storage actual, long carId) {
+        Car car = expected.cars.findById(carId).orElseThrow();
+        Car copy = actual.cars.findById(carId).orElseThrow();
+        assertEquals(car.getBrand(), copy.getBrand());
+        assertEquals(car.getModel(), copy.getModel());
+        assertEquals(car.getYear(), copy.getYear());
+    }
+
+    private static void assertSameHistory(List<FuelEntry> expected, List<FuelEntry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getLiters(), actual.get(i).getLiters());
+            assertEquals(expected.get(i).getPrice(), actual.get(i).getPrice());
+            assertEquals(expected.get(i).getOdometer(), actual.get(i).getOdometer());
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+        }
+    }
+
+    private static void flipLastByte(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            last.put(0, (byte) ~last.get(0));
+            channel.write(last.rewind(), channel.size() - 1);
+        }
+    }
+
+    private static FuelEntry entry(int index) {
+        return new FuelEntry(30 + index % 20, 45 + index % 30, 1_000 + index * 550.0,
+                Instant.ofEpochMilli(1_600_000_000_000L + index * 86_400_000L));
+    }
+
+    /**
+     * Repositories wired without Spring and without a write-ahead log.
+     */
+    private static final class Storage {
+        final WriteAheadLog writeAheadLog = new WriteAheadLog("", 0);
+        final ChangeFeed changeFeed = new ChangeFeed(0);
+        final StorageShards shards = new StorageShards(0);
+        final CarRepository cars = new CarRepository(writeAheadLog, changeFeed, shards);
+        final FuelEntryRepository entries = new FuelEntryRepository(writeAheadLog, changeFeed, shards);
+
+        SnapshotStore snapshots(Path directory) {
+            return new SnapshotStore(directory.toString(), writeAheadLog, cars, entries);
+        }
+    }
+}
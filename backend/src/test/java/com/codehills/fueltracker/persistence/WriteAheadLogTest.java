@@ -0,0 +1,203 @@
+package com.codehills.fueltracker.persistence;
+
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteAheadLogTest {
+    @TempDir
+    Path directory;
+
+    private final List<WriteAheadLog> logs = new ArrayList<>();
+
+    @AfterEach
+    void stopLogs() throws InterruptedException {
+        for (WriteAheadLog log : logs) {
+            log.stop();
+        }
+    }
+
+    @Test
+    void replaysEveryAcknowledgedRecordInOrder() throws InterruptedException {
+        WriteAheadLog log = open();
+        List<CompletableFuture<Void>> durable = new ArrayList<>();
+        durable.add(log.appendCar(new Car(7, "Toyota", "Corolla", 2018)));
+        for (int i = 0; i < 100; i++) {
+            durable.add(log.appendFuelEntry(7, i, entry(i)));
+        }
+        durable.forEach(CompletableFuture::join);
+        log.stop();
+
+        Recorder replayed = replay();
+        assertEquals(List.of("car 7 Toyota Corolla 2018"), replayed.cars);
+        assertEquals(100, replayed.entries.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(describe(7, i, entry(i)), replayed.entries.get(i));
+        }
+    }
+
+    @Test
+    void truncatesATornTail() throws IOException, InterruptedException {
+        WriteAheadLog log = open();
+        for (int i = 0; i < 10; i++) {
+            log.appendFuelEntry(1, i, entry(i)).join();
+        }
+        log.stop();
+        Path segment = segments().get(0);
+        long intactLength = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(12).putInt(45).putInt(0xCAFE).putInt(1).flip());
+        }
+
+        assertEquals(10, replay().entries.size());
+        assertEquals(intactLength, Files.size(segment));
+    }
+
+    @Test
+    void quarantinesSegmentsAfterATornOne() throws IOException, InterruptedException {
+        WriteAheadLog log = open();
+        for (int i = 0; i < 10; i++) {
+            log.appendFuelEntry(1, i, entry(i)).join();
+        }
+        long nextSegment = log.rollSegment().join();
+        for (int i = 10; i < 20; i++) {
+            log.appendFuelEntry(1, i, entry(i)).join();
+        }
+        log.stop();
+        Path torn = segments().get(0);
+        try (FileChannel channel = FileChannel.open(torn, StandardOpenOption.WRITE)) {
+            // Flips a byte in the payload of the sixth frame, so its checksum no longer matches.
+            channel.write(ByteBuffer.wrap(new byte[] {0x7F}), 5L * frameSize() + 20);
+        }
+
+        Recorder replayed = replay();
+
+        assertEquals(5, replayed.entries.size());
+        assertEquals(List.of(torn), segments());
+        Path quarantine;
+        try (Stream<Path> files = Files.list(directory)) {
+            quarantine = files.filter(path -> path.getFileName().toString().startsWith("quarantine-"))
+                    .findFirst().orElseThrow();
+        }
+        try (Stream<Path> files = Files.list(quarantine)) {
+            assertEquals(List.of(String.format("segment-%020d.wal", nextSegment)),
+                    files.map(path -> path.getFileName().toString()).toList());
+        }
+    }
+
+    @Test
+    void failsAppendsOnceStopped() throws InterruptedException {
+        WriteAheadLog log = open();
+        log.appendCar(new Car(1, "Ford", "Focus", 2020)).join();
+        log.stop();
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> log.appendFuelEntry(1, 0, entry(0)).join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertThrows(IllegalStateException.class, log::checkWritable);
+    }
+
+    @Test
+    void stopsOnTheFirstFailedFlush() throws IOException {
+        Path walDirectory = directory.resolve("wal");
+        WriteAheadLog log = new WriteAheadLog(walDirectory.toString(), 1 << 20);
+        log.replay(0, new Recorder());
+        log.start();
+        logs.add(log);
+        log.appendFuelEntry(1, 0, entry(0)).join();
+        try (Stream<Path> files = Files.list(walDirectory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(walDirectory);
+
+        assertThrows(CompletionException.class, () -> log.rollSegment().join());
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> log.appendFuelEntry(1, 1, entry(1)).join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertInstanceOf(IOException.class, failure.getCause().getCause());
+        assertThrows(IllegalStateException.class, log::checkWritable);
+    }
+
+    @Test
+    void completesAppendsImmediatelyWhenDisabled() {
+        WriteAheadLog log = new WriteAheadLog("", 0);
+
+        assertTrue(log.appendFuelEntry(1, 0, entry(0)).isDone());
+        log.checkWritable();
+    }
+
+    private WriteAheadLog open() {
+        WriteAheadLog log = new WriteAheadLog(directory.toString(), 1 << 20);
+        log.replay(0, new Recorder());
+        log.start();
+        logs.add(log);
+        return log;
+    }
+
+    private Recorder replay() {
+        Recorder recorder = new Recorder();
+        WriteAheadLog log = new WriteAheadLog(directory.toString(), 1 << 20);
+        log.replay(0, recorder);
+        logs.add(log);
+        return recorder;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    /** Header, type, car id, sequence, three doubles and a timestamp. */
+    private static int frameSize() {
+        return 8 + 1 + 8 + 8 + 3 * 8 + 8;
+    }
+
+    private static FuelEntry entry(int index) {
+        return new FuelEntry(30 + index, 45 + index, 1_000 + index * 500.0,
+                Instant.ofEpochMilli(1_600_000_000_000L + index * 86_400_000L));
+    }
+
+    private static String describe(long carId, long sequence, FuelEntry entry) {
+        return carId + "/" + sequence + " " + entry.getLiters() + " " + entry.getPrice() + " " + entry.getOdometer()
+                + " " + entry.getTimestamp().toEpochMilli();
+    }
+
+    private static final class Recorder implements WriteAheadLog.RecordHandler {
+        final List<String> cars = new ArrayList<>();
+        final List<String> entries = new ArrayList<>();
+
+        @Override
+        public void onCar(Car car) {
+            cars.add("car " + car.getId() + " " + car.getBrand() + " " + car.getModel() + " " + car.getYear());
+        }
+
+        @Override
+        public void onFuelEntry(long carId, long sequence, FuelEntry entry) {
+            entries.add(describe(carId, sequence, entry));
+        }
+    }
+}
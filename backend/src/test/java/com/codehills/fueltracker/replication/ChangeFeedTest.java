@@ -0,0 +1,89 @@
+package com.codehills.fueltracker.replication;
+
+import com.codehills.fueltracker.exception.ResourceGoneException;
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeFeedTest {
+
+    @Test
+    void readsChangesInPublishOrder() {
+        ChangeFeed feed = new ChangeFeed(8);
+        Car car = new Car(1, "Skoda", "Octavia", 2018);
+        feed.publishCar(car);
+        feed.publishFuelEntry(1, 0, entry(100));
+        feed.publishFuelEntry(1, 1, entry(200));
+
+        List<Change> changes = feed.read(0, 10);
+
+        assertEquals(3, feed.head());
+        assertEquals(List.of(0L, 1L, 2L), changes.stream().map(Change::getSequence).toList());
+        assertSame(car, changes.get(0).getCar());
+        assertNull(changes.get(1).getCar());
+        assertEquals(1, changes.get(2).getCarId());
+        assertEquals(1, changes.get(2).getEntrySequence());
+        assertEquals(200, changes.get(2).getEntry().getOdometer());
+    }
+
+    @Test
+    void stopsAtTheLimitAndAtTheHead() {
+        ChangeFeed feed = new ChangeFeed(8);
+        for (int i = 0; i < 5; i++) {
+            feed.publishFuelEntry(1, i, entry(i));
+        }
+
+        assertEquals(List.of(1L, 2L), feed.read(1, 2).stream().map(Change::getSequence).toList());
+        assertEquals(List.of(3L, 4L), feed.read(3, 10).stream().map(Change::getSequence).toList());
+        assertTrue(feed.read(5, 10).isEmpty());
+    }
+
+    @Test
+    void refusesChangesThatWereOverwritten() {
+        ChangeFeed feed = new ChangeFeed(4);
+        for (int i = 0; i < 6; i++) {
+            feed.publishFuelEntry(1, i, entry(i));
+        }
+
+        assertEquals(2, feed.oldest());
+        assertThrows(ResourceGoneException.class, () -> feed.read(1, 10));
+        assertEquals(List.of(2L, 3L, 4L, 5L), feed.read(2, 10).stream().map(Change::getSequence).toList());
+    }
+
+    @Test
+    void wakesWaitersWhenTheAwaitedChangeIsPublished() {
+        ChangeFeed feed = new ChangeFeed(8);
+        feed.publishFuelEntry(1, 0, entry(0));
+
+        assertTrue(feed.awaitChange(0).isDone());
+        CompletableFuture<Void> next = feed.awaitChange(1);
+        assertFalse(next.isDone());
+        feed.publishFuelEntry(1, 1, entry(1));
+        assertTrue(next.isDone());
+    }
+
+    @Test
+    void publishesNothingWhenDisabled() {
+        ChangeFeed feed = new ChangeFeed(0);
+        feed.publishCar(new Car(1, "Skoda", "Octavia", 2018));
+        feed.publishFuelEntry(1, 0, entry(0));
+
+        assertFalse(feed.isEnabled());
+        assertEquals(0, feed.head());
+    }
+
+    private static FuelEntry entry(double odometer) {
+        return new FuelEntry(40, 80, odometer, Instant.ofEpochSecond(1_700_000_000L + (long) odometer));
+    }
+}
@@ -0,0 +1,352 @@
+package com.codehills.fueltracker.replication;
+
+import com.codehills.fueltracker.dto.ChangeBatchResponse;
+import com.codehills.fueltracker.dto.ChangeResponse;
+import com.codehills.fueltracker.exception.ResourceGoneException;
+import com.codehills.fueltracker.format.PayloadFormat;
+import com.codehills.fueltracker.format.PayloadMappers;
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelAggregate;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryListener;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.codehills.fueltracker.repository.StorageShards;
+import com.codehills.fueltracker.service.ChangeFeedService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class FeedFollowerTest {
+    private static final int SHARDS = 2;
+    private static final PayloadMappers MAPPERS = new PayloadMappers(new ObjectMapper().findAndRegisterModules());
+
+    private final Leader leader = new Leader();
+    private final CarRepository cars = new CarRepository(new WriteAheadLog("", 0), new ChangeFeed(0),
+            new StorageShards(SHARDS));
+    private final FuelEntryRepository entries = new FuelEntryRepository(new WriteAheadLog("", 0),
+            new ChangeFeed(0), new StorageShards(SHARDS));
+    private FeedFollower follower;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (follower != null) {
+            follower.stop();
+        }
+        leader.close();
+    }
+
+    @Test
+    void loadsTheCopyThenTailsTheFeedSkippingChangesAlreadyCopied() throws Exception {
+        long skoda = leader.addCar("Skoda", 3);
+        long opel = leader.addCar("Opel", 2);
+        // Written after the copy's position is taken, so they are both in the copy and in the feed after it.
+        leader.beforeCopy = () -> {
+            leader.addEntries(skoda, 1);
+            leader.addCar("Kia", 1);
+        };
+        AtomicLong restored = new AtomicLong();
+        entries.addListener(new FuelEntryListener() {
+            @Override
+            public void onEntriesAdded(long carId, List<FuelEntry> added, FuelAggregate before,
+                                       FuelAggregate after) {
+                fail("A follower only restores entries");
+            }
+
+            @Override
+            public void onHistoryRestored(long carId, FuelAggregate before, FuelAggregate after) {
+                restored.incrementAndGet();
+            }
+        });
+
+        follow(100);
+        awaitCaughtUp();
+        leader.addEntries(opel, 2);
+        leader.addCar("Fiat", 1);
+        awaitCaughtUp();
+
+        assertSameData();
+        assertEquals(10, restored.get());
+        assertEquals(0, follower.getLagChanges());
+        assertFalse(follower.isStopped());
+    }
+
+    @Test
+    void rejectsACutOffCopyAndLoadsItAgain() throws Exception {
+        long skoda = leader.addCar("Skoda", 3);
+        leader.addCar("Opel", 2);
+        leader.copiesToCutOff.set(1);
+
+        follow(100);
+        awaitCaughtUp();
+        leader.addEntries(skoda, 1);
+        awaitCaughtUp();
+
+        assertEquals(2, leader.copies.get());
+        assertEquals(2, leader.copiesBeforeFirstPoll.get());
+        assertSameData();
+    }
+
+    @Test
+    void stopsWhenTheLeaderRestartsWithANewFeed() throws Exception {
+        long skoda = leader.addCar("Skoda", 2);
+        follow(100);
+        awaitCaughtUp();
+
+        leader.restart();
+        await(follower::isStopped);
+
+        assertEquals(2, entries.findByCarId(skoda).size());
+    }
+
+    @Test
+    void stopsWhenAChangeDoesNotContinueTheHistoryHeld() throws Exception {
+        long skoda = leader.addCar("Skoda", 2);
+        follow(100);
+        awaitCaughtUp();
+
+        leader.node.feed.publishFuelEntry(skoda, 5, entry(500));
+        await(follower::isStopped);
+
+        assertEquals(2, entries.findByCarId(skoda).size());
+        assertEquals(3, follower.getAppliedChanges());
+    }
+
+    @Test
+    void reportsTheLagWhileBehindTheLeader() throws Exception {
+        long skoda = leader.addCar("Skoda", 0);
+        leader.beforeCopy = () -> leader.addEntries(skoda, 6);
+        leader.pollPermits = new Semaphore(1);
+
+        follow(2);
+        await(() -> follower.getAppliedChanges() == 3);
+        TimeUnit.MILLISECONDS.sleep(20);
+
+        assertEquals(4, follower.getLagChanges());
+        assertTrue(follower.getLagSeconds() >= 0.02, () -> "lag " + follower.getLagSeconds());
+
+        leader.pollPermits.release(100);
+        awaitCaughtUp();
+
+        assertEquals(7, follower.getAppliedChanges());
+        assertEquals(0, follower.getLagChanges());
+        assertEquals(0.0, follower.getLagSeconds(), 0.1);
+    }
+
+    private void follow(int batchSize) {
+        follower = new FeedFollower(leader.url(), Duration.ofMillis(200), batchSize, Duration.ofMillis(20), cars,
+                entries, MAPPERS);
+        follower.afterSingletonsInstantiated();
+    }
+
+    private void awaitCaughtUp() throws InterruptedException {
+        await(() -> follower.getAppliedChanges() == leader.node.feed.head());
+    }
+
+    private void assertSameData() {
+        Node node = leader.node;
+        assertEquals(node.cars.count(), cars.count());
+        for (Car car : node.cars.findAll()) {
+            assertEquals(car.getBrand(), cars.findById(car.getId()).orElseThrow().getBrand());
+            assertEquals(odometers(node.entries.findByCarId(car.getId())), odometers(entries.findByCarId(car.getId())));
+        }
+    }
+
+    private static List<Double> odometers(List<FuelEntry> history) {
+        return history.stream().map(FuelEntry::getOdometer).toList();
+    }
+
+    private static FuelEntry entry(double odometer) {
+        return new FuelEntry(40, 80, odometer, Instant.ofEpochSecond(1_700_000_000L + (long) odometer));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for the follower");
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+
+    /**
+     * One leader process: its repositories, feed and feed service.
+     */
+    private static final class Node {
+        final ChangeFeed feed = new ChangeFeed(64);
+        final CarRepository cars = new CarRepository(new WriteAheadLog("", 0), feed, new StorageShards(SHARDS));
+        final FuelEntryRepository entries = new FuelEntryRepository(new WriteAheadLog("", 0), feed,
+                new StorageShards(SHARDS));
+        final ChangeFeedService service = new ChangeFeedService(feed, cars, entries, MAPPERS, Duration.ofSeconds(1));
+    }
+
+    /**
+     * Serves the two change feed endpoints of a {@link Node} over HTTP, like {@code ChangeFeedController} does.
+     */
+    private static final class Leader implements AutoCloseable {
+        final AtomicInteger copies = new AtomicInteger();
+        final AtomicInteger copiesToCutOff = new AtomicInteger();
+        final AtomicInteger copiesBeforeFirstPoll = new AtomicInteger(-1);
+        volatile Node node = new Node();
+        volatile Runnable beforeCopy = () -> {
+        };
+        volatile Semaphore pollPermits;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final HttpServer server;
+
+        Leader() {
+            try {
+                server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            server.setExecutor(executor);
+            server.createContext("/api/changes/bootstrap", this::bootstrap);
+            server.createContext("/api/changes", this::changes);
+            server.start();
+        }
+
+        String url() {
+            return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+        }
+
+        long addCar(String brand, int entryCount) {
+            long id = node.cars.save(brand, "Model", 2020).getId();
+            addEntries(id, entryCount);
+            return id;
+        }
+
+        void addEntries(long carId, int count) {
+            int held = node.entries.findByCarId(carId).size();
+            for (int i = 0; i < count; i++) {
+                node.entries.addEntry(carId, entry(100.0 * (held + i + 1)));
+            }
+        }
+
+        /**
+         * Starts over with an empty node, whose feed has a new epoch.
+         */
+        void restart() throws InterruptedException {
+            String epoch = node.feed.epoch();
+            Node restarted;
+            do {
+                TimeUnit.MILLISECONDS.sleep(2);
+                restarted = new Node();
+            } while (restarted.feed.epoch().equals(epoch));
+            node = restarted;
+        }
+
+        private void bootstrap(HttpExchange exchange) throws IOException {
+            Node current = node;
+            long position = current.service.bootstrapPosition();
+            Runnable hook = beforeCopy;
+            beforeCopy = () -> {
+            };
+            hook.run();
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            current.service.writeBootstrap(copy, PayloadFormat.SMILE, position);
+            copies.incrementAndGet();
+            byte[] body = copiesToCutOff.getAndDecrement() > 0 ? withoutLastChange(copy.toByteArray())
+                    : copy.toByteArray();
+            exchange.getResponseHeaders().add(ChangeFeed.EPOCH_HEADER, current.feed.epoch());
+            exchange.getResponseHeaders().add(ChangeFeed.POSITION_HEADER, Long.toString(position));
+            send(exchange, 200, body);
+        }
+
+        private void changes(HttpExchange exchange) throws IOException {
+            copiesBeforeFirstPoll.compareAndSet(-1, copies.get());
+            Map<String, String> query = new HashMap<>();
+            for (String parameter : exchange.getRequestURI().getRawQuery().split("&")) {
+                int split = parameter.indexOf('=');
+                query.put(parameter.substring(0, split), parameter.substring(split + 1));
+            }
+            long from = Long.parseLong(query.get("from"));
+            int limit = Integer.parseInt(query.get("limit"));
+            long waitMillis = Long.parseLong(query.get("waitMillis"));
+            Node current = node;
+            try {
+                Semaphore permits = pollPermits;
+                if (permits != null) {
+                    permits.acquire();
+                }
+                ChangeBatchResponse batch = poll(current, query.get("epoch"), from, limit);
+                if (batch.getChanges().isEmpty()) {
+                    try {
+                        current.feed.awaitChange(from).get(waitMillis, TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException ex) {
+                        // Answered with whatever is there, like an expired long-poll.
+                    }
+                    batch = poll(current, query.get("epoch"), from, limit);
+                }
+                send(exchange, 200, MAPPERS.forFormat(PayloadFormat.SMILE).writeValueAsBytes(batch));
+            } catch (ResourceGoneException ex) {
+                send(exchange, 410, MAPPERS.forFormat(PayloadFormat.SMILE)
+                        .writeValueAsBytes(Map.of("message", ex.getMessage())));
+            } catch (Exception ex) {
+                send(exchange, 500, new byte[0]);
+            }
+        }
+
+        private static ChangeBatchResponse poll(Node node, String epoch, long from, int limit) {
+            return (ChangeBatchResponse) node.service.poll(epoch, from, limit, 0).getResult();
+        }
+
+        private static byte[] withoutLastChange(byte[] copy) throws IOException {
+            ObjectMapper mapper = MAPPERS.forFormat(PayloadFormat.SMILE);
+            List<ChangeResponse> changes = mapper.readerFor(ChangeResponse.class)
+                    .<ChangeResponse>readValues(copy).readAll();
+            ByteArrayOutputStream cut = new ByteArrayOutputStream();
+            try (SequenceWriter writer = mapper.writer().writeValues(cut)) {
+                writer.writeAll(changes.subList(0, changes.size() - 1));
+            }
+            return cut.toByteArray();
+        }
+
+        private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+            exchange.getResponseHeaders().add("Content-Type", PayloadFormat.SMILE_VALUE);
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+
+        @Override
+        public void close() {
+            Semaphore permits = pollPermits;
+            if (permits != null) {
+                permits.release(1_000);
+            }
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
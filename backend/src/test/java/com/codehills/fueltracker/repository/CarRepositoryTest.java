@@ -0,0 +1,70 @@
+package com.codehills.fueltracker.repository;
+
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import com.codehills.fueltracker.replication.ChangeFeed;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CarRepositoryTest {
+    private final CarRepository repository =
+            new CarRepository(new WriteAheadLog("", 0), new ChangeFeed(0), new StorageShards(4));
+
+    @Test
+    void findsCarsByBrandAndModelIgnoringCase() {
+        long golf = repository.save("Volkswagen", "Golf", 2015).getId();
+        long polo = repository.save("VOLKSWAGEN", "Polo", 2019).getId();
+        long upperGolf = repository.save("volkswagen", "GOLF", 2021).getId();
+        repository.save("Opel", "Astra", 2019);
+
+        assertEquals(List.of(golf, polo, upperGolf).stream().sorted().toList(),
+                ids(repository.findPage(new CarFilter("Volkswagen", null, null, null), 0, 10)));
+        assertEquals(List.of(golf, upperGolf).stream().sorted().toList(),
+                ids(repository.findPage(new CarFilter(null, "golf", null, null), 0, 10)));
+        assertEquals(List.of(upperGolf),
+                ids(repository.findPage(new CarFilter("VolksWagen", "Golf", 2020, null), 0, 10)));
+    }
+
+    @Test
+    void findsNothingForUnknownNames() {
+        repository.save("Renault", "Clio", 2017);
+
+        assertTrue(repository.findPage(new CarFilter("Tesla", null, null, null), 0, 10).isEmpty());
+        assertTrue(repository.findPage(new CarFilter("Renault", "Model 3", null, null), 0, 10).isEmpty());
+    }
+
+    @Test
+    void pagesThroughAnIndexFromTheCursor() {
+        for (int i = 0; i < 25; i++) {
+            repository.save(i % 2 == 0 ? "Mazda" : "Honda", "Model " + i % 3, 2000 + i);
+        }
+        CarFilter filter = new CarFilter("mazda", null, null, null);
+
+        List<Car> first = repository.findPage(filter, 0, 5);
+        List<Car> second = repository.findPage(filter, first.get(first.size() - 1).getId(), 10);
+
+        assertEquals(5, first.size());
+        assertEquals(8, second.size());
+        assertTrue(first.get(4).getId() < second.get(0).getId());
+        second.forEach(car -> assertEquals("Mazda", car.getBrand()));
+    }
+
+    @Test
+    void givesLaterCarsLargerIdsAcrossShards() {
+        long previous = 0;
+        for (int i = 0; i < 20; i++) {
+            long id = repository.save("Kia", "Ceed", 2020).getId();
+            assertTrue(id > previous, id + " after " + previous);
+            previous = id;
+        }
+        assertEquals(20, repository.findPage(CarFilter.ANY, 0, 100).size());
+    }
+
+    private static List<Long> ids(List<Car> cars) {
+        return cars.stream().map(Car::getId).toList();
+    }
+}
@@ -0,0 +1,177 @@
+package com.codehills.fueltracker.repository;
+
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.model.FuelInterval;
+import com.codehills.fueltracker.model.FuelWindow;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FuelEntryColumnsTest {
+    private static final long BASE_TIMESTAMP = 1_600_000_000_000L;
+    private static final Comparator<FuelEntry> ORDER = Comparator
+            .comparing(FuelEntry::getTimestamp)
+            .thenComparingDouble(FuelEntry::getOdometer);
+
+    private final FuelEntryColumns columns = new FuelEntryColumns(new ReentrantLock());
+    private final List<FuelEntry> expected = new ArrayList<>();
+
+    @Test
+    void backdatedInsertsAcrossChunksMatchASortedHistory() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5 * FuelEntryColumns.CHUNK_CAPACITY; i++) {
+            long minute = random.nextInt(4) == 0 ? random.nextInt(i + 1) : i;
+            append(entry(minute * 60_000L + random.nextInt(60_000), 20 + random.nextInt(30),
+                    1.5 + random.nextDouble()));
+        }
+
+        assertMatches();
+        for (int i = 0; i < 200; i++) {
+            long from = BASE_TIMESTAMP + random.nextInt(5 * FuelEntryColumns.CHUNK_CAPACITY) * 60_000L;
+            long to = from + random.nextInt(2 * FuelEntryColumns.CHUNK_CAPACITY) * 60_000L;
+            assertWindow(from, to);
+        }
+    }
+
+    @Test
+    void insertIntoFullChunkSplitsIt() {
+        for (int i = 0; i < FuelEntryColumns.CHUNK_CAPACITY; i++) {
+            append(entry(60_000L * (2 * i + 1), 30, 1.8));
+        }
+        append(entry(0, 40, 1.9));
+        append(entry(60_000L * FuelEntryColumns.CHUNK_CAPACITY, 35, 2.1));
+        append(entry(60_000L * 2 * FuelEntryColumns.CHUNK_CAPACITY, 25, 1.7));
+
+        assertMatches();
+        assertWindow(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertWindow(BASE_TIMESTAMP, BASE_TIMESTAMP + 60_000L * FuelEntryColumns.CHUNK_CAPACITY);
+    }
+
+    @Test
+    void insertRecomputesTheIntervalOfTheNextFillUp() {
+        append(entry(0, 40, 1.8));
+        append(entry(120_000, 30, 1.8));
+        assertEquals(30 / 20.0 * 100, columns.intervalConsumption(BASE_TIMESTAMP + 120_000, odometer(120_000)), 1e-9);
+
+        append(entry(60_000, 10, 1.8));
+
+        assertEquals(10 / 10.0 * 100, columns.intervalConsumption(BASE_TIMESTAMP + 60_000, odometer(60_000)), 1e-9);
+        assertEquals(30 / 10.0 * 100, columns.intervalConsumption(BASE_TIMESTAMP + 120_000, odometer(120_000)), 1e-9);
+        assertEquals(2, columns.consumptionSketch().getCount());
+        assertMatches();
+    }
+
+    @Test
+    void viewsHandedOutAreNotChangedByLaterInserts() {
+        for (int i = 1; i <= 10; i++) {
+            append(entry(60_000L * i, 30, 1.8));
+        }
+        List<FuelEntry> before = columns.view();
+        List<FuelEntry> copy = new ArrayList<>(before);
+
+        append(entry(0, 40, 1.9));
+        append(entry(60_000L * 5 + 1, 40, 1.9));
+        append(entry(60_000L * 11, 40, 1.9));
+
+        assertEquals(copy.size(), before.size());
+        for (int i = 0; i < copy.size(); i++) {
+            assertSameEntry(copy.get(i), before.get(i));
+        }
+        assertMatches();
+    }
+
+    private void append(FuelEntry entry) {
+        columns.appendLock().lock();
+        try {
+            columns.append(entry);
+        } finally {
+            columns.appendLock().unlock();
+        }
+        int position = expected.size();
+        while (position > 0 && ORDER.compare(expected.get(position - 1), entry) > 0) {
+            position--;
+        }
+        expected.add(position, entry);
+    }
+
+    private void assertMatches() {
+        List<FuelEntry> actual = columns.view();
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.size(), columns.size());
+        assertEquals(expected.size(), columns.aggregate().getCount());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameEntry(expected.get(i), actual.get(i));
+        }
+
+        List<FuelInterval> intervals = columns.intervals(Long.MIN_VALUE, Long.MAX_VALUE);
+        int next = 0;
+        for (int i = 1; i < expected.size(); i++) {
+            double distance = expected.get(i).getOdometer() - expected.get(i - 1).getOdometer();
+            if (distance <= 0) {
+                continue;
+            }
+            FuelInterval interval = intervals.get(next++);
+            assertEquals(expected.get(i).getTimestamp().toEpochMilli(), interval.getTimestamp());
+            assertEquals(distance, interval.getDistance(), 1e-9);
+            assertEquals(FuelInterval.consumptionPer100Km(expected.get(i).getLiters(), distance),
+                    interval.getConsumptionPer100Km(), 1e-9);
+        }
+        assertEquals(next, intervals.size());
+        assertEquals(next, columns.consumptionSketch().getCount());
+    }
+
+    private void assertWindow(long fromMillis, long toMillis) {
+        int fillUps = 0;
+        double liters = 0;
+        double cost = 0;
+        for (FuelEntry entry : expected) {
+            long timestamp = entry.getTimestamp().toEpochMilli();
+            if (timestamp >= fromMillis && timestamp <= toMillis) {
+                fillUps++;
+                liters += entry.getLiters();
+                cost += entry.getPrice();
+            }
+        }
+        FuelWindow window = columns.window(fromMillis, toMillis);
+        assertEquals(fillUps, window.getFillUps());
+        assertEquals(liters, window.getTotalLiters(), 1e-6);
+        assertEquals(cost, window.getTotalCost(), 1e-6);
+        assertEquals(fillUps, columns.view(fromMillis, toMillis).size());
+        assertVisits(fromMillis, toMillis);
+    }
+
+    private void assertVisits(long fromMillis, long toMillis) {
+        List<FuelEntry> visited = new ArrayList<>();
+        columns.forEach(fromMillis, toMillis, (liters, price, odometer, timestamp) ->
+                visited.add(new FuelEntry(liters, price, odometer, Instant.ofEpochMilli(timestamp))));
+        List<FuelEntry> view = columns.view(fromMillis, toMillis);
+        assertEquals(view.size(), visited.size());
+        for (int i = 0; i < view.size(); i++) {
+            assertSameEntry(view.get(i), visited.get(i));
+        }
+    }
+
+    private static void assertSameEntry(FuelEntry expected, FuelEntry actual) {
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getOdometer(), actual.getOdometer());
+        assertEquals(expected.getLiters(), actual.getLiters());
+        assertEquals(expected.getPrice(), actual.getPrice());
+    }
+
+    private static FuelEntry entry(long offsetMillis, double liters, double pricePerLiter) {
+        return new FuelEntry(liters, liters * pricePerLiter, odometer(offsetMillis),
+                Instant.ofEpochMilli(BASE_TIMESTAMP + offsetMillis));
+    }
+
+    /** Ten kilometers per minute, so the odometer always agrees with the timestamp order. */
+    private static double odometer(long offsetMillis) {
+        return 1_000 + offsetMillis / 6_000.0;
+    }
+}
@@ -0,0 +1,129 @@
+package com.codehills.fueltracker.repository;
+
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.model.FuelWindow;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import com.codehills.fueltracker.replication.ChangeFeed;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers {@link FuelEntryRepository} with concurrent appends, in and out of timestamp order, while reader threads
+ * check that every state they observe is consistent: fill-up count, liters and cost agree with each other, counts
+ * never go backwards and entry views stay sorted.
+ */
+class FuelEntryRepositoryStressTest {
+    private static final int WRITERS = 8;
+    private static final int READERS = 8;
+    private static final int CARS = 4;
+    private static final long DURATION_MILLIS = 2_000;
+    private static final double LITERS = 1.0;
+    private static final double PRICE = 2.0;
+    private static final long BASE_TIMESTAMP = 1_600_000_000_000L;
+
+    private final FuelEntryRepository repository =
+            new FuelEntryRepository(new WriteAheadLog("", 0), new ChangeFeed(0), new StorageShards(0));
+    private final AtomicLong[] appended = new AtomicLong[CARS + 1];
+    private final AtomicLong reads = new AtomicLong();
+    private volatile boolean running = true;
+    private volatile String failure;
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void concurrentAppendsKeepEveryObservedStateConsistent() throws InterruptedException {
+        for (int car = 1; car <= CARS; car++) {
+            appended[car] = new AtomicLong();
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            threads.add(new Thread(this::write, "writer-" + i));
+        }
+        for (int i = 0; i < READERS; i++) {
+            threads.add(new Thread(this::read, "reader-" + i));
+        }
+        threads.forEach(Thread::start);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+        while (failure == null && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure);
+        assertTrue(reads.get() > 0, "readers never ran");
+        long total = 0;
+        for (int car = 1; car <= CARS; car++) {
+            long expected = appended[car].get();
+            List<FuelEntry> entries = repository.findByCarId(car);
+            assertEquals(expected, entries.size(), "entries of car " + car);
+            assertEquals(expected, repository.getAggregate(car).getCount(), "aggregate count of car " + car);
+            checkSorted(car, entries);
+            total += expected;
+        }
+        assertNull(failure);
+        assertEquals(total, repository.getEntryCount());
+    }
+
+    private void write() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running && failure == null) {
+            int car = 1 + random.nextInt(CARS);
+            // Mostly increasing timestamps with a share of late entries, which take the copy-on-write path.
+            long sequence = appended[car].get();
+            long lateBy = random.nextInt(10) == 0 ? random.nextLong(Math.max(1, sequence)) : 0;
+            Instant timestamp = Instant.ofEpochMilli(BASE_TIMESTAMP + (sequence - lateBy) * 60_000L);
+            repository.addEntry(car, new FuelEntry(LITERS, PRICE, 1_000 + sequence, timestamp));
+            appended[car].incrementAndGet();
+        }
+    }
+
+    private void read() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] lastSeen = new int[CARS + 1];
+        while (running && failure == null) {
+            int car = 1 + random.nextInt(CARS);
+            FuelWindow window = repository.getWindow(car, Long.MIN_VALUE, Long.MAX_VALUE);
+            int fillUps = window.getFillUps();
+            check(window.getTotalLiters() == fillUps * LITERS && window.getTotalCost() == fillUps * PRICE,
+                    "car " + car + " window of " + fillUps + " fill-ups has " + window.getTotalLiters()
+                            + " liters and cost " + window.getTotalCost());
+            check(fillUps >= lastSeen[car], "car " + car + " went back from " + lastSeen[car] + " to " + fillUps);
+            lastSeen[car] = fillUps;
+
+            if (random.nextInt(100) == 0) {
+                List<FuelEntry> entries = repository.findByCarId(car);
+                check(entries.size() >= fillUps, "car " + car + " view is older than an earlier window");
+                checkSorted(car, entries);
+            }
+            reads.incrementAndGet();
+        }
+    }
+
+    private void checkSorted(int car, List<FuelEntry> entries) {
+        for (int i = 1; i < entries.size(); i++) {
+            if (entries.get(i - 1).getTimestamp().isAfter(entries.get(i).getTimestamp())) {
+                check(false, "car " + car + " entries out of timestamp order at index " + i);
+                return;
+            }
+        }
+    }
+
+    private void check(boolean condition, String message) {
+        if (!condition && failure == null) {
+            failure = message;
+        }
+    }
+}
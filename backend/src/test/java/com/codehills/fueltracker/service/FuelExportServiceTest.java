@@ -0,0 +1,141 @@
+package com.codehills.fueltracker.service;
+
+import com.codehills.fueltracker.format.ExportFormat;
+import com.codehills.fueltracker.format.PayloadMappers;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import com.codehills.fueltracker.replication.ChangeFeed;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.codehills.fueltracker.repository.StorageShards;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuelExportServiceTest {
+    private static final int BUFFER_BYTES = 65_536;
+    private static final long BASE_TIMESTAMP = 1_600_000_000_000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WriteAheadLog writeAheadLog = new WriteAheadLog("", 0);
+    private final ChangeFeed changeFeed = new ChangeFeed(0);
+    private final StorageShards shards = new StorageShards(0);
+    private final CarRepository carRepository = new CarRepository(writeAheadLog, changeFeed, shards);
+    private final FuelEntryRepository fuelEntryRepository = new FuelEntryRepository(writeAheadLog, changeFeed, shards);
+    private final FuelExportService exportService = new FuelExportService(carRepository, fuelEntryRepository,
+            new PayloadMappers(objectMapper), BUFFER_BYTES);
+
+    @Test
+    void writesCsvInTheImportFormat() throws IOException {
+        long corolla = carRepository.save("Toyota", "Corolla, \"GR\"", 2018).getId();
+        long focus = carRepository.save("Ford", "Focus", 2020).getId();
+        fuelEntryRepository.addEntry(corolla, entry(1));
+        fuelEntryRepository.addEntry(corolla, entry(0));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(out, ExportFormat.CSV, false, 0, null, null);
+
+        assertEquals(String.join("\n",
+                "type,ref,brand,model,year,car,liters,price,odometer,timestamp",
+                "car," + corolla + ",Toyota,\"Corolla, \"\"GR\"\"\",2018,,,,,",
+                "fuel,,,,," + corolla + ",30.0,60.0,1000.0,2020-09-13T12:26:40Z",
+                "fuel,,,,," + corolla + ",31.0,62.0,1500.0,2020-09-14T12:26:40Z",
+                "car," + focus + ",Ford,Focus,2020,,,,,",
+                ""), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writesGzipCompressedNdjsonForTheRequestedRange() throws IOException {
+        long first = carRepository.save("Toyota", "Corolla", 2018).getId();
+        long second = carRepository.save("Ford", "Focus", 2020).getId();
+        for (int i = 0; i < 10; i++) {
+            fuelEntryRepository.addEntry(first, entry(i));
+            fuelEntryRepository.addEntry(second, entry(i));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(out, ExportFormat.NDJSON, true, first, Instant.ofEpochMilli(timestamp(3)),
+                Instant.ofEpochMilli(timestamp(5)));
+
+        List<JsonNode> rows = new ArrayList<>();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                rows.add(objectMapper.readTree(line));
+            }
+        }
+        assertEquals(4, rows.size());
+        assertEquals("car", rows.get(0).get("type").asText());
+        assertEquals(second, rows.get(0).get("ref").asLong());
+        assertEquals("Focus", rows.get(0).get("model").asText());
+        for (int i = 0; i < 3; i++) {
+            JsonNode row = rows.get(i + 1);
+            assertEquals("fuel", row.get("type").asText());
+            assertEquals(second, row.get("car").asLong());
+            assertEquals(entry(i + 3).getOdometer(), row.get("odometer").asDouble());
+            assertEquals(entry(i + 3).getTimestamp().toString(), row.get("timestamp").asText());
+        }
+    }
+
+    @Test
+    void streamsLargeExportsInBufferSizedWrites() throws IOException {
+        List<FuelEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            entries.add(entry(i));
+        }
+        for (int i = 0; i < 200; i++) {
+            fuelEntryRepository.addEntries(carRepository.save("Toyota", "Corolla", 2018).getId(), entries);
+        }
+
+        for (boolean gzip : new boolean[] {false, true}) {
+            RecordingStream out = new RecordingStream();
+            exportService.export(out, ExportFormat.CSV, gzip, 0, null, null);
+
+            assertTrue(out.largestWrite <= BUFFER_BYTES, "largest write " + out.largestWrite);
+            assertTrue(out.bytes > 20L * BUFFER_BYTES / (gzip ? 10 : 1), out.bytes + " bytes written");
+            assertTrue(out.writes > out.bytes / BUFFER_BYTES, out.writes + " writes");
+        }
+    }
+
+    private static FuelEntry entry(int index) {
+        double liters = 30 + index % 20;
+        return new FuelEntry(liters, liters * 2, 1_000 + index * 500.0, Instant.ofEpochMilli(timestamp(index)));
+    }
+
+    private static long timestamp(int index) {
+        return BASE_TIMESTAMP + index * 86_400_000L;
+    }
+
+    /**
+     * Discards what is written, remembering how much and in how large pieces.
+     */
+    private static final class RecordingStream extends OutputStream {
+        private long bytes;
+        private long writes;
+        private int largestWrite;
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            bytes += length;
+            writes++;
+            largestWrite = Math.max(largestWrite, length);
+        }
+    }
+}
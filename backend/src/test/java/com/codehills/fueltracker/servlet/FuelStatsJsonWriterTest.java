@@ -0,0 +1,74 @@
+package com.codehills.fueltracker.servlet;
+
+import com.codehills.fueltracker.dto.FuelStatsResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the writer's output with Jackson's for the same values, byte for byte.
+ */
+class FuelStatsJsonWriterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FuelStatsJsonWriter writer = new FuelStatsJsonWriter();
+
+    @Test
+    void writesIntegralDoublesLikeJackson() throws JsonProcessingException {
+        assertStats(0.0, -0.0, 1.0);
+        assertStats(42.0, -7.0, 9_999_999.0);
+        assertStats(1e7, -1e7, 1e7 + 1);
+        assertStats(123_456_789.0, 0x1p53, 1e300);
+        assertStats(Long.MAX_VALUE, Long.MIN_VALUE, -1e22);
+    }
+
+    @Test
+    void writesDecimalsAroundThePlainRangeLikeJackson() throws JsonProcessingException {
+        assertStats(1e-4, 1e-3, 9.99e-4);
+        assertStats(0.001, 0.0011, -1e-3);
+        assertStats(9_999_999.5, 1.0000001e7, 12_345_678.9);
+        assertStats(52.5, 0.1 + 0.2, 1.0 / 3);
+        assertStats(Double.MIN_VALUE, Double.MAX_VALUE, -Double.MIN_NORMAL);
+    }
+
+    @Test
+    void writesNonFiniteValuesLikeJackson() throws JsonProcessingException {
+        assertStats(Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+    }
+
+    @Test
+    void writesPricesAndConsumptionsLikeJackson() throws JsonProcessingException {
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            double liters = Math.round(random.nextDouble() * 1_000_000) / 100.0;
+            double cost = Math.round(random.nextDouble() * 1e9) / 1000.0;
+            double consumption = random.nextDouble() * 20;
+            assertStats(liters, cost, consumption);
+        }
+    }
+
+    @Test
+    void escapesErrorMessagesLikeJackson() throws JsonProcessingException {
+        assertError("Car not found: 42");
+        assertError("quote \" backslash \\ slash / tab \t newline \n return \r");
+        assertError("controls \u0000 \u0001 \u001f \b \f and delete \u007f");
+        assertError("Prüfung · 燃料 · 🚗");
+    }
+
+    private void assertStats(double totalFuelLiters, double totalCost, double averageConsumption)
+            throws JsonProcessingException {
+        FuelStatsResponse stats = new FuelStatsResponse(totalFuelLiters, totalCost, averageConsumption);
+        assertEquals(objectMapper.writeValueAsString(stats),
+                new String(writer.stats(stats).toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private void assertError(String message) throws JsonProcessingException {
+        assertEquals(objectMapper.writeValueAsString(Map.of("message", message)),
+                new String(writer.error(message).toByteArray(), StandardCharsets.UTF_8));
+    }
+}
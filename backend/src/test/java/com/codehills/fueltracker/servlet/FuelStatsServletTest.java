@@ -0,0 +1,79 @@
+package com.codehills.fueltracker.servlet;
+
+import com.codehills.fueltracker.cache.ResponseCache;
+import com.codehills.fueltracker.format.PayloadMappers;
+import com.codehills.fueltracker.metrics.ErrorMetrics;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import com.codehills.fueltracker.replication.ChangeFeed;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.codehills.fueltracker.repository.StorageShards;
+import com.codehills.fueltracker.service.CarService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class FuelStatsServletTest {
+    private final WriteAheadLog writeAheadLog = new WriteAheadLog("", 0);
+    private final ChangeFeed changeFeed = new ChangeFeed(0);
+    private final StorageShards shards = new StorageShards(0);
+    private final CarRepository carRepository = new CarRepository(writeAheadLog, changeFeed, shards);
+    private final FuelEntryRepository fuelEntryRepository = new FuelEntryRepository(writeAheadLog, changeFeed, shards);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FuelStatsServlet servlet = new FuelStatsServlet(
+            new CarService(carRepository, fuelEntryRepository, meterRegistry), new ResponseCache(1 << 20),
+            new PayloadMappers(new ObjectMapper()), meterRegistry, new ErrorMetrics(meterRegistry));
+
+    @Test
+    void answersNotModifiedForCurrentStats() throws IOException {
+        long carId = carRepository.save("Toyota", "Corolla", 2018).getId();
+        fuelEntryRepository.addEntry(carId, new FuelEntry(40, 72, 45_000, Instant.ofEpochSecond(1_700_000_000)));
+        MockHttpServletResponse first = get(carId, null, null);
+        assertEquals(HttpServletResponse.SC_OK, first.getStatus());
+        assertEquals("{\"totalFuelLiters\":40.0,\"totalCost\":72.0,\"averageConsumptionPer100Km\":0.0}",
+                first.getContentAsString());
+        String etag = first.getHeader("ETag");
+
+        MockHttpServletResponse again = get(carId, null, "W/" + etag + ", \"other\"");
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, again.getStatus());
+        assertEquals(etag, again.getHeader("ETag"));
+        assertEquals(0, again.getContentAsByteArray().length);
+        assertEquals(1, meterRegistry.get("fueltracker.servlet.requests").tag("status", "304").timer().count());
+
+        assertEquals(HttpServletResponse.SC_OK, get(carId, "application/cbor", etag).getStatus());
+        fuelEntryRepository.addEntry(carId, new FuelEntry(35, 63, 45_600, Instant.ofEpochSecond(1_700_100_000)));
+        MockHttpServletResponse changed = get(carId, null, etag);
+        assertEquals(HttpServletResponse.SC_OK, changed.getStatus());
+        assertNotEquals(etag, changed.getHeader("ETag"));
+    }
+
+    @Test
+    void answersNotFoundForAnUnknownCarWhateverTheTag() throws IOException {
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get(99, null, "*").getStatus());
+    }
+
+    private MockHttpServletResponse get(long carId, String accept, String ifNoneMatch) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/servlet/fuel-stats");
+        request.setParameter("carId", Long.toString(carId));
+        if (accept != null) {
+            request.addHeader("Accept", accept);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        servlet.doGet(request, response);
+        return response;
+    }
+}
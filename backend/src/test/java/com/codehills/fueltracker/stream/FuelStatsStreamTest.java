@@ -0,0 +1,104 @@
+package com.codehills.fueltracker.stream;
+
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import com.codehills.fueltracker.replication.ChangeFeed;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.codehills.fueltracker.repository.StorageShards;
+import com.codehills.fueltracker.service.CarService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Emitters are not attached to HTTP responses; they count the events handed to them instead.
+ */
+class FuelStatsStreamTest {
+    private static final Duration COALESCE = Duration.ofMillis(200);
+
+    private final WriteAheadLog writeAheadLog = new WriteAheadLog("", 0);
+    private final ChangeFeed changeFeed = new ChangeFeed(0);
+    private final StorageShards shards = new StorageShards(0);
+    private final CarRepository carRepository = new CarRepository(writeAheadLog, changeFeed, shards);
+    private final FuelEntryRepository fuelEntryRepository = new FuelEntryRepository(writeAheadLog, changeFeed, shards);
+    private final FuelStatsStream stream = new FuelStatsStream(
+            new CarService(carRepository, fuelEntryRepository, new CompositeMeterRegistry()), fuelEntryRepository,
+            new ObjectMapper(), COALESCE, Duration.ofHours(1), 100);
+
+    @AfterEach
+    void stopStream() throws InterruptedException {
+        stream.stop();
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void pushesABurstOfAppendsOnce() throws InterruptedException {
+        long carId = carRepository.save("Toyota", "Corolla", 2018).getId();
+        CountingEmitter emitter = new CountingEmitter();
+        stream.subscribe(List.of(carId), emitter);
+        emitter.await(1);
+
+        for (int i = 0; i < 1_000; i++) {
+            fuelEntryRepository.addEntry(carId, entry(i));
+        }
+        emitter.await(2);
+        TimeUnit.MILLISECONDS.sleep(3 * COALESCE.toMillis());
+
+        assertEquals(2, emitter.sent.get());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void doesNotHoldAThreadPerSubscriber() throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int before = threads.getThreadCount();
+        CountingEmitter[] emitters = new CountingEmitter[1_000];
+        for (int i = 0; i < emitters.length; i++) {
+            long carId = carRepository.save("Toyota", "Corolla", 2018).getId();
+            emitters[i] = new CountingEmitter();
+            stream.subscribe(List.of(carId), emitters[i]);
+        }
+        for (CountingEmitter emitter : emitters) {
+            emitter.await(1);
+        }
+
+        assertEquals(emitters.length, stream.getSubscriptionCount());
+        int started = threads.getThreadCount() - before;
+        assertTrue(started <= 16, started + " threads started for " + emitters.length + " subscribers");
+    }
+
+    private static FuelEntry entry(int index) {
+        return new FuelEntry(30 + index % 20, 45 + index % 30, 1_000 + index * 550.0,
+                Instant.ofEpochMilli(1_600_000_000_000L + index * 86_400_000L));
+    }
+
+    private static final class CountingEmitter extends SseEmitter {
+        private final AtomicLong sent = new AtomicLong();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sent.incrementAndGet();
+        }
+
+        void await(long count) throws InterruptedException {
+            while (sent.get() < count) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.anomaly.FuelAnomalyDetector;
+import com.codehills.fueltracker.dto.FuelEntryRequest;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cost of anomaly detection on {@code CarService.addFuelEntry}: {@code detector=none} appends without the
+ * detector listening, {@code detector=ewma} with it. Fill-ups vary in liters and distance, with an occasional
+ * outlier, so the statistics are updated and entries get flagged as they would be in production.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AnomalyDetectionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Fleet {
+        @Param({"none", "ewma"})
+        public String detector;
+
+        Fixtures fixtures;
+        final AtomicInteger nextCar = new AtomicInteger();
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            fixtures = Fixtures.inMemory();
+            if ("ewma".equals(detector)) {
+                new FuelAnomalyDetector(fixtures.carRepository, fixtures.fuelEntryRepository,
+                        new CompositeMeterRegistry(), true, 0.1, 4.0, 5, 10_000);
+            }
+            nextCar.set(0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        long carId;
+        final FuelEntryRequest request = new FuelEntryRequest();
+        double odometer = 1_000;
+        long fillUps;
+
+        @Setup(Level.Iteration)
+        public void setUp(Fleet fleet) {
+            carId = fleet.fixtures.createCar(fleet.nextCar.incrementAndGet());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object addFuelEntry(Fleet fleet, Writer writer) {
+        return append(fleet, writer);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object addFuelEntryFourThreads(Fleet fleet, Writer writer) {
+        return append(fleet, writer);
+    }
+
+    private static Object append(Fleet fleet, Writer writer) {
+        long fillUp = writer.fillUps++;
+        double liters = 35 + fillUp % 11;
+        writer.odometer += fillUp % 1000 == 999 ? 50 : 500 + fillUp % 7 * 20;
+        writer.request.setLiters(liters);
+        writer.request.setPrice(liters * (1.6 + fillUp % 5 * 0.02));
+        writer.request.setOdometer(writer.odometer);
+        return fleet.fixtures.carService.addFuelEntry(writer.carId, writer.request);
+    }
+}
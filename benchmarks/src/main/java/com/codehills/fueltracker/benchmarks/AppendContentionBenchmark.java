@@ -0,0 +1,100 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.model.FuelAggregate;
+import com.codehills.fueltracker.model.FuelEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mixed appends and stats reads from many threads on a small set of shared cars, for the column store and for
+ * the original synchronized-list storage ({@link SynchronizedListFuelStore}). {@code writePercent} of the
+ * operations are appends, the rest read the car's average consumption.
+ * <p>
+ * JMH cannot parameterize the thread count, so {@link #main} runs the benchmark once for each of 1 to 64 threads;
+ * a single count can also be run with {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AppendContentionBenchmark {
+    private static final int PREFILLED_ENTRIES = 1_000;
+
+    @Param({"columns", "synchronized-list"})
+    public String storage;
+
+    @Param({"1", "16"})
+    public int cars;
+
+    @Param({"20"})
+    public int writePercent;
+
+    private Fixtures fixtures;
+    private SynchronizedListFuelStore synchronizedList;
+    private final AtomicLong odometer = new AtomicLong();
+
+    // Fresh stores per iteration keep the histories, and with them the baseline's read cost, from growing
+    // without bound.
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fixtures = Fixtures.inMemory();
+        synchronizedList = new SynchronizedListFuelStore();
+        for (int car = 1; car <= cars; car++) {
+            for (int i = 0; i < PREFILLED_ENTRIES; i++) {
+                FuelEntry entry = Fixtures.entry(i);
+                fixtures.fuelEntryRepository.addEntry(car, entry);
+                synchronizedList.addEntry(car, entry);
+            }
+        }
+        odometer.set(PREFILLED_ENTRIES);
+    }
+
+    @Benchmark
+    public double appendOrRead() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long carId = 1 + random.nextInt(cars);
+        boolean write = random.nextInt(100) < writePercent;
+        if ("columns".equals(storage)) {
+            if (write) {
+                fixtures.fuelEntryRepository.addEntry(carId, Fixtures.entry(odometer.getAndIncrement()));
+                return 0.0;
+            }
+            FuelAggregate aggregate = fixtures.fuelEntryRepository.getAggregate(carId);
+            double distance = aggregate.getDistance();
+            return distance > 0 ? (aggregate.getTotalLiters() / distance) * 100.0 : 0.0;
+        }
+        if (write) {
+            synchronizedList.addEntry(carId, Fixtures.entry(odometer.getAndIncrement()));
+            return 0.0;
+        }
+        return synchronizedList.averageConsumption(carId);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[] {1, 2, 4, 8, 16, 32, 64}) {
+            new Runner(new OptionsBuilder()
+                    .include(AppendContentionBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
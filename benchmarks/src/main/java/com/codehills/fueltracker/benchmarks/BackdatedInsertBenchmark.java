@@ -0,0 +1,64 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.model.FuelEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of inserting into a car's history at different distances from its end: {@code append} is an entry newer
+ * than all others, {@code near-end} one that belongs 16 entries before the end (a gateway replaying buffered
+ * fill-ups), {@code middle} one in the middle of the history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BackdatedInsertBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int historySize;
+
+    @Param({"append", "near-end", "middle"})
+    public String position;
+
+    private Fixtures fixtures;
+    private long carId;
+    private long next;
+    private Instant backdated;
+
+    // A fresh history per iteration keeps the insert position and the history size stable.
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fixtures = Fixtures.inMemory();
+        carId = fixtures.createCar(0);
+        for (int i = 0; i < historySize; i++) {
+            fixtures.fuelEntryRepository.addEntry(carId, Fixtures.entry(i));
+        }
+        next = historySize;
+        long target = "middle".equals(position) ? historySize / 2 : historySize - 16;
+        backdated = Fixtures.entry(target).getTimestamp().minusMillis(1);
+    }
+
+    @Benchmark
+    public FuelEntry insert() {
+        FuelEntry entry = "append".equals(position)
+                ? Fixtures.entry(next++)
+                : new FuelEntry(40, 60, 1_000 + next++, backdated);
+        return fixtures.fuelEntryRepository.addEntry(carId, entry);
+    }
+}
@@ -0,0 +1,108 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import com.codehills.fueltracker.replication.ChangeFeed;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.StorageShards;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap taken by cars. Every car gets its own copy of its brand and model, the way request bodies
+ * are deserialized, and the retained heap is compared for cars holding those strings, as {@code Car} did before
+ * it stored dictionary codes, and for {@link Car} itself. It then reports the heap per car of a whole
+ * {@link CarRepository}, indexes included, with the change feed disabled. Names come from a few hundred brands
+ * with ten models each. Exits with status 1 if encoded cars are not smaller or do not decode to their names.
+ * <pre>
+ * java -Xmx2g -cp benchmarks/target/benchmarks.jar com.codehills.fueltracker.benchmarks.CarFootprint \
+ *     [cars] [brands]
+ * </pre>
+ */
+public final class CarFootprint {
+    private static final int MODELS_PER_BRAND = 10;
+
+    public static void main(String[] args) throws Exception {
+        int cars = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int brands = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+        long before = usedHeap();
+        StringCar[] stringCars = new StringCar[cars];
+        for (int i = 0; i < cars; i++) {
+            stringCars[i] = new StringCar(i, copy(brand(i, brands)), copy(model(i, brands)), 2000 + i % 25);
+        }
+        double stringBytes = (double) (usedHeap() - before) / cars;
+        Reference.reachabilityFence(stringCars);
+        stringCars = null;
+
+        before = usedHeap();
+        Car[] encodedCars = new Car[cars];
+        for (int i = 0; i < cars; i++) {
+            encodedCars[i] = new Car(i, copy(brand(i, brands)), copy(model(i, brands)), 2000 + i % 25);
+        }
+        double encodedBytes = (double) (usedHeap() - before) / cars;
+        Reference.reachabilityFence(encodedCars);
+        boolean decoded = true;
+        for (int i = 0; i < cars; i++) {
+            decoded &= encodedCars[i].getBrand().equals(brand(i, brands))
+                    && encodedCars[i].getModel().equals(model(i, brands));
+        }
+        encodedCars = null;
+
+        before = usedHeap();
+        CarRepository repository = new CarRepository(new WriteAheadLog("", 0), new ChangeFeed(0),
+                new StorageShards(0));
+        for (int i = 0; i < cars; i++) {
+            repository.save(copy(brand(i, brands)), copy(model(i, brands)), 2000 + i % 25);
+        }
+        double repositoryBytes = (double) (usedHeap() - before) / cars;
+        Reference.reachabilityFence(repository);
+
+        System.out.printf("%d cars, %d brands, %d models%n", repository.count(), brands, brands * MODELS_PER_BRAND);
+        System.out.printf("cars holding their strings: %.1f bytes per car%n", stringBytes);
+        System.out.printf("cars holding dictionary codes: %.1f bytes per car (%.0f%% less)%n",
+                encodedBytes, 100 * (1 - encodedBytes / stringBytes));
+        System.out.printf("car repository with indexes: %.1f bytes per car%n", repositoryBytes);
+
+        boolean ok = decoded && encodedBytes < stringBytes;
+        if (!decoded) {
+            System.out.println("FAILED: a car did not decode to its brand and model");
+        }
+        if (encodedBytes >= stringBytes) {
+            System.out.println("FAILED: encoded cars are not smaller");
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static String brand(int car, int brands) {
+        return "Brand " + (car % brands);
+    }
+
+    private static String model(int car, int brands) {
+        return "Model " + (car % (brands * MODELS_PER_BRAND));
+    }
+
+    /**
+     * Returns an equal string with its own characters, like a freshly parsed request field.
+     */
+    private static String copy(String value) {
+        return new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * The car as it was before names were dictionary-encoded.
+     */
+    private record StringCar(long id, String brand, String model, int year) {
+    }
+}
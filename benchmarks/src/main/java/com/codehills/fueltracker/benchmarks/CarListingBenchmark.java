@@ -0,0 +1,66 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.dto.CarPageResponse;
+import com.codehills.fueltracker.dto.CarResponse;
+import com.codehills.fueltracker.repository.CarFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@code CarService.getAllCars} for fleets of increasing size, compared with fetching one page of 100
+ * cars from the middle of the fleet, unfiltered and filtered through the brand index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CarListingBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int cars;
+
+    private Fixtures fixtures;
+    private long middleId;
+
+    @Setup
+    public void setUp() {
+        fixtures = Fixtures.inMemory();
+        long[] ids = new long[cars];
+        for (int i = 0; i < cars; i++) {
+            ids[i] = fixtures.createCar(i);
+        }
+        // Ids are spread over the shards' id sequences, so the middle of the fleet is found by id, not by count.
+        Arrays.sort(ids);
+        middleId = ids[cars / 2];
+    }
+
+    @Benchmark
+    public List<CarResponse> getAllCars() {
+        return fixtures.carService.getAllCars();
+    }
+
+    @Benchmark
+    public CarPageResponse page() {
+        return fixtures.carService.getCarPage(CarFilter.ANY, middleId, 100);
+    }
+
+    @Benchmark
+    public CarPageResponse pageByBrand() {
+        return fixtures.carService.getCarPage(new CarFilter(Fixtures.BRANDS[0], null, null, null), middleId, 100);
+    }
+}
@@ -0,0 +1,123 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.format.ExportFormat;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.service.FuelExportService;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that exporting fuel history takes the same memory whatever its size. It exports a small and a large
+ * history through {@link FuelExportService} into a stream that discards the bytes, as CSV and as gzip-compressed
+ * NDJSON. The stream collects garbage and samples the heap every {@value #SAMPLE_BYTES} bytes and when the export
+ * closes it, while the export's buffers are still in use; the largest sample minus the heap used by the stored
+ * history before the export is what the export retained. Exits with status 1 if the large export retains more
+ * than {@code max growth} bytes beyond the small one.
+ * <pre>
+ * java -Xmx2g -cp benchmarks/target/benchmarks.jar com.codehills.fueltracker.benchmarks.ExportMemory \
+ *     [small rows] [large rows] [max growth bytes]
+ * </pre>
+ */
+public final class ExportMemory {
+    private static final int ENTRIES_PER_CAR = 100;
+    private static final long SAMPLE_BYTES = 16L * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        long smallRows = args.length > 0 ? Long.parseLong(args[0]) : 1_000;
+        long largeRows = args.length > 1 ? Long.parseLong(args[1]) : 10_000_000;
+        long maxGrowth = args.length > 2 ? Long.parseLong(args[2]) : 1024 * 1024;
+
+        long[] small = run(smallRows);
+        long[] large = run(largeRows);
+        boolean ok = true;
+        for (int i = 0; i < small.length; i++) {
+            long growth = large[i] - small[i];
+            if (growth > maxGrowth) {
+                System.out.printf("FAILED: the large %s export retained %d bytes more than the small one%n",
+                        i == 0 ? "CSV" : "NDJSON", growth);
+                ok = false;
+            }
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Exports a history of about {@code rows} fill-ups in both formats and returns the heap each export retained.
+     */
+    private static long[] run(long rows) throws Exception {
+        Fixtures fixtures = Fixtures.inMemory();
+        int cars = (int) Math.max(1, rows / ENTRIES_PER_CAR);
+        List<FuelEntry> entries = new ArrayList<>(ENTRIES_PER_CAR);
+        for (int j = 0; j < Math.min(rows, ENTRIES_PER_CAR); j++) {
+            entries.add(Fixtures.entry(j));
+        }
+        for (int i = 0; i < cars; i++) {
+            fixtures.fuelEntryRepository.addEntries(fixtures.createCar(i), entries);
+        }
+        FuelExportService exportService = new FuelExportService(fixtures.carRepository,
+                fixtures.fuelEntryRepository, PayloadFormatBenchmark.mappers(), 65_536);
+
+        long[] retained = new long[2];
+        retained[0] = export(exportService, ExportFormat.CSV, false, cars, entries.size());
+        retained[1] = export(exportService, ExportFormat.NDJSON, true, cars, entries.size());
+        return retained;
+    }
+
+    private static long export(FuelExportService exportService, ExportFormat format, boolean gzip, int cars,
+                               int entriesPerCar) throws Exception {
+        long baseline = usedHeapAfterGc();
+        SamplingSink sink = new SamplingSink();
+        long start = System.nanoTime();
+        exportService.export(sink, format, gzip, 0, null, null);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long rows = (long) cars * (entriesPerCar + 1);
+        long retained = Math.max(0, sink.maxUsed - baseline);
+        System.out.printf("%s%s, %d rows: %d bytes in %.2f s (%.0f rows/s, sampling included), "
+                        + "%d bytes retained at most over %d samples%n",
+                format, gzip ? " gzip" : "", rows, sink.bytes, seconds, rows / seconds, retained, sink.samples);
+        return retained;
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Discards what is written, sampling the heap periodically and once more when closed.
+     */
+    private static final class SamplingSink extends OutputStream {
+        private long bytes;
+        private long nextSample = SAMPLE_BYTES;
+        private long maxUsed;
+        private int samples;
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            bytes += length;
+            if (bytes >= nextSample) {
+                nextSample += SAMPLE_BYTES;
+                sample();
+            }
+        }
+
+        @Override
+        public void close() {
+            sample();
+        }
+
+        private void sample() {
+            maxUsed = Math.max(maxUsed, usedHeapAfterGc());
+            samples++;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import com.codehills.fueltracker.replication.ChangeFeed;
+import com.codehills.fueltracker.repository.CarRepository;
+import com.codehills.fueltracker.repository.FuelEntryRepository;
+import com.codehills.fueltracker.repository.StorageShards;
+import com.codehills.fueltracker.service.CarService;
+import com.codehills.fueltracker.service.FleetRollup;
+import com.codehills.fueltracker.service.FleetStatsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.time.Instant;
+
+/**
+ * Wires the backend's storage and service classes without Spring, the same way the application context does.
+ * Meters are no-ops unless a registry is given, storage has one shard per available processor unless a shard
+ * count is given, and the change feed is disabled as it is by default.
+ */
+final class Fixtures {
+    static final String[] BRANDS = {"Toyota", "Volkswagen", "Ford", "Renault", "Hyundai", "Kia", "Peugeot", "Skoda"};
+    static final String[] MODELS = {"Corolla", "Golf", "Focus", "Clio", "i30", "Ceed", "208", "Octavia"};
+
+    final WriteAheadLog writeAheadLog;
+    final CarRepository carRepository;
+    final FuelEntryRepository fuelEntryRepository;
+    final CarService carService;
+    final FleetStatsService fleetStatsService;
+
+    private Fixtures(WriteAheadLog writeAheadLog, MeterRegistry meterRegistry, StorageShards storageShards) {
+        this.writeAheadLog = writeAheadLog;
+        ChangeFeed changeFeed = new ChangeFeed(0);
+        this.carRepository = new CarRepository(writeAheadLog, changeFeed, storageShards);
+        this.fuelEntryRepository = new FuelEntryRepository(writeAheadLog, changeFeed, storageShards);
+        this.carService = new CarService(carRepository, fuelEntryRepository, meterRegistry);
+        this.fleetStatsService = new FleetStatsService(carRepository, fuelEntryRepository,
+                new FleetRollup(carRepository, fuelEntryRepository));
+    }
+
+    static Fixtures inMemory() {
+        return new Fixtures(new WriteAheadLog("", 0), new CompositeMeterRegistry(), new StorageShards(0));
+    }
+
+    static Fixtures inMemory(MeterRegistry meterRegistry) {
+        return new Fixtures(new WriteAheadLog("", 0), meterRegistry, new StorageShards(0));
+    }
+
+    static Fixtures inMemory(int shards) {
+        return new Fixtures(new WriteAheadLog("", 0), new CompositeMeterRegistry(), new StorageShards(shards));
+    }
+
+    static Fixtures withLog(WriteAheadLog writeAheadLog) {
+        return new Fixtures(writeAheadLog, new CompositeMeterRegistry(), new StorageShards(0));
+    }
+
+    long createCar(int index) {
+        return carRepository.save(BRANDS[index % BRANDS.length], MODELS[index % MODELS.length],
+                2000 + index % 25).getId();
+    }
+
+    static FuelEntry entry(long index) {
+        return new FuelEntry(30 + index % 20, 45 + index % 30, 1_000 + index * 550.0,
+                Instant.ofEpochMilli(1_600_000_000_000L + index * 86_400_000L));
+    }
+}
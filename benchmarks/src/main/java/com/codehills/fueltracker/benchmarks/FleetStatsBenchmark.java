@@ -0,0 +1,58 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.dto.FleetStatsResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fleet-wide stats computed by summing every car's aggregate in parallel, compared with reading the
+ * incrementally maintained rollup. Every car has {@code entriesPerCar} fill-ups.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class FleetStatsBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int cars;
+
+    @Param({"2"})
+    public int entriesPerCar;
+
+    private Fixtures fixtures;
+
+    @Setup
+    public void setUp() {
+        fixtures = Fixtures.inMemory();
+        for (int i = 0; i < cars; i++) {
+            long carId = fixtures.createCar(i);
+            for (int j = 0; j < entriesPerCar; j++) {
+                fixtures.fuelEntryRepository.addEntry(carId, Fixtures.entry(j));
+            }
+        }
+    }
+
+    @Benchmark
+    public FleetStatsResponse computed() {
+        return fixtures.fleetStatsService.getFleetStats(false);
+    }
+
+    @Benchmark
+    public FleetStatsResponse rollup() {
+        return fixtures.fleetStatsService.getFleetStats(true);
+    }
+}
@@ -0,0 +1,83 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.dto.FuelEntryRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Append throughput through {@code CarService.addFuelEntry}, from one thread and from several threads that either
+ * share one car or each write to their own car.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FuelEntryAppendBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Fleet {
+        @Param({"shared", "per-thread"})
+        public String carAssignment;
+
+        Fixtures fixtures;
+        long sharedCarId;
+        final AtomicInteger nextCar = new AtomicInteger();
+
+        // A fresh store per iteration keeps histories from growing without bound across iterations.
+        @Setup(Level.Iteration)
+        public void setUp() {
+            fixtures = Fixtures.inMemory();
+            sharedCarId = fixtures.createCar(0);
+            nextCar.set(0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        long carId;
+        final FuelEntryRequest request = new FuelEntryRequest();
+        double odometer = 1_000;
+
+        @Setup(Level.Iteration)
+        public void setUp(Fleet fleet) {
+            carId = "shared".equals(fleet.carAssignment)
+                    ? fleet.sharedCarId
+                    : fleet.fixtures.createCar(fleet.nextCar.incrementAndGet());
+            request.setLiters(42.5);
+            request.setPrice(61.0);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object appendSingleThread(Fleet fleet, Writer writer) {
+        return append(fleet, writer);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object appendContended(Fleet fleet, Writer writer) {
+        return append(fleet, writer);
+    }
+
+    private static Object append(Fleet fleet, Writer writer) {
+        writer.odometer += 550;
+        writer.request.setOdometer(writer.odometer);
+        return fleet.fixtures.carService.addFuelEntry(writer.carId, writer.request);
+    }
+}
@@ -0,0 +1,64 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.dto.FuelStatsResponse;
+import com.codehills.fueltracker.dto.FuelWindowStatsResponse;
+import com.codehills.fueltracker.model.ConsumptionSketch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@code CarService.getFuelStats}, of a 30-day window in the middle of the history and of the interval
+ * consumption summary (count, min, max, median) as a car's history grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FuelStatsBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int historySize;
+
+    private Fixtures fixtures;
+    private long carId;
+    private Instant windowEnd;
+
+    @Setup
+    public void setUp() {
+        fixtures = Fixtures.inMemory();
+        carId = fixtures.createCar(0);
+        for (int i = 0; i < historySize; i++) {
+            fixtures.fuelEntryRepository.addEntry(carId, Fixtures.entry(i));
+        }
+        windowEnd = Fixtures.entry(historySize / 2).getTimestamp();
+    }
+
+    @Benchmark
+    public FuelStatsResponse fuelStats() {
+        return fixtures.carService.getFuelStats(carId);
+    }
+
+    @Benchmark
+    public FuelWindowStatsResponse windowStats() {
+        return fixtures.carService.getWindowStats(carId, 30, null, windowEnd);
+    }
+
+    @Benchmark
+    public ConsumptionSketch consumptionSummary() {
+        return fixtures.fuelEntryRepository.getConsumptionSketch(carId);
+    }
+}
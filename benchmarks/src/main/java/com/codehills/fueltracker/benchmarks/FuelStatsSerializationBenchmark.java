@@ -0,0 +1,73 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.dto.FuelStatsResponse;
+import com.codehills.fueltracker.servlet.FuelStatsJsonWriter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of {@link FuelStatsResponse}, the payload of both stats endpoints. Run with
+ * {@code -prof gc} to see the bytes allocated per response: {@code servletBefore} is what the servlet used to do
+ * (Jackson to a {@code String}, then encoded onto the response), {@code servletJsonWriter} is the hand-written
+ * writer it uses now.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FuelStatsSerializationBenchmark {
+
+    @Param({"round", "fractional"})
+    public String values;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OutputStream responseBody = OutputStream.nullOutputStream();
+    private FuelStatsResponse stats;
+
+    @Setup
+    public void setUp() {
+        stats = "round".equals(values)
+                ? new FuelStatsResponse(120.0, 157.5, 9.0)
+                : new FuelStatsResponse(1234.567, 1789.0299999999997, 10.909090909090908);
+    }
+
+    @Benchmark
+    public String writeValueAsString() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(stats);
+    }
+
+    @Benchmark
+    public byte[] writeValueAsBytes() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(stats);
+    }
+
+    @Benchmark
+    public void servletBefore() throws IOException {
+        responseBody.write(objectMapper.writeValueAsString(stats).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void servletJsonWriter() throws IOException {
+        FuelStatsJsonWriter json = FuelStatsJsonWriter.acquire();
+        json.stats(stats).writeTo(responseBody);
+        json.release();
+    }
+}
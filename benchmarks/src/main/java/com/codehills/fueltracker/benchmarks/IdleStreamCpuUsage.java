@@ -0,0 +1,66 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.stream.FuelStatsStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opens live stats subscriptions on {@link FuelStatsStream}, one car each, and reports the process CPU time spent
+ * while they sit idle, as a share of one core. Emitters are not attached to HTTP responses, so this measures the
+ * stream itself rather than the container's idle connections.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.codehills.fueltracker.benchmarks.IdleStreamCpuUsage \
+ *     [subscribers] [idle seconds]
+ * </pre>
+ */
+public final class IdleStreamCpuUsage {
+
+    public static void main(String[] args) throws Exception {
+        int subscribers = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Fixtures fixtures = Fixtures.inMemory();
+        FuelStatsStream stream = new FuelStatsStream(fixtures.carService, fixtures.fuelEntryRepository,
+                new ObjectMapper(), Duration.ofMillis(100), Duration.ofHours(1), 100);
+        CountingEmitter[] emitters = new CountingEmitter[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            emitters[i] = new CountingEmitter();
+            stream.subscribe(List.of(fixtures.createCar(i)), emitters[i]);
+        }
+        for (CountingEmitter emitter : emitters) {
+            while (emitter.sent.get() < 1) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        }
+        System.gc();
+        TimeUnit.SECONDS.sleep(1);
+
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long cpuStart = os.getProcessCpuTime();
+        long wallStart = System.nanoTime();
+        TimeUnit.SECONDS.sleep(seconds);
+        double cpuPercent = 100.0 * (os.getProcessCpuTime() - cpuStart) / (System.nanoTime() - wallStart);
+        System.out.printf("%d idle subscribers: %.3f%% of one core over %d s%n",
+                stream.getSubscriptionCount(), cpuPercent, seconds);
+        stream.stop();
+    }
+
+    /**
+     * Counts events instead of writing them; an emitter without a response would otherwise buffer them.
+     */
+    private static final class CountingEmitter extends SseEmitter {
+        private final AtomicLong sent = new AtomicLong();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sent.incrementAndGet();
+        }
+    }
+}
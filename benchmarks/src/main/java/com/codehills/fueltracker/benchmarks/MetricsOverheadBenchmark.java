@@ -0,0 +1,88 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.dto.FuelEntryRequest;
+import com.codehills.fueltracker.metrics.StorageMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cost of the instrumentation on {@code CarService.addFuelEntry}: {@code metrics=none} runs against a registry
+ * without backends, whose timers run the timed code without reading the clock, {@code metrics=prometheus}
+ * against the registry the application exposes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MetricsOverheadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Fleet {
+        @Param({"none", "prometheus"})
+        public String metrics;
+
+        Fixtures fixtures;
+        final AtomicInteger nextCar = new AtomicInteger();
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            MeterRegistry registry = "prometheus".equals(metrics)
+                    ? new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)
+                    : new CompositeMeterRegistry();
+            fixtures = Fixtures.inMemory(registry);
+            new StorageMetrics(fixtures.carRepository, fixtures.fuelEntryRepository).bindTo(registry);
+            nextCar.set(0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        long carId;
+        final FuelEntryRequest request = new FuelEntryRequest();
+        double odometer = 1_000;
+
+        @Setup(Level.Iteration)
+        public void setUp(Fleet fleet) {
+            carId = fleet.fixtures.createCar(fleet.nextCar.incrementAndGet());
+            request.setLiters(42.5);
+            request.setPrice(61.0);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object addFuelEntry(Fleet fleet, Writer writer) {
+        return append(fleet, writer);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object addFuelEntryFourThreads(Fleet fleet, Writer writer) {
+        return append(fleet, writer);
+    }
+
+    private static Object append(Fleet fleet, Writer writer) {
+        writer.odometer += 550;
+        writer.request.setOdometer(writer.odometer);
+        return fleet.fixtures.carService.addFuelEntry(writer.carId, writer.request);
+    }
+}
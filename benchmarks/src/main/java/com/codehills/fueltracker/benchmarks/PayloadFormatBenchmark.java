@@ -0,0 +1,135 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.dto.CarResponse;
+import com.codehills.fueltracker.dto.FuelEntryRequest;
+import com.codehills.fueltracker.dto.FuelEntryResponse;
+import com.codehills.fueltracker.dto.FuelStatsResponse;
+import com.codehills.fueltracker.format.PayloadFormat;
+import com.codehills.fueltracker.format.PayloadMappers;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of the API payloads in JSON, Smile and CBOR, through the same {@link PayloadMappers} the
+ * backend uses. Run {@link #main} to print the encoded size of each payload per format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadFormatBenchmark {
+
+    private static final String[] PAYLOADS = {"fuelEntryRequest", "fuelStats", "fuelHistory", "cars"};
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    public PayloadFormat format;
+
+    @Param({"fuelEntryRequest", "fuelStats", "fuelHistory", "cars"})
+    public String payload;
+
+    private ObjectMapper mapper;
+    private Object value;
+    private JavaType type;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = mappers().forFormat(format);
+        value = payload(payload);
+        type = type(mapper, payload);
+        encoded = mapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return mapper.readValue(encoded, type);
+    }
+
+    /** Mirrors the Jackson settings Spring Boot applies to the application's mapper. */
+    static PayloadMappers mappers() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return new PayloadMappers(objectMapper);
+    }
+
+    static Object payload(String name) {
+        return switch (name) {
+            case "fuelEntryRequest" -> {
+                FuelEntryRequest request = new FuelEntryRequest();
+                request.setLiters(42.5);
+                request.setPrice(63.75);
+                request.setOdometer(15230.0);
+                yield request;
+            }
+            case "fuelStats" -> new FuelStatsResponse(1234.567, 1789.0299999999997, 10.909090909090908);
+            case "fuelHistory" -> {
+                List<FuelEntryResponse> history = new ArrayList<>();
+                Instant start = Instant.parse("2024-01-01T08:00:00Z");
+                for (int i = 0; i < 100; i++) {
+                    history.add(new FuelEntryResponse(35 + i % 15, 52.5 + i % 7 * 1.25, 10_000 + i * 480,
+                            start.plusSeconds(i * 86_400L)));
+                }
+                yield history;
+            }
+            case "cars" -> {
+                List<CarResponse> cars = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    cars.add(new CarResponse(i + 1, Fixtures.BRANDS[i % Fixtures.BRANDS.length],
+                            "Model " + (i % 10), 2010 + i % 15));
+                }
+                yield cars;
+            }
+            default -> throw new IllegalArgumentException("Unknown payload: " + name);
+        };
+    }
+
+    private static JavaType type(ObjectMapper mapper, String name) {
+        return switch (name) {
+            case "fuelEntryRequest" -> mapper.constructType(FuelEntryRequest.class);
+            case "fuelStats" -> mapper.constructType(FuelStatsResponse.class);
+            case "fuelHistory" -> mapper.getTypeFactory().constructCollectionType(List.class, FuelEntryResponse.class);
+            case "cars" -> mapper.getTypeFactory().constructCollectionType(List.class, CarResponse.class);
+            default -> throw new IllegalArgumentException("Unknown payload: " + name);
+        };
+    }
+
+    /** Prints the encoded size of every payload in every format. */
+    public static void main(String[] args) throws IOException {
+        PayloadMappers mappers = mappers();
+        System.out.printf("%-18s %10s %10s %10s%n", "payload", "JSON", "Smile", "CBOR");
+        for (String name : PAYLOADS) {
+            Object value = payload(name);
+            System.out.printf("%-18s %10d %10d %10d%n", name,
+                    mappers.write(PayloadFormat.JSON, value).length,
+                    mappers.write(PayloadFormat.SMILE, value).length,
+                    mappers.write(PayloadFormat.CBOR, value).length);
+        }
+    }
+}
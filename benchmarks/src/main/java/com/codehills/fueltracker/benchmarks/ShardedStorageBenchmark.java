@@ -0,0 +1,56 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.model.Car;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of registering cars from 8 threads with one storage shard, the layout before sharding with a single
+ * id counter and map, and with 8. {@code registerCar} only saves the car; {@code registerCarWithEntry} also
+ * records its first fill-up, which grows the fuel history maps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(8)
+public class ShardedStorageBenchmark {
+
+    @Param({"1", "8"})
+    public int shards;
+
+    private Fixtures fixtures;
+
+    // Fresh stores per iteration keep the maps from growing without bound.
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fixtures = Fixtures.inMemory(shards);
+    }
+
+    @Benchmark
+    public Car registerCar() {
+        return fixtures.carRepository.save(Fixtures.BRANDS[0], Fixtures.MODELS[0], 2020);
+    }
+
+    @Benchmark
+    public Car registerCarWithEntry() {
+        Car car = fixtures.carRepository.save(Fixtures.BRANDS[0], Fixtures.MODELS[0], 2020);
+        fixtures.fuelEntryRepository.addEntry(car.getId(), Fixtures.entry(0));
+        return car;
+    }
+}
@@ -0,0 +1,40 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.model.FuelEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The original fuel-entry storage, kept as a baseline: one {@code Collections.synchronizedList} per car and stats
+ * recomputed with streams on every read. The original streamed over the list without holding its monitor, which
+ * can throw {@code ConcurrentModificationException} under concurrent appends; this copy reads under the monitor,
+ * as the list's contract requires.
+ */
+final class SynchronizedListFuelStore {
+    private final Map<Long, List<FuelEntry>> fuelEntriesByCar = new ConcurrentHashMap<>();
+
+    void addEntry(long carId, FuelEntry fuelEntry) {
+        fuelEntriesByCar.computeIfAbsent(carId, id -> Collections.synchronizedList(new ArrayList<>())).add(fuelEntry);
+    }
+
+    double averageConsumption(long carId) {
+        List<FuelEntry> entries = fuelEntriesByCar.getOrDefault(carId, Collections.emptyList());
+        synchronized (entries) {
+            double totalFuel = entries.stream().mapToDouble(FuelEntry::getLiters).sum();
+            if (entries.size() < 2) {
+                return 0.0;
+            }
+            double minOdometer = entries.stream().min(Comparator.comparingDouble(FuelEntry::getOdometer))
+                    .map(FuelEntry::getOdometer).orElse(0.0);
+            double maxOdometer = entries.stream().max(Comparator.comparingDouble(FuelEntry::getOdometer))
+                    .map(FuelEntry::getOdometer).orElse(0.0);
+            double distance = maxOdometer - minOdometer;
+            return distance > 0 ? (totalFuel / distance) * 100.0 : 0.0;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.codehills.fueltracker.benchmarks;
+
+import com.codehills.fueltracker.model.Car;
+import com.codehills.fueltracker.model.FuelEntry;
+import com.codehills.fueltracker.persistence.WriteAheadLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup cost of replaying a write-ahead log into empty repositories, i.e. the time {@code StorageRecovery}
+ * needs before the backend can serve requests when no snapshot is available.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class WalReplayBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int entries;
+
+    @Param({"1000"})
+    public int cars;
+
+    private Path directory;
+
+    @Setup
+    public void writeLog() throws IOException, InterruptedException {
+        directory = Files.createTempDirectory("wal-replay-benchmark");
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory.toString(), 64L << 20);
+        writeAheadLog.replay(0, replayInto(Fixtures.inMemory()));
+        writeAheadLog.start();
+        Fixtures fixtures = Fixtures.withLog(writeAheadLog);
+        long[] carIds = new long[cars];
+        for (int i = 0; i < cars; i++) {
+            carIds[i] = fixtures.createCar(i);
+        }
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < entries; i++) {
+            long carId = carIds[i % cars];
+            last = writeAheadLog.appendFuelEntry(carId, i / cars, Fixtures.entry(i / cars));
+            if (i % 4096 == 4095) {
+                last.join();
+            }
+        }
+        if (last != null) {
+            last.join();
+        }
+        writeAheadLog.stop();
+    }
+
+    @TearDown
+    public void deleteLog() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public Fixtures replay() {
+        Fixtures fixtures = Fixtures.inMemory();
+        new WriteAheadLog(directory.toString(), 64L << 20).replay(0, replayInto(fixtures));
+        return fixtures;
+    }
+
+    private static WriteAheadLog.RecordHandler replayInto(Fixtures fixtures) {
+        return new WriteAheadLog.RecordHandler() {
+            @Override
+            public void onCar(Car car) {
+                fixtures.carRepository.restore(car);
+            }
+
+            @Override
+            public void onFuelEntry(long carId, long sequence, FuelEntry entry) {
+                fixtures.fuelEntryRepository.restoreEntry(carId, sequence, entry);
+            }
+        };
+    }
+}
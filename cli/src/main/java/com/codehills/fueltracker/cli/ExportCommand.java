@@ -0,0 +1,104 @@
+package com.codehills.fueltracker.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The {@code export} command: downloads all cars and fill-ups from the export endpoint into a file, streaming
+ * the response to disk. The file name picks the format, {@code .csv} or {@code .ndjson}; with a further
+ * {@code .gz} the backend compresses the export and the compressed bytes are saved as they arrive. The file is
+ * in the import format, so it can be loaded into another backend with {@code import}.
+ */
+final class ExportCommand {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+
+    ExportCommand(HttpClient client, ObjectMapper objectMapper, String baseUrl) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+    }
+
+    void run(Map<String, String> options) throws IOException, InterruptedException {
+        String file = options.get("file");
+        if (file == null) {
+            throw new IllegalArgumentException("export requires --file");
+        }
+        String name = file.toLowerCase(Locale.ROOT);
+        boolean gzip = name.endsWith(".gz");
+        if (gzip) {
+            name = name.substring(0, name.length() - ".gz".length());
+        }
+        String format;
+        if (name.endsWith(".csv")) {
+            format = "csv";
+        } else if (name.endsWith(".ndjson")) {
+            format = "ndjson";
+        } else {
+            throw new IllegalArgumentException("file must end in .csv or .ndjson, optionally followed by .gz");
+        }
+
+        StringBuilder uri = new StringBuilder(baseUrl).append("/api/export/fuel?format=").append(format);
+        appendParameter(uri, "after", options.get("after"));
+        appendParameter(uri, "from", options.get("from"));
+        appendParameter(uri, "to", options.get("to"));
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri.toString())).GET();
+        if (gzip) {
+            request.header("Accept-Encoding", "gzip");
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        long bytes;
+        try (InputStream body = response.body()) {
+            if (response.statusCode() / 100 != 2) {
+                System.err.printf("Request failed (%d): %s%n", response.statusCode(),
+                        FuelTrackerCli.extractMessage(objectMapper, body.readAllBytes()));
+                return;
+            }
+            if (gzip && !response.headers().firstValue("Content-Encoding").orElse("").equalsIgnoreCase("gzip")) {
+                throw new IOException("the backend did not compress the export");
+            }
+            bytes = copy(body, Path.of(file));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Exported %d bytes to %s in %.2f s (%.1f MB/s)%n", bytes, file, seconds,
+                bytes / 1e6 / seconds);
+    }
+
+    private static void appendParameter(StringBuilder uri, String name, String value) {
+        if (value != null) {
+            uri.append('&').append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static long copy(InputStream in, Path file) throws IOException {
+        long bytes = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+                bytes += read;
+            }
+        }
+        return bytes;
+    }
+}
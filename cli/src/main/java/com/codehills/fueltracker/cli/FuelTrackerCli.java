@@ -1,6 +1,5 @@
 package com.codehills.fueltracker.cli;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -12,6 +11,7 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 public class FuelTrackerCli {
@@ -19,12 +19,12 @@ public class FuelTrackerCli {
     private static final String DEFAULT_BASE_URL = "http://localhost:8080";
 
     private final HttpClient client;
-    private final ObjectMapper objectMapper;
+    private WireFormat format;
+    private ObjectMapper objectMapper;
 
     public FuelTrackerCli() {
         this.client = HttpClient.newHttpClient();
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
+        useFormat(WireFormat.JSON);
     }
 
     public static void main(String[] args) {
@@ -43,11 +43,15 @@ public class FuelTrackerCli {
         String baseUrl = resolveBaseUrl(options);
 
         try {
+            useFormat(resolveFormat(options));
             switch (command) {
                 case "create-car" -> handleCreateCar(baseUrl, options);
                 case "add-fuel" -> handleAddFuel(baseUrl, options);
                 case "fuel-stats" -> handleFuelStats(baseUrl, options);
                 case "list-cars" -> handleListCars(baseUrl);
+                case "import" -> new ImportCommand(client, objectMapper, format, baseUrl).run(options);
+                case "export" -> new ExportCommand(client, objectMapper, baseUrl).run(options);
+                case "loadtest" -> new LoadTestCommand(objectMapper, format, baseUrl).run(options);
                 default -> {
                     System.err.println("Unknown command: " + command);
                     printUsage();
@@ -56,6 +60,11 @@ public class FuelTrackerCli {
         } catch (IllegalArgumentException ex) {
             System.err.println("Error: " + ex.getMessage());
             printUsage();
+        } catch (IOException ex) {
+            System.err.println("Error: " + ex.getMessage());
+        } catch (InterruptedException ex) {
+            System.err.println("Interrupted");
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -82,12 +91,13 @@ public class FuelTrackerCli {
 
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(baseUrl + "/api/cars"))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(writeJson(payload)))
+                .header("Content-Type", format.mediaType)
+                .header("Accept", format.mediaType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(writeBody(payload)))
                 .build();
 
         sendAndPrint(request, response -> {
-            CarResponse car = readJson(response.body(), CarResponse.class);
+            CarResponse car = readBody(response.body(), CarResponse.class);
             System.out.printf("Created car #%d: %s %s (%d)%n", car.id(), car.brand(), car.model(), car.year());
         });
     }
@@ -111,15 +121,19 @@ public class FuelTrackerCli {
         payload.put("liters", liters);
         payload.put("price", price);
         payload.put("odometer", odometer);
+        if (options.containsKey("timestamp")) {
+            payload.put("timestamp", options.get("timestamp"));
+        }
 
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(baseUrl + "/api/cars/" + carId + "/fuel"))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(writeJson(payload)))
+                .header("Content-Type", format.mediaType)
+                .header("Accept", format.mediaType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(writeBody(payload)))
                 .build();
 
         sendAndPrint(request, response -> {
-            FuelEntryResponse entry = readJson(response.body(), FuelEntryResponse.class);
+            FuelEntryResponse entry = readBody(response.body(), FuelEntryResponse.class);
             System.out.printf("Added fuel: %.2f L, cost %.2f at odometer %.1f%n",
                     entry.liters(), entry.price(), entry.odometer());
         });
@@ -135,11 +149,12 @@ public class FuelTrackerCli {
 
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(baseUrl + "/api/cars/" + carId + "/fuel/stats"))
+                .header("Accept", format.mediaType)
                 .GET()
                 .build();
 
         sendAndPrint(request, response -> {
-            FuelStatsResponse stats = readJson(response.body(), FuelStatsResponse.class);
+            FuelStatsResponse stats = readBody(response.body(), FuelStatsResponse.class);
             System.out.printf("Total fuel: %.1f L%n", stats.totalFuelLiters());
             System.out.printf("Total cost: %.2f%n", stats.totalCost());
             System.out.printf("Average consumption: %.1f L/100km%n", stats.averageConsumptionPer100Km());
@@ -149,11 +164,12 @@ public class FuelTrackerCli {
     private void handleListCars(String baseUrl) {
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(baseUrl + "/api/cars"))
+                .header("Accept", format.mediaType)
                 .GET()
                 .build();
 
         sendAndPrint(request, response -> {
-            CarResponse[] cars = readJson(response.body(), CarResponse[].class);
+            CarResponse[] cars = readBody(response.body(), CarResponse[].class);
             if (cars.length == 0) {
                 System.out.println("No cars found.");
                 return;
@@ -167,7 +183,7 @@ public class FuelTrackerCli {
 
     private void sendAndPrint(HttpRequest request, ResponseHandler handler) {
         try {
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
             if (isSuccess(response)) {
                 handler.handle(response);
             }
@@ -177,28 +193,29 @@ public class FuelTrackerCli {
         }
     }
 
-    private boolean isSuccess(HttpResponse<String> response) {
+    private boolean isSuccess(HttpResponse<byte[]> response) {
         int status = response.statusCode();
         if (status >= 200 && status < 300) {
             return true;
         }
-        String body = response.body();
-        System.err.printf("Request failed (%d): %s%n", status, extractMessage(body));
+        byte[] body = response.body();
+        System.err.printf("Request failed (%d): %s%n", status, extractMessage(objectMapper, body));
         return false;
     }
 
-    private String extractMessage(String body) {
-        if (body == null || body.isBlank()) {
+    static String extractMessage(ObjectMapper objectMapper, byte[] body) {
+        if (body == null || body.length == 0) {
             return "no response body";
         }
+        String text = new String(body, StandardCharsets.UTF_8);
         try {
             JsonNode node = objectMapper.readTree(body);
-            if (node.has("message")) {
+            if (node != null && node.has("message")) {
                 return node.get("message").asText();
             }
-            return body;
-        } catch (JsonProcessingException e) {
-            return body;
+            return text;
+        } catch (IOException e) {
+            return text;
         }
     }
 
@@ -227,22 +244,52 @@ public class FuelTrackerCli {
         return envUrl != null && !envUrl.isBlank() ? envUrl : DEFAULT_BASE_URL;
     }
 
-    private String writeJson(Object value) {
+    private WireFormat resolveFormat(Map<String, String> options) {
+        String value = options.remove("format");
+        if (value == null) {
+            return WireFormat.JSON;
+        }
+        try {
+            return WireFormat.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("format must be one of json, smile, cbor");
+        }
+    }
+
+    private void useFormat(WireFormat format) {
+        this.format = format;
+        this.objectMapper = new ObjectMapper(format.newFactory());
+        this.objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    private byte[] writeBody(Object value) {
         try {
-            return objectMapper.writeValueAsString(value);
-        } catch (JsonProcessingException ex) {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException ex) {
             throw new IllegalArgumentException("Failed to serialize request body");
         }
     }
 
-    private <T> T readJson(String body, Class<T> type) {
+    private <T> T readBody(byte[] body, Class<T> type) {
         try {
             return objectMapper.readValue(body, type);
-        } catch (JsonProcessingException ex) {
+        } catch (IOException ex) {
             throw new IllegalArgumentException("Failed to parse response body: " + ex.getMessage());
         }
     }
 
+    static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+    }
+
     private long parseLong(String value, String name) {
         try {
             return Long.parseLong(value);
@@ -266,11 +313,20 @@ public class FuelTrackerCli {
                 Commands:
                   create-car --brand <brand> --model <model> --year <year> [--baseUrl <url>]
                   list-cars [--baseUrl <url>]
-                  add-fuel --carId <id> --liters <liters> --price <price> --odometer <odometer> [--baseUrl <url>]
+                  add-fuel --carId <id> --liters <liters> --price <price> --odometer <odometer> [--timestamp <iso>]
+                           [--baseUrl <url>]
                   fuel-stats --carId <id> [--baseUrl <url>]
+                  import --file <cars.csv|cars.ndjson> [--concurrency 16] [--batchSize 500] [--retries 3]
+                         [--backoffMs 200] [--baseUrl <url>]
+                  export --file <fleet.csv|fleet.ndjson>[.gz] [--after <carId>] [--from <iso>] [--to <iso>]
+                         [--baseUrl <url>]
+                  loadtest [--concurrency 64 | --rps <n>] [--duration 30] [--warmup 10] [--cars 100]
+                           [--mix create-car=5,add-fuel=30,fuel-stats=50,list-cars=15] [--maxInFlight 10000]
+                           [--baseUrl <url>]
 
                 Defaults:
                   Base URL: http://localhost:8080 (override with --baseUrl or env FUEL_API_BASE_URL)
+                  Format: json (override with --format json|smile|cbor on any command)
                 """);
     }
 
@@ -285,6 +341,6 @@ public class FuelTrackerCli {
 
     @FunctionalInterface
     private interface ResponseHandler {
-        void handle(HttpResponse<String> response);
+        void handle(HttpResponse<byte[]> response);
     }
 }
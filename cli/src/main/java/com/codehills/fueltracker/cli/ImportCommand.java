@@ -0,0 +1,464 @@
+package com.codehills.fueltracker.cli;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The {@code import} command: streams cars and fill-ups from a CSV or NDJSON file into the backend. Cars are
+ * created with one request each and fill-ups are sent in batches to the bulk endpoint, all through one
+ * {@link HttpClient} with at most {@code --concurrency} requests in flight. Neither endpoint is idempotent, so only
+ * failures that happen before the backend processes a request, connection errors and 503 responses, are retried
+ * with exponential backoff.
+ */
+final class ImportCommand {
+
+    private static final int MAX_PROBLEMS = 20;
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final WireFormat format;
+    private final String baseUrl;
+    private final ObjectMapper fileMapper = new ObjectMapper();
+
+    private final Map<String, CompletableFuture<Long>> cars = new HashMap<>();
+    private final Histogram carLatency = new ConcurrentHistogram(3);
+    private final Histogram bulkLatency = new ConcurrentHistogram(3);
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder skippedRows = new LongAdder();
+    private final LongAdder carsCreated = new LongAdder();
+    private final LongAdder carsFailed = new LongAdder();
+    private final LongAdder entriesAccepted = new LongAdder();
+    private final LongAdder entriesRejected = new LongAdder();
+    private final LongAdder entriesFailed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder problemCount = new LongAdder();
+    private final List<String> problems = new ArrayList<>();
+
+    private Semaphore inFlight;
+    private int concurrency;
+    private int batchSize;
+    private int maxRetries;
+    private long backoffMillis;
+    private List<PendingEntry> batch = new ArrayList<>();
+
+    ImportCommand(HttpClient client, ObjectMapper objectMapper, WireFormat format, String baseUrl) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.format = format;
+        this.baseUrl = baseUrl;
+    }
+
+    void run(Map<String, String> options) throws IOException, InterruptedException {
+        String file = options.get("file");
+        if (file == null) {
+            throw new IllegalArgumentException("import requires --file");
+        }
+        concurrency = FuelTrackerCli.intOption(options, "concurrency", 16);
+        batchSize = FuelTrackerCli.intOption(options, "batchSize", 500);
+        maxRetries = FuelTrackerCli.intOption(options, "retries", 3);
+        backoffMillis = FuelTrackerCli.intOption(options, "backoffMs", 200);
+        if (concurrency < 1 || batchSize < 1 || maxRetries < 0 || backoffMillis < 1) {
+            throw new IllegalArgumentException("concurrency, batchSize and backoffMs must be positive, retries >= 0");
+        }
+        inFlight = new Semaphore(concurrency);
+
+        long start = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+            if (file.toLowerCase(Locale.ROOT).endsWith(".csv")) {
+                readCsv(reader);
+            } else {
+                readNdjson(reader);
+            }
+        }
+        if (!batch.isEmpty()) {
+            submitBatch(batch);
+        }
+        inFlight.acquire(concurrency);
+        printSummary(file, System.nanoTime() - start);
+    }
+
+    private void readCsv(BufferedReader reader) throws IOException, InterruptedException {
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            return;
+        }
+        List<String> header = new ArrayList<>();
+        for (String name : splitCsv(headerLine)) {
+            header.add(name.trim().toLowerCase(Locale.ROOT));
+        }
+        long lineNumber = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> values = splitCsv(line);
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < header.size() && i < values.size(); i++) {
+                String value = values.get(i).trim();
+                if (!value.isEmpty()) {
+                    row.put(header.get(i), value);
+                }
+            }
+            process(lineNumber, row);
+        }
+    }
+
+    private void readNdjson(BufferedReader reader) throws IOException, InterruptedException {
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode node;
+            try {
+                node = fileMapper.readTree(line);
+            } catch (IOException ex) {
+                rows.increment();
+                skip(lineNumber, "not valid JSON");
+                continue;
+            }
+            if (!node.isObject()) {
+                rows.increment();
+                skip(lineNumber, "record must be a JSON object");
+                continue;
+            }
+            Map<String, String> row = new HashMap<>();
+            node.fields().forEachRemaining(field -> {
+                if (!field.getValue().isNull()) {
+                    row.put(field.getKey().toLowerCase(Locale.ROOT), field.getValue().asText());
+                }
+            });
+            process(lineNumber, row);
+        }
+    }
+
+    private void process(long line, Map<String, String> row) throws InterruptedException {
+        rows.increment();
+        String type = row.get("type");
+        if ("car".equalsIgnoreCase(type)) {
+            submitCar(line, row);
+        } else if ("fuel".equalsIgnoreCase(type)) {
+            addEntry(line, row);
+        } else {
+            skip(line, "type must be car or fuel");
+        }
+    }
+
+    private void submitCar(long line, Map<String, String> row) throws InterruptedException {
+        String ref = row.get("ref");
+        if (ref != null && cars.containsKey(ref)) {
+            skip(line, "duplicate car ref " + ref);
+            return;
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("brand", row.get("brand"));
+        payload.put("model", row.get("model"));
+        try {
+            payload.put("year", row.get("year") == null ? null : Integer.parseInt(row.get("year")));
+        } catch (NumberFormatException ex) {
+            skip(line, "year must be a number");
+            return;
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/api/cars"))
+                .header("Content-Type", format.mediaType)
+                .header("Accept", format.mediaType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(write(payload)))
+                .build();
+
+        inFlight.acquire();
+        CompletableFuture<Long> id = send(request, carLatency, 0).thenApply(response -> {
+            if (response.statusCode() / 100 != 2) {
+                throw new CompletionException(new IOException(
+                        "create car failed (" + response.statusCode() + "): " + message(response)));
+            }
+            return read(response.body()).path("id").asLong();
+        });
+        id.whenComplete((carId, error) -> {
+            inFlight.release();
+            if (error == null) {
+                carsCreated.increment();
+            } else {
+                carsFailed.increment();
+                problem(line, cause(error).getMessage());
+            }
+        });
+        if (ref != null) {
+            cars.put(ref, id);
+        }
+    }
+
+    private void addEntry(long line, Map<String, String> row) throws InterruptedException {
+        String car = row.get("car");
+        if (car == null) {
+            skip(line, "fuel row requires car");
+            return;
+        }
+        CompletableFuture<Long> carId = cars.get(car);
+        if (carId == null) {
+            try {
+                carId = CompletableFuture.completedFuture(Long.parseLong(car));
+            } catch (NumberFormatException ex) {
+                skip(line, "unknown car " + car + "; cars must come before their fill-ups");
+                return;
+            }
+        }
+        Map<String, Object> record = new LinkedHashMap<>();
+        try {
+            record.put("liters", number(row.get("liters")));
+            record.put("price", number(row.get("price")));
+            record.put("odometer", number(row.get("odometer")));
+        } catch (NumberFormatException ex) {
+            skip(line, "liters, price and odometer must be numbers");
+            return;
+        }
+        String timestamp = row.get("timestamp");
+        if (timestamp != null) {
+            record.put("timestamp", timestamp.chars().allMatch(Character::isDigit) ? Long.parseLong(timestamp) : timestamp);
+        }
+        batch.add(new PendingEntry(line, carId, record));
+        if (batch.size() == batchSize) {
+            submitBatch(batch);
+            batch = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Sends a batch once every car it refers to has been created. Fill-ups of cars that could not be created are
+     * reported and left out.
+     */
+    private void submitBatch(List<PendingEntry> entries) throws InterruptedException {
+        inFlight.acquire();
+        CompletableFuture<?>[] carIds = entries.stream().map(PendingEntry::carId).distinct()
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(carIds)
+                .handle((ignored, error) -> null)
+                .thenCompose(ignored -> sendBatch(entries))
+                .whenComplete((ignored, error) -> {
+                    inFlight.release();
+                    if (error != null) {
+                        entriesFailed.add(entries.size());
+                        problem(entries.get(0).line(), "bulk request failed: " + cause(error).getMessage());
+                    }
+                });
+    }
+
+    private CompletableFuture<Void> sendBatch(List<PendingEntry> entries) {
+        List<PendingEntry> sent = new ArrayList<>(entries.size());
+        List<Map<String, Object>> records = new ArrayList<>(entries.size());
+        for (PendingEntry entry : entries) {
+            if (entry.carId().isCompletedExceptionally()) {
+                entriesFailed.increment();
+                problem(entry.line(), "skipped, its car was not created");
+                continue;
+            }
+            entry.record().put("carId", entry.carId().join());
+            sent.add(entry);
+            records.add(entry.record());
+        }
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/api/cars/fuel/bulk"))
+                .header("Content-Type", format.mediaType)
+                .header("Accept", format.mediaType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(write(records)))
+                .build();
+
+        return send(request, bulkLatency, 0).thenAccept(response -> {
+            if (response.statusCode() / 100 != 2) {
+                entriesFailed.add(sent.size());
+                problem(sent.get(0).line(), "bulk request failed (" + response.statusCode() + "): "
+                        + message(response));
+                return;
+            }
+            JsonNode result = read(response.body());
+            entriesAccepted.add(result.path("accepted").asLong());
+            entriesRejected.add(result.path("rejected").asLong());
+            for (JsonNode rejection : result.path("rejections")) {
+                int index = rejection.path("index").asInt();
+                long line = index < sent.size() ? sent.get(index).line() : sent.get(0).line();
+                problem(line, rejection.path("message").asText());
+            }
+        });
+    }
+
+    /**
+     * Sends a request, retrying failed connections and 503 responses after {@code backoffMs * 2^attempt} plus
+     * jitter. Other errors may arrive after the backend applied the request, so retrying them could create a car
+     * or append a batch twice.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> send(HttpRequest request, Histogram latency, int attempt) {
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    if (error == null) {
+                        latency.recordValue((System.nanoTime() - start) / 1_000);
+                    }
+                    boolean retry = attempt < maxRetries
+                            && (error != null ? notSent(error) : response.statusCode() == 503);
+                    if (!retry) {
+                        return error == null
+                                ? CompletableFuture.completedFuture(response)
+                                : CompletableFuture.<HttpResponse<byte[]>>failedFuture(cause(error));
+                    }
+                    retries.increment();
+                    long delay = backoffMillis << attempt;
+                    delay += ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+                    return CompletableFuture.runAsync(() -> { },
+                                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                            .thenCompose(ignored -> send(request, latency, attempt + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private void printSummary(String file, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long responses = carLatency.getTotalCount() + bulkLatency.getTotalCount();
+        System.out.printf("Imported %s in %.2f s%n", file, seconds);
+        System.out.printf("  rows:      %d read, %d skipped%n", rows.sum(), skippedRows.sum());
+        System.out.printf("  cars:      %d created, %d failed%n", carsCreated.sum(), carsFailed.sum());
+        System.out.printf("  fill-ups:  %d accepted, %d rejected, %d failed (%.0f/s)%n",
+                entriesAccepted.sum(), entriesRejected.sum(), entriesFailed.sum(), entriesAccepted.sum() / seconds);
+        System.out.printf("  requests:  %d responses (%.0f/s), %d retries, %d in flight at most%n",
+                responses, responses / seconds, retries.sum(), concurrency);
+        System.out.printf("  %-12s %8s %9s %9s %9s %9s%n", "latency ms", "count", "p50", "p90", "p99", "max");
+        printLatency("create-car", carLatency);
+        printLatency("bulk", bulkLatency);
+        if (problemCount.sum() > 0) {
+            System.out.printf("Problems (first %d of %d):%n", problems.size(), problemCount.sum());
+            synchronized (problems) {
+                problems.forEach(problem -> System.out.println("  " + problem));
+            }
+        }
+    }
+
+    private static void printLatency(String name, Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        System.out.printf("  %-12s %8d %9.3f %9.3f %9.3f %9.3f%n", name, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(90) / 1e3,
+                histogram.getValueAtPercentile(99) / 1e3, histogram.getMaxValue() / 1e3);
+    }
+
+    private void skip(long line, String message) {
+        skippedRows.increment();
+        problem(line, message);
+    }
+
+    private void problem(long line, String message) {
+        problemCount.increment();
+        synchronized (problems) {
+            if (problems.size() < MAX_PROBLEMS) {
+                problems.add("line " + line + ": " + message);
+            }
+        }
+    }
+
+    private byte[] write(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Failed to serialize request body");
+        }
+    }
+
+    private JsonNode read(byte[] body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException ex) {
+            throw new CompletionException(ex);
+        }
+    }
+
+    private String message(HttpResponse<byte[]> response) {
+        return FuelTrackerCli.extractMessage(objectMapper, response.body());
+    }
+
+    private static Double number(String value) {
+        return value == null ? null : Double.parseDouble(value);
+    }
+
+    /**
+     * Whether the request failed before a connection was established, so the backend never saw it.
+     */
+    private static boolean notSent(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof ConnectException || current instanceof HttpConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /** Splits one CSV line; fields may be quoted, with {@code ""} for a literal quote. */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record PendingEntry(long line, CompletableFuture<Long> carId, Map<String, Object> record) {
+    }
+}
@@ -0,0 +1,343 @@
+package com.codehills.fueltracker.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code loadtest} command: drives a weighted mix of the CLI's operations against a running backend and
+ * reports latency percentiles and error rates per operation.
+ * <p>
+ * With {@code --concurrency} (the default) it runs a closed loop: every client is a virtual thread that sends the
+ * next request as soon as the previous one is answered. With {@code --rps} it runs an open loop: requests start on
+ * a fixed schedule, each on its own virtual thread, and latency is measured from the scheduled start so a slow
+ * server is not hidden by the load generator waiting for it.
+ */
+final class LoadTestCommand {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final String DEFAULT_MIX = "create-car=5,add-fuel=30,fuel-stats=50,list-cars=15";
+    private static final String[] BRANDS = {"Toyota", "Volkswagen", "Ford", "Renault", "Hyundai", "Kia"};
+    private static final String[] MODELS = {"Corolla", "Golf", "Focus", "Clio", "i30", "Ceed"};
+
+    private enum Operation {
+        CREATE_CAR("create-car"),
+        ADD_FUEL("add-fuel"),
+        FUEL_STATS("fuel-stats"),
+        LIST_CARS("list-cars");
+
+        final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        static Operation fromLabel(String label) {
+            for (Operation operation : values()) {
+                if (operation.label.equals(label)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation in mix: " + label);
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final WireFormat format;
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final CarIds carIds = new CarIds();
+    private final AtomicLong odometer = new AtomicLong(1_000);
+    private final Recorder[] recorders = new Recorder[Operation.values().length];
+    private final LongAdder[] errors = new LongAdder[Operation.values().length];
+    private final LongAdder[] dropped = new LongAdder[Operation.values().length];
+    private Operation[] mix;
+    private volatile boolean measuring;
+    private volatile boolean running = true;
+
+    LoadTestCommand(ObjectMapper objectMapper, WireFormat format, String baseUrl) {
+        this.objectMapper = objectMapper;
+        this.format = format;
+        this.baseUrl = baseUrl;
+        for (int i = 0; i < recorders.length; i++) {
+            recorders[i] = new Recorder(MAX_LATENCY_NANOS, 3);
+            errors[i] = new LongAdder();
+            dropped[i] = new LongAdder();
+        }
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    void run(Map<String, String> options) throws InterruptedException {
+        mix = parseMix(options.getOrDefault("mix", DEFAULT_MIX));
+        int cars = FuelTrackerCli.intOption(options, "cars", 100);
+        int warmupSeconds = FuelTrackerCli.intOption(options, "warmup", 10);
+        int durationSeconds = FuelTrackerCli.intOption(options, "duration", 30);
+        int rps = FuelTrackerCli.intOption(options, "rps", 0);
+        int concurrency = FuelTrackerCli.intOption(options, "concurrency", 64);
+        int maxInFlight = FuelTrackerCli.intOption(options, "maxInFlight", 10_000);
+        if (cars < 1 || warmupSeconds < 0 || durationSeconds < 1 || rps < 0 || concurrency < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("cars, duration, concurrency and maxInFlight must be positive");
+        }
+
+        seedCars(cars);
+        String mode = rps > 0 ? "open loop at " + rps + " req/s" : "closed loop with " + concurrency + " clients";
+        System.out.printf("Load test against %s: %s, %ds warm-up, %ds measurement, mix %s%n",
+                baseUrl, mode, warmupSeconds, durationSeconds, options.getOrDefault("mix", DEFAULT_MIX));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Thread driver;
+            if (rps > 0) {
+                driver = Thread.ofVirtual().start(() -> runOpenLoop(executor, rps, new Semaphore(maxInFlight)));
+            } else {
+                for (int i = 0; i < concurrency; i++) {
+                    executor.submit(this::runClient);
+                }
+                driver = null;
+            }
+            TimeUnit.SECONDS.sleep(warmupSeconds);
+
+            for (int i = 0; i < recorders.length; i++) {
+                recorders[i].reset();
+                errors[i].reset();
+                dropped[i].reset();
+            }
+            measuring = true;
+            long measureStart = System.nanoTime();
+            TimeUnit.SECONDS.sleep(durationSeconds);
+            measuring = false;
+            Histogram[] histograms = new Histogram[recorders.length];
+            long[] failed = new long[recorders.length];
+            long[] notSent = new long[recorders.length];
+            for (int i = 0; i < recorders.length; i++) {
+                histograms[i] = recorders[i].getIntervalHistogram();
+                failed[i] = errors[i].sum();
+                notSent[i] = dropped[i].sum();
+            }
+            double elapsedSeconds = (System.nanoTime() - measureStart) / 1e9;
+            running = false;
+            if (driver != null) {
+                driver.join();
+            }
+            report(histograms, failed, notSent, elapsedSeconds);
+            executor.shutdownNow();
+        }
+    }
+
+    private void runClient() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            Operation operation = mix[random.nextInt(mix.length)];
+            execute(operation, System.nanoTime());
+        }
+    }
+
+    private void runOpenLoop(ExecutorService executor, int rps, Semaphore inFlight) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        long next = System.nanoTime();
+        while (running) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            Operation operation = mix[random.nextInt(mix.length)];
+            long scheduledStart = next;
+            next += intervalNanos;
+            if (!inFlight.tryAcquire()) {
+                if (measuring) {
+                    dropped[operation.ordinal()].increment();
+                }
+                continue;
+            }
+            executor.submit(() -> {
+                try {
+                    execute(operation, scheduledStart);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+    }
+
+    private void execute(Operation operation, long start) {
+        boolean ok;
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request(operation),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            ok = response.statusCode() / 100 == 2;
+            if (ok && operation == Operation.CREATE_CAR) {
+                carIds.add(objectMapper.readTree(response.body()).path("id").asLong());
+            }
+        } catch (IOException ex) {
+            ok = false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (measuring) {
+            recorders[operation.ordinal()].recordValue(Math.min(System.nanoTime() - start, MAX_LATENCY_NANOS));
+            if (!ok) {
+                errors[operation.ordinal()].increment();
+            }
+        }
+    }
+
+    private HttpRequest request(Operation operation) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (operation) {
+            case CREATE_CAR -> post("/api/cars", Map.of(
+                    "brand", BRANDS[random.nextInt(BRANDS.length)],
+                    "model", MODELS[random.nextInt(MODELS.length)],
+                    "year", 2000 + random.nextInt(25)));
+            case ADD_FUEL -> post("/api/cars/" + carIds.random(random) + "/fuel", Map.of(
+                    "liters", 20 + random.nextInt(40),
+                    "price", 30 + random.nextInt(60),
+                    "odometer", odometer.addAndGet(5)));
+            case FUEL_STATS -> get("/api/cars/" + carIds.random(random) + "/fuel/stats");
+            case LIST_CARS -> get("/api/cars");
+        };
+    }
+
+    private HttpRequest post(String path, Map<String, Object> payload) throws IOException {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", format.mediaType)
+                .header("Accept", format.mediaType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload)))
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Accept", format.mediaType)
+                .GET()
+                .build();
+    }
+
+    private void seedCars(int cars) throws InterruptedException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Semaphore permits = new Semaphore(64);
+            for (int i = 0; i < cars; i++) {
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        execute(Operation.CREATE_CAR, System.nanoTime());
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        if (carIds.size() == 0) {
+            throw new IllegalArgumentException("Could not create any car at " + baseUrl);
+        }
+    }
+
+    private void report(Histogram[] histograms, long[] failed, long[] notSent, double elapsedSeconds) {
+        Histogram total = new Histogram(MAX_LATENCY_NANOS, 3);
+        long totalFailed = 0;
+        long totalNotSent = 0;
+        System.out.printf("%-11s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "req/s", "err%", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            int i = operation.ordinal();
+            if (histograms[i].getTotalCount() == 0 && notSent[i] == 0) {
+                continue;
+            }
+            printRow(operation.label, histograms[i], failed[i], notSent[i], elapsedSeconds);
+            total.add(histograms[i]);
+            totalFailed += failed[i];
+            totalNotSent += notSent[i];
+        }
+        printRow("total", total, totalFailed, totalNotSent, elapsedSeconds);
+        if (totalNotSent > 0) {
+            System.out.printf("%d scheduled requests were not sent because --maxInFlight requests were already "
+                    + "outstanding; they count as errors%n", totalNotSent);
+        }
+    }
+
+    /** Requests the open loop could not send are errors without a latency. */
+    private static void printRow(String label, Histogram histogram, long failed, long notSent,
+                                 double elapsedSeconds) {
+        long requests = histogram.getTotalCount();
+        double errorRate = requests + notSent > 0 ? 100.0 * (failed + notSent) / (requests + notSent) : 0.0;
+        System.out.printf("%-11s %9d %9.1f %6.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n", label, requests,
+                requests / elapsedSeconds, errorRate,
+                histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(90) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6, histogram.getValueAtPercentile(99.9) / 1e6,
+                histogram.getMaxValue() / 1e6);
+    }
+
+    /**
+     * Expands {@code name=weight,...} into a table with one slot per unit of weight, so picking an operation is a
+     * single random index.
+     */
+    private static Operation[] parseMix(String value) {
+        Operation[] table = new Operation[0];
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("mix must look like " + DEFAULT_MIX);
+            }
+            Operation operation = Operation.fromLabel(pair[0].trim());
+            int weight;
+            try {
+                weight = Integer.parseInt(pair[1].trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("mix weights must be numbers");
+            }
+            if (weight < 0) {
+                throw new IllegalArgumentException("mix weights must not be negative");
+            }
+            int offset = table.length;
+            table = Arrays.copyOf(table, offset + weight);
+            Arrays.fill(table, offset, table.length, operation);
+        }
+        if (table.length == 0) {
+            throw new IllegalArgumentException("mix must give at least one operation a positive weight");
+        }
+        return table;
+    }
+
+    /** Ids of the cars created so far, seeded before the run and grown by {@code create-car}. */
+    private static final class CarIds {
+        private long[] ids = new long[1024];
+        private int size;
+
+        synchronized void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long random(ThreadLocalRandom random) {
+            return ids[random.nextInt(size)];
+        }
+    }
+}